@@ -0,0 +1,452 @@
+package org.adempiere.model;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+import org.compiere.model.MSysConfig;
+import org.compiere.util.CLogger;
+import org.compiere.util.DB;
+
+/**
+ * Índice de nomes normalizados de parceiros de negócio, usado na validação de nome duplicado
+ * do CustomModelValidator
+ *
+ * O nome é normalizado sem acentos, em minúsculas e com espaços unificados ("ACME  Ltda" e
+ * "acme ltda" são o mesmo nome) pela função custom_normalize_name do banco (unaccent), com
+ * índice funcional em C_BPartner (create_custom_tables.sql, seção 4). Um filtro de Bloom em
+ * memória com os nomes normalizados existentes descarta sem ir ao banco a maioria dos nomes
+ * novos; os possíveis duplicados são confirmados no banco.
+ *
+ * O filtro guarda apenas chaves calculadas pelo banco (carga e nomes incomuns gravados nesta
+ * JVM). A chave do nome consultado é calculada em Java somente quando todos os caracteres são
+ * ASCII, espaços ou letras latinas acentuadas simples, em que normalize e unaccent coincidem;
+ * nos demais nomes (aspas tipográficas, travessões, ligaduras...) a consulta vai ao banco.
+ *
+ * O filtro é carregado na inicialização do servidor e atualizado pelo validator a cada parceiro
+ * gravado nesta JVM. Parceiros gravados por outros servidores, clientes ou SQL direto entram
+ * pela carga incremental periódica, a partir do maior Updated já lido (com uma pequena
+ * sobreposição para commits próximos), pelo índice (AD_Client_ID, Updated). Se a última carga
+ * tiver mais de dois intervalos, o filtro não é usado e todos os nomes são confirmados no banco.
+ * Nomes removidos ou alterados continuam no filtro (custam apenas uma consulta) até a
+ * reconstrução, feita quando o filtro enche.
+ *
+ * AD_SysConfig: CUSTOM_BPARTNER_NAME_INDEX = Y ativa a comparação normalizada
+ * (padrão N: comparação exata do nome); CUSTOM_BPARTNER_NAME_INDEX_REFRESH é o intervalo da
+ * carga incremental (segundos, padrão 60). Um parceiro gravado em outro servidor pode não ser
+ * reconhecido como duplicado até a carga seguinte, e um gravado em transação aberta por mais
+ * que a sobreposição, até a próxima reconstrução.
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class BPartnerNameIndex {
+
+    /** Logger */
+    private static CLogger log = CLogger.getCLogger(BPartnerNameIndex.class);
+
+    /** Capacidade mínima do filtro */
+    private static final int MIN_CAPACITY = 100000;
+
+    /** Bits por nome e funções de espalhamento (~1% de falsos positivos) */
+    private static final int BITS_PER_NAME = 10;
+    private static final int HASHES = 7;
+
+    /** Sobreposição da carga incremental: parceiros gravados pouco antes do maior Updated lido */
+    private static final long REFRESH_OVERLAP_MILLIS = 2 * 60 * 1000L;
+
+    /** Caracteres em que normalize coincide com custom_normalize_name (além de ASCII e espaços) */
+    private static final String LATIN_LETTERS = "ÀÁÂÃÄÅÇÈÉÊËÌÍÎÏÑÒÓÔÕÖÙÚÛÜÝàáâãäåçèéêëìíîïñòóôõöùúûüýÿ";
+
+    /** Espaços (mesmo conjunto do \s do PostgreSQL) */
+    private static final Pattern WHITESPACE = Pattern.compile("[ \\t\\n\\r\\f\\u000B]+");
+
+    /** Marcas de acentuação separadas pela decomposição NFD */
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    /** Filtro em uso; null até o início da carga */
+    private static volatile BloomFilter s_filter = null;
+
+    /** Filtro em reconstrução, que também recebe os nomes novos */
+    private static volatile BloomFilter s_building = null;
+
+    /** Carga inicial concluída */
+    private static volatile boolean s_ready = false;
+
+    /** Carga ou reconstrução em andamento */
+    private static final AtomicBoolean s_loading = new AtomicBoolean(false);
+
+    /** Início da última carga concluída (completa ou incremental) */
+    private static volatile long s_loadedAt = 0;
+
+    /** Maior Updated lido (relógio do banco); null = nenhum parceiro */
+    private static volatile Timestamp s_watermark = null;
+
+    /** Intervalo da carga incremental */
+    private static volatile long s_refreshMillis = 0;
+
+    /** Carga incremental periódica */
+    private static ScheduledExecutorService s_scheduler = null;
+
+    /**
+     * Filtro de Bloom sem bloqueio (bits em AtomicLongArray)
+     */
+    private static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long mask;
+        private final int capacity;
+        private final LongAdder count = new LongAdder();
+
+        BloomFilter(int capacity) {
+            this.capacity = capacity;
+            long size = Long.highestOneBit((long) capacity * BITS_PER_NAME - 1) << 1;
+            this.bits = new AtomicLongArray((int) (size >>> 6));
+            this.mask = size - 1;
+        }
+
+        /**
+         * Incluir uma chave; contada apenas se ligar algum bit (nomes repetidos, relidos
+         * na carga incremental, não enchem o filtro)
+         */
+        void add(String key) {
+            long hash = hash(key);
+            long h1 = hash;
+            long h2 = (hash >>> 32) | 1;
+            boolean changed = false;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = (h1 + i * h2) & mask;
+                int word = (int) (bit >>> 6);
+                long flag = 1L << (bit & 63);
+                while (true) {
+                    long current = bits.get(word);
+                    if ((current & flag) != 0) {
+                        break;
+                    }
+                    if (bits.compareAndSet(word, current, current | flag)) {
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+            if (changed) {
+                count.increment();
+            }
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash(key);
+            long h1 = hash;
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = (h1 + i * h2) & mask;
+                if ((bits.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isFull() {
+            return count.sum() > capacity;
+        }
+    }
+
+    /**
+     * @return true se a comparação normalizada estiver ativa (CUSTOM_BPARTNER_NAME_INDEX)
+     */
+    public static boolean isEnabled() {
+        return MSysConfig.getBooleanValue("CUSTOM_BPARTNER_NAME_INDEX", false);
+    }
+
+    /**
+     * Normalizar um nome: sem acentos, minúsculas, espaços unificados
+     * Equivalente à função custom_normalize_name do banco apenas nos nomes aceitos por
+     * isComparable; nos demais, a chave do filtro é lida do banco
+     *
+     * @param name Nome
+     * @return Nome normalizado ("" se nulo)
+     */
+    public static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        String key = MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+        return WHITESPACE.matcher(key).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return true se normalize produz a mesma chave que custom_normalize_name: apenas
+     *         ASCII visível, espaços (\s do PostgreSQL) e letras latinas acentuadas simples
+     */
+    static boolean isComparable(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if ((c < 0x20 || c > 0x7E) && c != '\t' && c != '\n' && c != '\r' && c != '\f' && c != '\u000B'
+                && LATIN_LETTERS.indexOf(c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Chave do nome no filtro, calculada em Java quando possível
+     *
+     * @return Chave ou null se apenas o banco puder calculá-la
+     */
+    private static String getKey(String name) {
+        return name != null && isComparable(name) ? normalize(name) : null;
+    }
+
+    /**
+     * Verificar se já existe outro parceiro com o mesmo nome normalizado
+     *
+     * @param name Nome
+     * @param C_BPartner_ID Parceiro sendo gravado (excluído da comparação)
+     * @param trxName Transação
+     * @return true se houver duplicado
+     */
+    public static boolean exists(String name, int C_BPartner_ID, String trxName) {
+        BloomFilter filter = s_filter;
+        String key = getKey(name);
+        if (key != null && isFresh() && filter != null && !filter.mightContain(key)) {
+            return false;
+        }
+
+        String sql = "SELECT COUNT(*) FROM C_BPartner " +
+                     "WHERE custom_normalize_name(Name) = custom_normalize_name(?) AND C_BPartner_ID != ?";
+        return DB.getSQLValue(trxName, sql, name, C_BPartner_ID) > 0;
+    }
+
+    /**
+     * Incluir o nome de um parceiro gravado
+     * Incluído antes do commit: nomes de transações desfeitas custam apenas uma consulta
+     *
+     * @param name Nome
+     */
+    public static void add(String name) {
+        BloomFilter filter = s_filter;
+        if (filter == null || name == null) {
+            return;
+        }
+        String key = getKey(name);
+        if (key == null) {
+            // Nome com caracteres que só o unaccent do banco normaliza
+            key = DB.getSQLValueString(null, "SELECT custom_normalize_name(?)", name);
+            if (key == null) {
+                return;
+            }
+        }
+        filter.add(key);
+        BloomFilter building = s_building;
+        if (building != null) {
+            building.add(key);
+        }
+
+        if (s_ready && filter.isFull()) {
+            startRebuild();
+        }
+    }
+
+    /**
+     * Filtro carregado e atualizado pela carga incremental há no máximo dois intervalos
+     */
+    private static boolean isFresh() {
+        return s_ready && System.currentTimeMillis() - s_loadedAt <= 2 * s_refreshMillis;
+    }
+
+    /**
+     * Carregar o filtro e agendar a carga incremental, se CUSTOM_BPARTNER_NAME_INDEX estiver ativo
+     * Executado em segundo plano na inicialização do servidor
+     */
+    public static synchronized void start() {
+        if (s_scheduler != null || !isEnabled() || !s_loading.compareAndSet(false, true)) {
+            return;
+        }
+
+        long seconds = Math.max(1, MSysConfig.getIntValue("CUSTOM_BPARTNER_NAME_INDEX_REFRESH", 60));
+        try {
+            // Nomes gravados durante a carga já entram no filtro
+            long start = System.currentTimeMillis();
+            BloomFilter filter = new BloomFilter(getCapacity());
+            s_filter = filter;
+            s_watermark = load(filter, null);
+            s_refreshMillis = seconds * 1000L;
+            s_loadedAt = start;
+            s_ready = true;
+            log.info("Índice de nomes de parceiros carregado");
+        } catch (Exception e) {
+            s_filter = null;
+            log.log(Level.SEVERE, "Erro ao carregar índice de nomes de parceiros: " + e.getMessage(), e);
+            return;
+        } finally {
+            s_loading.set(false);
+        }
+
+        s_scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "BPartnerNameIndex-Refresh");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        s_scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    refresh();
+                } catch (Exception e) {
+                    // Sem a carga, o filtro deixa de ser usado após dois intervalos
+                    log.log(Level.SEVERE, "Erro na carga incremental do índice de nomes de parceiros: " 
+                                          + e.getMessage(), e);
+                }
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Incluir no filtro os parceiros atualizados desde o maior Updated já lido, inclusive os
+     * gravados por outros servidores; ignorada durante uma reconstrução, que também os lê
+     */
+    private static void refresh() throws Exception {
+        if (!s_loading.compareAndSet(false, true)) {
+            return;
+        }
+
+        BloomFilter filter = s_filter;
+        try {
+            long start = System.currentTimeMillis();
+            s_watermark = max(s_watermark, load(filter, getRefreshSince()));
+            s_loadedAt = start;
+        } finally {
+            s_loading.set(false);
+        }
+
+        if (filter.isFull()) {
+            startRebuild();
+        }
+    }
+
+    /**
+     * Reconstruir o filtro em segundo plano, com capacidade para o volume atual
+     */
+    private static void startRebuild() {
+        if (!s_loading.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    s_building = null;
+                    log.log(Level.SEVERE, "Erro ao reconstruir índice de nomes de parceiros: " + e.getMessage(), e);
+                } finally {
+                    s_loading.set(false);
+                }
+            }
+        }, "BPartnerNameIndex-Rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Montar um novo filtro e substituir o atual
+     * Parceiros gravados durante a leitura completa são relidos ao final pela data de atualização
+     */
+    private static void rebuild() throws Exception {
+        long start = System.currentTimeMillis();
+        BloomFilter filter = new BloomFilter(getCapacity());
+        s_building = filter;
+        Timestamp watermark = load(filter, null);
+        watermark = max(watermark, load(filter, getRefreshSince()));
+        s_filter = filter;
+        s_building = null;
+        s_watermark = max(s_watermark, watermark);
+        s_loadedAt = Math.max(s_loadedAt, start);
+        log.info("Índice de nomes de parceiros reconstruído");
+    }
+
+    /**
+     * Incluir no filtro os nomes de C_BPartner, normalizados pelo banco
+     * A carga incremental usa o índice (AD_Client_ID, Updated), um intervalo por cliente
+     *
+     * @param updatedSince Apenas parceiros atualizados depois desta data (null = todos)
+     * @return Maior Updated lido ou null se nenhum parceiro
+     */
+    private static Timestamp load(BloomFilter filter, Timestamp updatedSince) throws Exception {
+        String sql = "SELECT custom_normalize_name(Name), Updated FROM C_BPartner"
+                     + (updatedSince != null ? " WHERE AD_Client_ID IN (SELECT AD_Client_ID FROM AD_Client) " +
+                                               "AND Updated > ?" : "");
+        Timestamp watermark = null;
+
+        PreparedStatement pstmt = DB.prepareStatement(sql, null);
+        try {
+            pstmt.setFetchSize(10000);
+            if (updatedSince != null) {
+                pstmt.setTimestamp(1, updatedSince);
+            }
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                String key = rs.getString(1);
+                if (key != null) {
+                    filter.add(key);
+                }
+                watermark = max(watermark, rs.getTimestamp(2));
+            }
+            rs.close();
+        } finally {
+            pstmt.close();
+        }
+        return watermark;
+    }
+
+    /**
+     * Início da carga incremental: maior Updated lido, menos a sobreposição
+     */
+    private static Timestamp getRefreshSince() {
+        Timestamp watermark = s_watermark;
+        return new Timestamp((watermark != null ? watermark.getTime() : 0) - REFRESH_OVERLAP_MILLIS);
+    }
+
+    private static Timestamp max(Timestamp a, Timestamp b) {
+        if (a == null) {
+            return b;
+        }
+        return b != null && b.after(a) ? b : a;
+    }
+
+    /**
+     * Capacidade do filtro: o dobro dos parceiros existentes
+     */
+    private static int getCapacity() {
+        int count = DB.getSQLValue(null, "SELECT COUNT(*) FROM C_BPartner");
+        return (int) Math.min(Integer.MAX_VALUE / BITS_PER_NAME, Math.max(MIN_CAPACITY, 2L * count));
+    }
+
+    /** Espalhamento de 64 bits do nome normalizado (FNV-1a e finalizador do MurmurHash3) */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb53a3a5a4d2bL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
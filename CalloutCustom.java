@@ -1,15 +1,12 @@
 package org.compiere.model;
 
 import java.math.BigDecimal;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.util.Properties;
 import java.util.logging.Level;
 
 import org.compiere.model.CalloutEngine;
 import org.compiere.model.GridField;
 import org.compiere.model.GridTab;
-import org.compiere.util.DB;
 import org.compiere.util.Env;
 
 /**
@@ -21,6 +18,24 @@ import org.compiere.util.Env;
  */
 public class CalloutCustom extends CalloutEngine {
     
+    /** Métricas dos callouts e consultas auxiliares */
+    private static final CalloutMetrics.Metric M_LINE_TOTAL = CalloutMetrics.register("calculateLineTotal");
+    private static final CalloutMetrics.Metric M_VALIDATE_PRODUCT = CalloutMetrics.register("validateProduct");
+    private static final CalloutMetrics.Metric M_DISCOUNT = CalloutMetrics.register("calculateDiscount");
+    private static final CalloutMetrics.Metric M_PREFETCH = CalloutMetrics.register("prefetchPartner");
+    private static final CalloutMetrics.Metric M_TAX_RATE = CalloutMetrics.register("getTaxRate");
+    private static final CalloutMetrics.Metric M_SPECIAL = CalloutMetrics.register("isSpecialCustomer");
+    private static final CalloutMetrics.Metric M_PRODUCT = CalloutMetrics.register("getProduct");
+    
+    /** Potências de 10 até 10^18 (maior que cabe em long) */
+    private static final long[] POWERS_OF_TEN = new long[19];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    
     /**
      * Callout para cálculo de total de linha em pedidos
      * Chamado quando Qty ou PriceEntered são alterados
@@ -42,6 +57,7 @@ public class CalloutCustom extends CalloutEngine {
         BigDecimal price = (BigDecimal) mTab.getValue("PriceEntered");
         Integer taxId = (Integer) mTab.getValue("C_Tax_ID");
         
+        long start = CalloutMetrics.start();
         try {
             // Validar quantidade
             if (qty != null && qty.compareTo(Env.ZERO) <= 0) {
@@ -62,7 +78,7 @@ public class CalloutCustom extends CalloutEngine {
                 if (taxId != null && taxId > 0) {
                     BigDecimal taxRate = getTaxRate(taxId);
                     if (taxRate != null) {
-                        BigDecimal taxAmt = lineNetAmt.multiply(taxRate).divide(Env.ONEHUNDRED, 2, BigDecimal.ROUND_HALF_UP);
+                        BigDecimal taxAmt = percentOf(lineNetAmt, taxRate);
                         mTab.setValue("TaxAmt", taxAmt);
                         mTab.setValue("LineTotalAmt", lineNetAmt.add(taxAmt));
                     }
@@ -73,8 +89,11 @@ public class CalloutCustom extends CalloutEngine {
             }
             
         } catch (Exception e) {
+            M_LINE_TOTAL.error();
             log.log(Level.SEVERE, "Erro no callout calculateLineTotal: " + e.getMessage(), e);
             return "Erro interno: " + e.getMessage();
+        } finally {
+            M_LINE_TOTAL.end(start);
         }
         
         return "";
@@ -91,22 +110,19 @@ public class CalloutCustom extends CalloutEngine {
             
         Integer productId = (Integer) value;
         
+        long start = CalloutMetrics.start();
         try {
-            String sql = "SELECT IsActive, IsSold, Name FROM M_Product WHERE M_Product_ID = ?";
-            PreparedStatement pstmt = DB.prepareStatement(sql, null);
-            pstmt.setInt(1, productId);
-            ResultSet rs = pstmt.executeQuery();
+            // Situação de venda lida do cache local (invalidado pelo CustomModelValidator)
+            ProductSellabilityCache.Product product = getProduct(productId);
             
-            if (rs.next()) {
-                String isActive = rs.getString("IsActive");
-                String isSold = rs.getString("IsSold");
-                String productName = rs.getString("Name");
+            if (product != null) {
+                String productName = product.getName();
                 
-                if (!"Y".equals(isActive)) {
+                if (!product.isActive()) {
                     return "Produto " + productName + " não está ativo";
                 }
                 
-                if (!"Y".equals(isSold)) {
+                if (!product.isSold()) {
                     return "Produto " + productName + " não está disponível para venda";
                 }
                 
@@ -114,12 +130,12 @@ public class CalloutCustom extends CalloutEngine {
                 mTab.setValue("ProductName", productName);
             }
             
-            rs.close();
-            pstmt.close();
-            
         } catch (Exception e) {
+            M_VALIDATE_PRODUCT.error();
             log.log(Level.SEVERE, "Erro no callout validateProduct: " + e.getMessage(), e);
             return "Erro ao validar produto: " + e.getMessage();
+        } finally {
+            M_VALIDATE_PRODUCT.end(start);
         }
         
         return "";
@@ -134,29 +150,36 @@ public class CalloutCustom extends CalloutEngine {
         if (isCalloutActive() || value == null)
             return "";
             
+        long start = CalloutMetrics.start();
         try {
             BigDecimal qty = (BigDecimal) mTab.getValue("QtyEntered");
             Integer bPartnerId = (Integer) mTab.getValue("C_BPartner_ID");
+            Integer productId = (Integer) mTab.getValue("M_Product_ID");
             BigDecimal priceList = (BigDecimal) mTab.getValue("PriceList");
             
             BigDecimal discount = Env.ZERO;
             
-            // Desconto por quantidade
-            if (qty != null && qty.compareTo(new BigDecimal("10")) >= 0) {
-                discount = new BigDecimal("5"); // 5% desconto para qty >= 10
-            }
-            if (qty != null && qty.compareTo(new BigDecimal("50")) >= 0) {
-                discount = new BigDecimal("10"); // 10% desconto para qty >= 50
+            // Grupo e cliente especial lidos dos caches compartilhados (aquecidos pelo prefetchPartner
+            // e invalidados após o commit), para que alterações no parceiro valham imediatamente
+            // Desconto por quantidade (faixas de Custom_DiscountTier, ou 10 -> 5% e 50 -> 10%)
+            if (qty != null) {
+                ProductSellabilityCache.Product product = productId != null ? getProduct(productId) : null;
+                int categoryId = product != null ? product.getM_Product_Category_ID() : 0;
+                int priceListId = Env.getContextAsInt(ctx, WindowNo, "M_PriceList_ID");
+                int bpGroupId = bPartnerId != null ? DiscountTierEngine.getBPGroup(bPartnerId) : 0;
+                
+                discount = DiscountTierEngine.getDiscount(Env.getAD_Client_ID(ctx), categoryId, 
+                                                          priceListId, bpGroupId, qty);
             }
             
-            // Desconto adicional para clientes especiais
+            // Desconto adicional para clientes especiais (padrão +5%)
             if (bPartnerId != null && isSpecialCustomer(bPartnerId)) {
-                discount = discount.add(new BigDecimal("5")); // +5% para clientes especiais
+                discount = discount.add(DiscountTierEngine.getSpecialBonus());
             }
             
             // Aplicar desconto
             if (discount.compareTo(Env.ZERO) > 0 && priceList != null) {
-                BigDecimal discountAmt = priceList.multiply(discount).divide(Env.ONEHUNDRED, 2, BigDecimal.ROUND_HALF_UP);
+                BigDecimal discountAmt = percentOf(priceList, discount);
                 BigDecimal priceEntered = priceList.subtract(discountAmt);
                 
                 mTab.setValue("Discount", discount);
@@ -164,60 +187,109 @@ public class CalloutCustom extends CalloutEngine {
             }
             
         } catch (Exception e) {
+            M_DISCOUNT.error();
             log.log(Level.SEVERE, "Erro no callout calculateDiscount: " + e.getMessage(), e);
             return "Erro ao calcular desconto: " + e.getMessage();
+        } finally {
+            M_DISCOUNT.end(start);
         }
         
         return "";
     }
     
     /**
-     * Método auxiliar para obter taxa de imposto
+     * Callout para pré-carga dos dados do parceiro
+     * Chamado quando C_BPartner_ID é alterado no cabeçalho do pedido; os dados usados
+     * pelos callouts das linhas são carregados em segundo plano
      */
-    private BigDecimal getTaxRate(int taxId) {
-        String sql = "SELECT Rate FROM C_Tax WHERE C_Tax_ID = ?";
-        BigDecimal rate = null;
+    public String prefetchPartner(Properties ctx, int WindowNo, GridTab mTab, GridField mField, Object value) {
         
+        if (isCalloutActive() || value == null)
+            return "";
+            
+        long start = CalloutMetrics.start();
         try {
-            PreparedStatement pstmt = DB.prepareStatement(sql, null);
-            pstmt.setInt(1, taxId);
-            ResultSet rs = pstmt.executeQuery();
+            OrderEntryPrefetch.start(ctx, WindowNo, (Integer) value);
+        } catch (Exception e) {
+            // A pré-carga é opcional: os callouts seguem consultando caches e banco
+            M_PREFETCH.error();
+            log.log(Level.WARNING, "Erro ao iniciar pré-carga: " + e.getMessage(), e);
+        } finally {
+            M_PREFETCH.end(start);
+        }
+        
+        return "";
+    }
+    
+    /**
+     * Percentual de um valor, arredondado a 2 casas (HALF_UP): amount * percent / 100
+     * Quando os valores cabem em long o cálculo é feito sobre os valores inteiros escalados,
+     * sem os BigDecimal intermediários de multiply/divide; o resultado é idêntico
+     * (valor e escala) ao cálculo em BigDecimal, usado nos demais casos
+     * 
+     * @param amount Valor
+     * @param percent Percentual
+     * @return Valor do percentual com escala 2
+     */
+    static BigDecimal percentOf(BigDecimal amount, BigDecimal percent) {
+        int scale = amount.scale() + percent.scale();
+        
+        if (amount.scale() >= 0 && percent.scale() >= 0 && scale < POWERS_OF_TEN.length
+            && amount.precision() <= 18 && percent.precision() <= 18) {
+            long a = amount.unscaledValue().longValue();
+            long p = percent.unscaledValue().longValue();
             
-            if (rs.next()) {
-                rate = rs.getBigDecimal("Rate");
+            if (a == 0 || Math.abs(p) <= Long.MAX_VALUE / Math.abs(a)) {
+                // amount * percent / 100 com escala 2 = a * p / 10^scale
+                long product = a * p;
+                long divisor = POWERS_OF_TEN[scale];
+                long result = product / divisor;
+                long remainder = Math.abs(product % divisor);
+                if (remainder >= divisor - remainder) {
+                    result += Long.signum(product);
+                }
+                return BigDecimal.valueOf(result, 2);
             }
-            
-            rs.close();
-            pstmt.close();
-            
-        } catch (Exception e) {
-            log.log(Level.SEVERE, "Erro ao obter taxa de imposto: " + e.getMessage(), e);
         }
         
-        return rate;
+        return amount.multiply(percent).divide(Env.ONEHUNDRED, 2, BigDecimal.ROUND_HALF_UP);
+    }
+    
+    /**
+     * Método auxiliar para obter taxa de imposto
+     * Lida do cache compartilhado, sem consulta ao banco a cada alteração de campo
+     */
+    private BigDecimal getTaxRate(int taxId) {
+        long start = CalloutMetrics.start();
+        try {
+            return TaxRateCache.get(taxId);
+        } finally {
+            M_TAX_RATE.end(start);
+        }
+    }
+    
+    /**
+     * Método auxiliar para obter a situação de venda do produto
+     */
+    private ProductSellabilityCache.Product getProduct(int productId) throws Exception {
+        long start = CalloutMetrics.start();
+        try {
+            return ProductSellabilityCache.get(productId);
+        } finally {
+            M_PRODUCT.end(start);
+        }
     }
     
     /**
      * Método auxiliar para verificar se é cliente especial
+     * Consulta o conjunto em memória mantido pelo CustomModelValidator
      */
     private boolean isSpecialCustomer(int bPartnerId) {
-        String sql = "SELECT IsCustomer FROM C_BPartner WHERE C_BPartner_ID = ? AND SO_CreditLimit > 10000";
-        boolean isSpecial = false;
-        
+        long start = CalloutMetrics.start();
         try {
-            PreparedStatement pstmt = DB.prepareStatement(sql, null);
-            pstmt.setInt(1, bPartnerId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            isSpecial = rs.next();
-            
-            rs.close();
-            pstmt.close();
-            
-        } catch (Exception e) {
-            log.log(Level.SEVERE, "Erro ao verificar cliente especial: " + e.getMessage(), e);
+            return SpecialCustomerSet.contains(bPartnerId);
+        } finally {
+            M_SPECIAL.end(start);
         }
-        
-        return isSpecial;
     }
 }
\ No newline at end of file
@@ -0,0 +1,397 @@
+package org.compiere.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.compiere.util.CLogger;
+
+/**
+ * Métricas dos callouts e das consultas auxiliares dos componentes personalizados
+ * Chamadas, erros, idas ao banco e histograma de latência por método, sem bloqueio
+ * (LongAdder e faixas de potência de 2 em AtomicLongArray)
+ *
+ * Ativadas por CUSTOM_CALLOUT_METRICS = Y em AD_SysConfig (verificado a cada minuto);
+ * desativadas, cada medição custa apenas uma leitura do relógio e de um campo. Publicadas por JMX
+ * (org.adempiere.custom:type=CalloutMetrics) e, se CUSTOM_CALLOUT_METRICS_FILE
+ * estiver preenchido, gravadas a cada minuto no formato texto do Prometheus
+ * (ex.: diretório do textfile collector do node_exporter).
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class CalloutMetrics {
+
+    /** Logger */
+    private static CLogger log = CLogger.getCLogger(CalloutMetrics.class);
+
+    /** Faixas do histograma: a faixa i conta durações (ns) com i bits, até 2^i ns */
+    private static final int BUCKETS = 64;
+
+    /** Faixas publicadas no Prometheus: de 2^10 ns (~1 µs) a 2^35 ns (~34 s) */
+    private static final int EXPORT_FIRST_BUCKET = 10;
+    private static final int EXPORT_LAST_BUCKET = 35;
+
+    /** Intervalo de verificação da configuração e de gravação do arquivo */
+    private static final long REFRESH_MILLIS = 60 * 1000L;
+
+    /** Métricas registradas, por nome */
+    private static final Map<String, Metric> s_metrics = new ConcurrentHashMap<String, Metric>();
+
+    /** Medição ativa */
+    private static volatile boolean s_enabled = false;
+
+    /** Próxima verificação de CUSTOM_CALLOUT_METRICS */
+    private static volatile long s_checkAt = 0;
+
+    /** Publicação (JMX e arquivo) iniciada */
+    private static boolean s_published = false;
+
+    /**
+     * Métricas de um método
+     */
+    public static class Metric {
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder dbCalls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        Metric(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Registrar o fim de uma chamada iniciada com CalloutMetrics.start()
+         *
+         * @param start Retorno de start(); 0 = medição desativada
+         */
+        public void end(long start) {
+            if (start == 0) {
+                return;
+            }
+            record(System.nanoTime() - start);
+        }
+
+        /**
+         * Registrar a duração de uma chamada
+         *
+         * @param nanos Duração em nanossegundos
+         */
+        public void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            calls.increment();
+            totalNanos.add(nanos);
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos)));
+        }
+
+        /**
+         * Registrar um erro
+         */
+        public void error() {
+            if (s_enabled) {
+                errors.increment();
+            }
+        }
+
+        /**
+         * Registrar uma ida ao banco
+         */
+        public void dbCall() {
+            if (s_enabled) {
+                dbCalls.increment();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getDbCalls() {
+            return dbCalls.sum();
+        }
+
+        /**
+         * Percentil aproximado da latência (limite superior da faixa)
+         *
+         * @param percentile Percentil (0 a 100)
+         * @return Latência em nanossegundos, ou 0 sem chamadas
+         */
+        public long getPercentile(double percentile) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i >= 63 ? Long.MAX_VALUE : 1L << i;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        void reset() {
+            calls.reset();
+            errors.reset();
+            dbCalls.reset();
+            totalNanos.reset();
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+        }
+    }
+
+    /**
+     * Interface JMX
+     */
+    public interface MetricsMBean {
+        boolean isEnabled();
+
+        String[] getSummary();
+
+        String getPrometheusText();
+
+        void reset();
+    }
+
+    /**
+     * Registrar (ou obter) as métricas de um método
+     *
+     * @param name Nome do método
+     * @return Métricas
+     */
+    public static Metric register(String name) {
+        synchronized (s_metrics) {
+            Metric metric = s_metrics.get(name);
+            if (metric == null) {
+                metric = new Metric(name);
+                s_metrics.put(name, metric);
+            }
+            return metric;
+        }
+    }
+
+    /**
+     * Iniciar a medição de uma chamada
+     *
+     * @return Instante inicial (System.nanoTime) ou 0 se a medição estiver desativada
+     */
+    public static long start() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        return start != 0 ? start : 1;
+    }
+
+    /**
+     * @return true se a medição estiver ativa
+     */
+    public static boolean isEnabled() {
+        if (System.currentTimeMillis() >= s_checkAt) {
+            refresh();
+        }
+        return s_enabled;
+    }
+
+    /**
+     * Métricas no formato texto do Prometheus
+     */
+    public static String getPrometheusText() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("# TYPE custom_callout_calls_total counter\n");
+        for (Metric metric : s_metrics.values()) {
+            appendSample(sb, "custom_callout_calls_total", metric, null, metric.getCalls());
+        }
+        sb.append("# TYPE custom_callout_errors_total counter\n");
+        for (Metric metric : s_metrics.values()) {
+            appendSample(sb, "custom_callout_errors_total", metric, null, metric.getErrors());
+        }
+        sb.append("# TYPE custom_callout_db_calls_total counter\n");
+        for (Metric metric : s_metrics.values()) {
+            appendSample(sb, "custom_callout_db_calls_total", metric, null, metric.getDbCalls());
+        }
+
+        sb.append("# TYPE custom_callout_duration_seconds histogram\n");
+        for (Metric metric : s_metrics.values()) {
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                cumulative += metric.buckets.get(i);
+                if (i >= EXPORT_FIRST_BUCKET && i <= EXPORT_LAST_BUCKET) {
+                    appendSample(sb, "custom_callout_duration_seconds_bucket", metric,
+                                 formatSeconds(1L << i), cumulative);
+                }
+            }
+            appendSample(sb, "custom_callout_duration_seconds_bucket", metric, "+Inf", cumulative);
+            sb.append("custom_callout_duration_seconds_sum{method=\"").append(metric.name).append("\"} ")
+              .append(formatSeconds(metric.totalNanos.sum())).append('\n');
+            appendSample(sb, "custom_callout_duration_seconds_count", metric, null, cumulative);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Resumo legível: chamadas, erros, banco e percentis por método
+     */
+    public static String[] getSummary() {
+        List<String> lines = new ArrayList<String>();
+        for (Metric metric : s_metrics.values()) {
+            lines.add(metric.name + ": chamadas=" + metric.getCalls() + ", erros=" + metric.getErrors()
+                      + ", banco=" + metric.getDbCalls()
+                      + ", p50=" + formatMicros(metric.getPercentile(50))
+                      + ", p99=" + formatMicros(metric.getPercentile(99)));
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * Zerar todas as métricas
+     */
+    public static void reset() {
+        for (Metric metric : s_metrics.values()) {
+            metric.reset();
+        }
+    }
+
+    /**
+     * Ler CUSTOM_CALLOUT_METRICS e iniciar a publicação na primeira ativação
+     */
+    private static synchronized void refresh() {
+        if (System.currentTimeMillis() < s_checkAt) {
+            return;
+        }
+        s_enabled = MSysConfig.getBooleanValue("CUSTOM_CALLOUT_METRICS", false);
+        s_checkAt = System.currentTimeMillis() + REFRESH_MILLIS;
+
+        if (s_enabled && !s_published) {
+            s_published = true;
+            publish();
+        }
+    }
+
+    /**
+     * Registrar o MBean e agendar a gravação do arquivo
+     */
+    private static void publish() {
+        try {
+            MetricsMBean mbean = new MetricsMBean() {
+                public boolean isEnabled() {
+                    return CalloutMetrics.isEnabled();
+                }
+
+                public String[] getSummary() {
+                    return CalloutMetrics.getSummary();
+                }
+
+                public String getPrometheusText() {
+                    return CalloutMetrics.getPrometheusText();
+                }
+
+                public void reset() {
+                    CalloutMetrics.reset();
+                }
+            };
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                new StandardMBean(mbean, MetricsMBean.class),
+                new ObjectName("org.adempiere.custom:type=CalloutMetrics"));
+        } catch (Exception e) {
+            log.log(Level.WARNING, "Erro ao registrar MBean de métricas: " + e.getMessage(), e);
+        }
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CalloutMetrics-Export");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                writeFile();
+            }
+        }, REFRESH_MILLIS, REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gravar o arquivo do Prometheus, se configurado
+     * Gravado em arquivo temporário e renomeado, para nunca ser lido pela metade
+     */
+    private static void writeFile() {
+        String fileName = MSysConfig.getValue("CUSTOM_CALLOUT_METRICS_FILE", null);
+        if (fileName == null || fileName.trim().length() == 0 || !isEnabled()) {
+            return;
+        }
+
+        try {
+            Path file = Paths.get(fileName.trim());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8);
+            try {
+                writer.write(getPrometheusText());
+            } finally {
+                writer.close();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Erro ao gravar métricas: " + e.getMessage(), e);
+        }
+    }
+
+    private static void appendSample(StringBuilder sb, String name, Metric metric, String le, long value) {
+        sb.append(name).append("{method=\"").append(metric.name).append('"');
+        if (le != null) {
+            sb.append(",le=\"").append(le).append('"');
+        }
+        sb.append("} ").append(value).append('\n');
+    }
+
+    private static String formatSeconds(long nanos) {
+        return String.format(Locale.US, "%.9f", nanos / 1e9);
+    }
+
+    private static String formatMicros(long nanos) {
+        return nanos == Long.MAX_VALUE ? "-" : (nanos / 1000) + "us";
+    }
+}
@@ -0,0 +1,210 @@
+package org.adempiere.model;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+
+/**
+ * Reservas de crédito dos pedidos em processo de conclusão, por parceiro de negócio
+ * Usado pela regra OrderCreditLimit do CustomModelValidator
+ *
+ * O crédito usado de cada reserva é lido do banco, na transação do pedido: SO_CreditUsed
+ * (faturas em aberto) mais os pedidos de venda completados ainda não faturados, pela parte
+ * não faturada do GrandTotal. Alterações feitas por outros servidores, processos ou SQL direto
+ * valem na reserva seguinte. Sobre esse valor soma-se o total reservado pelas transações
+ * abertas nesta JVM, mantido por compare-and-set na conta do parceiro, sem bloqueio global:
+ * dois pedidos do mesmo parceiro concluídos ao mesmo tempo não ultrapassam juntos o limite,
+ * e parceiros diferentes não esperam um pelo outro.
+ *
+ * A reserva é liberada ao fim da transação (commit, rollback ou close). Após o commit o pedido
+ * está completado e passa a contar pelo banco. Cada liberação muda a versão da conta, e uma
+ * reserva calculada com crédito lido antes dela é refeita, para que um pedido recém-confirmado
+ * nunca fique fora das duas parcelas. Pedidos concluídos ao mesmo tempo em outros servidores
+ * só são vistos após o commit.
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class CreditReservationLedger {
+
+    /** Contas por parceiro */
+    private static final ConcurrentHashMap<Integer, Account> s_accounts = new ConcurrentHashMap<Integer, Account>();
+
+    /** Parte não faturada dos pedidos de venda completados, proporcional ao GrandTotal */
+    private static final String SQL_OpenOrders =
+        "SELECT COALESCE(SUM(o.GrandTotal * (SELECT SUM((ol.QtyOrdered - ol.QtyInvoiced) * ol.PriceActual) " +
+        "/ NULLIF(SUM(ol.QtyOrdered * ol.PriceActual), 0) FROM C_OrderLine ol WHERE ol.C_Order_ID = o.C_Order_ID)), 0) " +
+        "FROM C_Order o WHERE o.C_BPartner_ID = ? AND o.IsSOTrx = 'Y' AND o.DocStatus = 'CO'";
+
+    /**
+     * Situação de uma conta; imutável, substituída por compare-and-set
+     */
+    private static final class State {
+        /** Reservas das transações abertas */
+        final BigDecimal reserved;
+        /** Incrementada a cada liberação */
+        final long version;
+
+        State(BigDecimal reserved, long version) {
+            this.reserved = reserved;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Conta de um parceiro
+     */
+    private static final class Account {
+        final AtomicReference<State> state = new AtomicReference<State>(new State(Env.ZERO, 0));
+    }
+
+    /**
+     * Resultado de uma reserva
+     */
+    public static class Reservation {
+        private final Account account;
+        private final BigDecimal amount;
+        private final boolean ok;
+        private final BigDecimal creditLimit;
+        private final BigDecimal creditUsed;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        Reservation(Account account, BigDecimal amount, boolean ok, BigDecimal creditLimit, BigDecimal creditUsed) {
+            this.account = account;
+            this.amount = amount;
+            this.ok = ok;
+            this.creditLimit = creditLimit;
+            this.creditUsed = creditUsed;
+        }
+
+        /**
+         * @return true se o valor foi reservado (dentro do limite ou parceiro sem limite)
+         */
+        public boolean isOK() {
+            return ok;
+        }
+
+        public BigDecimal getCreditLimit() {
+            return creditLimit;
+        }
+
+        /**
+         * @return Crédito usado, pedidos não faturados e reservas de outras transações,
+         *         antes desta reserva
+         */
+        public BigDecimal getCreditUsed() {
+            return creditUsed;
+        }
+
+        /**
+         * @return Crédito usado com o valor desta reserva
+         */
+        public BigDecimal getNewCreditUsed() {
+            return creditUsed.add(amount);
+        }
+
+        /**
+         * Liberar a reserva; chamadas repetidas são ignoradas
+         */
+        public void release() {
+            if (account == null || !ok || amount.signum() == 0 || !released.compareAndSet(false, true)) {
+                return;
+            }
+            while (true) {
+                State current = account.state.get();
+                State next = new State(current.reserved.subtract(amount), current.version + 1);
+                if (account.state.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reservar crédito para um pedido
+     *
+     * @param C_BPartner_ID Parceiro
+     * @param amount Valor do pedido
+     * @param trxName Transação do pedido
+     * @return Reserva (isOK = false se o valor excede o limite)
+     */
+    public static Reservation reserve(int C_BPartner_ID, BigDecimal amount, String trxName) throws Exception {
+        if (amount == null) {
+            amount = Env.ZERO;
+        }
+
+        Account account = s_accounts.get(C_BPartner_ID);
+        if (account == null) {
+            Account created = new Account();
+            account = s_accounts.putIfAbsent(C_BPartner_ID, created);
+            if (account == null) {
+                account = created;
+            }
+        }
+
+        while (true) {
+            // Versão lida antes do banco: uma liberação depois disso pode ser de um pedido
+            // que o banco ainda não mostrava
+            State current = account.state.get();
+            BigDecimal[] credit = loadCredit(C_BPartner_ID, trxName);
+            if (credit[0] == null || credit[0].signum() <= 0) {
+                // Sem limite de crédito: nada a reservar
+                return new Reservation(null, amount, true, credit[0], credit[1].add(current.reserved));
+            }
+
+            while (true) {
+                BigDecimal used = credit[1].add(current.reserved);
+                if (used.add(amount).compareTo(credit[0]) > 0) {
+                    return new Reservation(account, amount, false, credit[0], used);
+                }
+
+                State next = new State(current.reserved.add(amount), current.version);
+                if (account.state.compareAndSet(current, next)) {
+                    return new Reservation(account, amount, true, credit[0], used);
+                }
+
+                // Outra reserva no meio: repetir com o mesmo crédito; liberação: reler o banco
+                State latest = account.state.get();
+                if (latest.version != current.version) {
+                    break;
+                }
+                current = latest;
+            }
+        }
+    }
+
+    /**
+     * Ler SO_CreditLimit e o crédito usado do parceiro: SO_CreditUsed mais os pedidos
+     * completados não faturados
+     *
+     * @return {limite (pode ser null), crédito usado}
+     */
+    private static BigDecimal[] loadCredit(int C_BPartner_ID, String trxName) throws Exception {
+        BigDecimal[] credit = new BigDecimal[] {null, Env.ZERO};
+        String sql = "SELECT SO_CreditLimit, SO_CreditUsed, (" + SQL_OpenOrders + ") " +
+                     "FROM C_BPartner WHERE C_BPartner_ID = ?";
+
+        PreparedStatement pstmt = DB.prepareStatement(sql, trxName);
+        try {
+            pstmt.setInt(1, C_BPartner_ID);
+            pstmt.setInt(2, C_BPartner_ID);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                credit[0] = rs.getBigDecimal(1);
+                BigDecimal used = rs.getBigDecimal(2);
+                BigDecimal openOrders = rs.getBigDecimal(3);
+                credit[1] = (used != null ? used : Env.ZERO).add(openOrders != null ? openOrders : Env.ZERO);
+            }
+            rs.close();
+        } finally {
+            pstmt.close();
+        }
+        return credit;
+    }
+}
@@ -1,7 +1,20 @@
 package org.adempiere.model;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 import org.compiere.model.MClient;
@@ -11,14 +24,29 @@ import org.compiere.model.PO;
 import org.compiere.model.MOrder;
 import org.compiere.model.MOrderLine;
 import org.compiere.model.MBPartner;
+import org.compiere.model.MLocator;
+import org.compiere.model.MSysConfig;
+import org.compiere.model.MTable;
+import org.compiere.model.DiscountTierEngine;
+import org.compiere.model.ProductSellabilityCache;
+import org.compiere.model.SpecialCustomerSet;
+import org.compiere.model.TaxRateCache;
 import org.compiere.util.CLogger;
 import org.compiere.util.DB;
 import org.compiere.util.Env;
+import org.compiere.util.TimeUtil;
+import org.compiere.util.Trx;
+import org.compiere.util.TrxEventListener;
 
 /**
  * Model Validator Personalizado para ADempiere
  * Implementa validações de negócio para pedidos e linhas
  * 
+ * As validações são regras registradas em createRules() e despachadas por
+ * AD_Table_ID e evento; cada regra de validação pode ser desativada por cliente em
+ * AD_SysConfig (CUSTOM_VALIDATOR_RULE_<Nome> = N), sem reiniciar o servidor. As rotinas de
+ * manutenção (Hook: caches, índice de estoque, resumo de vendas) estão sempre ativas.
+ * 
  * @author Sistema
  * @version 1.0
  */
@@ -30,6 +58,18 @@ public class CustomModelValidator implements ModelValidator {
     /** Client */
     private int m_AD_Client_ID = -1;
     
+    /** Regras de modelChange */
+    private RuleTable m_modelRules;
+    
+    /** Regras de docValidate */
+    private RuleTable m_docRules;
+    
+    /** Produtos por consulta de estoque */
+    private static final int STOCK_QUERY_CHUNK = 500;
+    
+    /** Carga inicial dos caches já iniciada (uma vez por servidor) */
+    private static final AtomicBoolean s_cacheWarmUp = new AtomicBoolean(false);
+    
     /**
      * Constructor
      */
@@ -49,50 +89,61 @@ public class CustomModelValidator implements ModelValidator {
             log.info("Initializing global validator: " + this.toString());
         }
         
-        // Register for Table Events
-        engine.addModelChange("C_Order", this);
-        engine.addModelChange("C_OrderLine", this);
-        engine.addModelChange("C_BPartner", this);
+        // Montar a tabela de despacho e registrar as tabelas com regras
+        List<Rule> rules = createRules();
+        m_modelRules = new RuleTable(rules, false);
+        m_docRules = new RuleTable(rules, true);
+        
+        for (String tableName : m_modelRules.getTableNames()) {
+            engine.addModelChange(tableName, this);
+        }
+        for (String tableName : m_docRules.getTableNames()) {
+            engine.addDocValidate(tableName, this);
+        }
         
-        // Register for Document Events  
-        engine.addDocValidate("C_Order", this);
+        // Carregar os caches dos callouts em segundo plano, sem atrasar a inicialização
+        if (s_cacheWarmUp.compareAndSet(false, true)) {
+            Thread warmUp = new Thread(new Runnable() {
+                public void run() {
+                    ProductSellabilityCache.warmUp();
+                    SpecialCustomerSet.warmUp();
+                    DiscountTierEngine.warmUp();
+                    StockAvailabilityIndex.start();
+                    BPartnerNameIndex.start();
+                }
+            }, "CustomModelValidator-WarmUp");
+            warmUp.setDaemon(true);
+            warmUp.start();
+        }
     }
     
     /**
      * Model Change
      */
     public String modelChange(PO po, int type) throws Exception {
-        log.info(po.get_TableName() + " Type: " + type);
-        
-        // Validações para C_Order
-        if (po.get_TableName().equals("C_Order")) {
-            return validateOrder(po, type);
-        }
-        
-        // Validações para C_OrderLine
-        if (po.get_TableName().equals("C_OrderLine")) {
-            return validateOrderLine(po, type);
-        }
-        
-        // Validações para C_BPartner
-        if (po.get_TableName().equals("C_BPartner")) {
-            return validateBPartner(po, type);
+        if (log.isLoggable(Level.FINE)) {
+            log.fine(po.get_TableName() + " Type: " + type);
         }
         
-        return null;
+        return m_modelRules.dispatch(po, type);
     }
     
     /**
      * Document Validation
      */
     public String docValidate(PO po, int timing) {
-        log.info(po.get_TableName() + " Timing: " + timing);
-        
-        if (po.get_TableName().equals("C_Order")) {
-            return validateOrderDocument(po, timing);
+        if (log.isLoggable(Level.FINE)) {
+            log.fine(po.get_TableName() + " Timing: " + timing);
         }
         
-        return null;
+        try {
+            return m_docRules.dispatch(po, timing);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            log.log(Level.SEVERE, "Erro na validação do documento: " + e.getMessage(), e);
+            return e.getMessage();
+        }
     }
     
     /**
@@ -111,50 +162,196 @@ public class CustomModelValidator implements ModelValidator {
     }
     
     /**
-     * Validação de pedidos
+     * Regras de validação (Rule) e de manutenção (Hook), na ordem de execução de cada evento
      */
-    private String validateOrder(PO po, int type) {
-        MOrder order = (MOrder) po;
-        
-        // Validação BEFORE_NEW
-        if (type == TYPE_BEFORE_NEW) {
-            // Verificar se o parceiro de negócio está ativo
-            if (order.getC_BPartner_ID() > 0) {
-                MBPartner bp = new MBPartner(po.getCtx(), order.getC_BPartner_ID(), po.get_TrxName());
-                if (!bp.isActive()) {
-                    return "Parceiro de negócio não está ativo";
-                }
-                if (!bp.isCustomer()) {
-                    return "Parceiro de negócio não é um cliente";
-                }
+    private List<Rule> createRules() {
+        List<Rule> rules = new ArrayList<Rule>();
+        
+        // Pedidos
+        rules.add(new Rule("OrderPartner", "C_Order", false, TYPE_BEFORE_NEW) {
+            String validate(PO po, int event) {
+                return validateOrderPartner((MOrder) po);
             }
-        }
+        });
+        rules.add(new Rule("OrderChange", "C_Order", false, TYPE_BEFORE_CHANGE) {
+            String validate(PO po, int event) {
+                return validateOrderChange((MOrder) po);
+            }
+        });
+        rules.add(new Rule("OrderDelete", "C_Order", false, TYPE_BEFORE_DELETE) {
+            String validate(PO po, int event) {
+                return validateOrderDelete((MOrder) po);
+            }
+        });
         
-        // Validação BEFORE_CHANGE
-        if (type == TYPE_BEFORE_CHANGE) {
-            // Verificar se o total não excede o limite de crédito
-            if (order.is_ValueChanged("GrandTotal")) {
-                BigDecimal grandTotal = order.getGrandTotal();
-                if (grandTotal != null && grandTotal.compareTo(new BigDecimal("100000")) > 0) {
-                    return "Valor do pedido excede o limite máximo permitido (R$ 100.000,00)";
-                }
+        // Linhas de pedido
+        rules.add(new Rule("OrderLine", "C_OrderLine", false, TYPE_BEFORE_NEW, TYPE_BEFORE_CHANGE) {
+            String validate(PO po, int event) {
+                return validateOrderLine((MOrderLine) po);
+            }
+        });
+        rules.add(new Hook("OrderLineCache", "C_OrderLine", false, TYPE_AFTER_NEW, TYPE_AFTER_CHANGE, TYPE_AFTER_DELETE) {
+            void run(PO po, int event) {
+                TrxPOCache.removeLines(po.get_TrxName(), ((MOrderLine) po).getC_Order_ID());
+            }
+        });
+        
+        // Parceiros de negócio
+        rules.add(new Rule("BPartnerName", "C_BPartner", false, TYPE_BEFORE_NEW, TYPE_BEFORE_CHANGE) {
+            String validate(PO po, int event) {
+                return validateBPartnerName((MBPartner) po, event);
+            }
+        });
+        rules.add(new Hook("BPartnerCache", "C_BPartner", false, TYPE_AFTER_NEW, TYPE_AFTER_CHANGE, TYPE_AFTER_DELETE) {
+            void run(PO po, int event) {
+                onBPartnerChange((MBPartner) po, event);
             }
+        });
+        
+        // Caches dos callouts
+        rules.add(new Hook("TaxCache", "C_Tax", false, TYPE_AFTER_NEW, TYPE_AFTER_CHANGE, TYPE_AFTER_DELETE) {
+            void run(PO po, int event) {
+                onTaxChange(po);
+            }
+        });
+        rules.add(new Hook("ProductCache", "M_Product", false, TYPE_AFTER_NEW, TYPE_AFTER_CHANGE, TYPE_AFTER_DELETE) {
+            void run(PO po, int event) {
+                onProductChange(po);
+            }
+        });
+        rules.add(new Hook("SysConfigCache", "AD_SysConfig", false, TYPE_AFTER_NEW, TYPE_AFTER_CHANGE, TYPE_AFTER_DELETE) {
+            void run(PO po, int event) {
+                onSysConfigChange(po);
+            }
+        });
+        rules.add(new Hook("DiscountTierCache", "Custom_DiscountTier", false, 
+                           TYPE_AFTER_NEW, TYPE_AFTER_CHANGE, TYPE_AFTER_DELETE) {
+            void run(PO po, int event) {
+                onDiscountTierChange(po);
+            }
+        });
+        
+        // Índice de estoque usado na validação de estoque
+        rules.add(new Hook("StockIndex", "M_Storage", false, TYPE_AFTER_NEW, TYPE_AFTER_CHANGE, TYPE_AFTER_DELETE) {
+            void run(PO po, int event) {
+                onStorageChange(po, event);
+            }
+        });
+        
+        // Documento de pedido
+        rules.add(new Rule("OrderHasLines", "C_Order", true, TIMING_BEFORE_COMPLETE) {
+            String validate(PO po, int event) {
+                return validateOrderHasLines((MOrder) po);
+            }
+        });
+        rules.add(new Rule("OrderCreditLimit", "C_Order", true, TIMING_BEFORE_COMPLETE) {
+            String validate(PO po, int event) throws Exception {
+                return validateOrderCreditLimit((MOrder) po);
+            }
+        });
+        rules.add(new Rule("OrderStock", "C_Order", true, TIMING_BEFORE_COMPLETE) {
+            String validate(PO po, int event) {
+                return validateOrderStock((MOrder) po);
+            }
+        });
+        rules.add(new Hook("SalesSummary", "C_Order", true, 
+                           TIMING_AFTER_COMPLETE, TIMING_AFTER_VOID, TIMING_AFTER_REACTIVATE) {
+            void run(PO po, int event) {
+                onOrderDocumentAction((MOrder) po, event);
+            }
+        });
+        
+        return rules;
+    }
+    
+    /**
+     * Invalidar um cache imediatamente e novamente após o commit da transação do PO
+     * A segunda invalidação descarta valores recarregados por outras sessões antes
+     * do commit, quando a alteração ainda não era visível
+     * 
+     * @param po Registro alterado
+     * @param reset Invalidação
+     */
+    private void resetAfterCommit(PO po, Runnable reset) {
+        reset.run();
+        runAtTrxEnd(po, reset, null);
+    }
+    
+    /**
+     * Executar uma ação ao fim da transação do PO: commitAction após o commit confirmado,
+     * rollbackAction após rollback, commit com falha ou close sem commit; apenas a primeira
+     * é executada, uma única vez
+     * Sem transação, o registro já está gravado e commitAction é executada imediatamente
+     * 
+     * @param po Registro alterado
+     * @param commitAction Ação após o commit
+     * @param rollbackAction Ação se a transação terminar sem commit (null = nenhuma)
+     */
+    private void runAtTrxEnd(PO po, final Runnable commitAction, final Runnable rollbackAction) {
+        Trx trx = po.get_TrxName() != null ? Trx.get(po.get_TrxName(), false) : null;
+        if (trx == null) {
+            commitAction.run();
+            return;
+        }
+        
+        trx.addTrxEventListener(new TrxEventListener() {
+            private final AtomicBoolean done = new AtomicBoolean(false);
             
-            // Verificar alteração de data
-            if (order.is_ValueChanged("DateOrdered")) {
-                Timestamp dateOrdered = order.getDateOrdered();
-                Timestamp today = new Timestamp(System.currentTimeMillis());
-                if (dateOrdered.before(today)) {
-                    return "Data do pedido não pode ser anterior à data atual";
+            public void afterCommit(Trx trx, boolean success) {
+                end(success ? commitAction : rollbackAction);
+            }
+            public void afterRollback(Trx trx, boolean success) {
+                end(rollbackAction);
+            }
+            public void afterClose(Trx trx) {
+                end(rollbackAction);
+            }
+            private void end(Runnable action) {
+                if (done.compareAndSet(false, true) && action != null) {
+                    action.run();
                 }
             }
+        });
+    }
+    
+    /**
+     * Alteração de M_Storage: aplicar a variação de QtyOnHand ao índice de estoque após o commit
+     */
+    private void onStorageChange(PO po, int type) {
+        if (!StockAvailabilityIndex.isTracking()) {
+            return;
+        }
+        
+        BigDecimal newQty = type == TYPE_AFTER_DELETE ? Env.ZERO : (BigDecimal) po.get_Value("QtyOnHand");
+        BigDecimal oldQty = type == TYPE_AFTER_NEW ? Env.ZERO 
+                            : (BigDecimal) (type == TYPE_AFTER_DELETE ? po.get_Value("QtyOnHand") 
+                                                                       : po.get_ValueOld("QtyOnHand"));
+        final BigDecimal delta = (newQty != null ? newQty : Env.ZERO).subtract(oldQty != null ? oldQty : Env.ZERO);
+        if (delta.signum() == 0) {
+            return;
         }
         
-        // Validação BEFORE_DELETE
-        if (type == TYPE_BEFORE_DELETE) {
-            // Não permitir deletar pedidos processados
-            if (order.isProcessed()) {
-                return "Não é possível deletar pedidos já processados";
+        final int productId = po.get_ValueAsInt("M_Product_ID");
+        final int warehouseId = MLocator.get(po.getCtx(), po.get_ValueAsInt("M_Locator_ID")).getM_Warehouse_ID();
+        runAtTrxEnd(po, new Runnable() {
+            public void run() {
+                StockAvailabilityIndex.add(productId, warehouseId, delta);
+            }
+        }, null);
+    }
+    
+    /**
+     * Validação de pedido novo: parceiro ativo e cliente
+     */
+    private String validateOrderPartner(MOrder order) {
+        // Verificar se o parceiro de negócio está ativo
+        if (order.getC_BPartner_ID() > 0) {
+            MBPartner bp = TrxPOCache.getBPartner(order.getCtx(), order.getC_BPartner_ID(), order.get_TrxName());
+            if (!bp.isActive()) {
+                return "Parceiro de negócio não está ativo";
+            }
+            if (!bp.isCustomer()) {
+                return "Parceiro de negócio não é um cliente";
             }
         }
         
@@ -162,29 +359,87 @@ public class CustomModelValidator implements ModelValidator {
     }
     
     /**
-     * Validação de linhas de pedido
+     * Validação de alteração de pedido: valor máximo e data
      */
-    private String validateOrderLine(PO po, int type) {
-        MOrderLine orderLine = (MOrderLine) po;
+    private String validateOrderChange(MOrder order) {
+        // Verificar se o total não excede o limite de crédito
+        if (order.is_ValueChanged("GrandTotal")) {
+            BigDecimal grandTotal = order.getGrandTotal();
+            if (grandTotal != null && grandTotal.compareTo(new BigDecimal("100000")) > 0) {
+                return "Valor do pedido excede o limite máximo permitido (R$ 100.000,00)";
+            }
+        }
         
-        // Validação BEFORE_NEW e BEFORE_CHANGE
-        if (type == TYPE_BEFORE_NEW || type == TYPE_BEFORE_CHANGE) {
-            // Verificar quantidade mínima
-            BigDecimal qty = orderLine.getQtyEntered();
-            if (qty != null && qty.compareTo(Env.ZERO) <= 0) {
-                return "Quantidade deve ser maior que zero";
+        // Verificar alteração de data
+        if (order.is_ValueChanged("DateOrdered")) {
+            Timestamp dateOrdered = order.getDateOrdered();
+            Timestamp today = new Timestamp(System.currentTimeMillis());
+            if (dateOrdered.before(today)) {
+                return "Data do pedido não pode ser anterior à data atual";
             }
-            
-            // Verificar preço
-            BigDecimal price = orderLine.getPriceEntered();
-            if (price != null && price.compareTo(Env.ZERO) < 0) {
-                return "Preço não pode ser negativo";
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Validação de exclusão de pedido
+     */
+    private String validateOrderDelete(MOrder order) {
+        // Não permitir deletar pedidos processados
+        if (order.isProcessed()) {
+            return "Não é possível deletar pedidos já processados";
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Validação de linhas de pedido (novas e alteradas)
+     */
+    private String validateOrderLine(MOrderLine orderLine) {
+        // Verificar quantidade mínima
+        BigDecimal qty = orderLine.getQtyEntered();
+        if (qty != null && qty.compareTo(Env.ZERO) <= 0) {
+            return "Quantidade deve ser maior que zero";
+        }
+        
+        // Verificar preço
+        BigDecimal price = orderLine.getPriceEntered();
+        if (price != null && price.compareTo(Env.ZERO) < 0) {
+            return "Preço não pode ser negativo";
+        }
+        
+        // Verificar desconto máximo
+        BigDecimal discount = orderLine.getDiscount();
+        if (discount != null && discount.compareTo(new BigDecimal("50")) > 0) {
+            return "Desconto não pode ser superior a 50%";
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Validação de parceiros de negócio (novos e alterados)
+     */
+    private String validateBPartnerName(MBPartner bp, int type) {
+        // Verificar se o nome não está vazio
+        String name = bp.getName();
+        if (name == null || name.trim().length() == 0) {
+            return "Nome do parceiro de negócio é obrigatório";
+        }
+        
+        // Verificar duplicação de nome (normalizado, se o índice de nomes estiver ativo)
+        if (type == TYPE_BEFORE_NEW || bp.is_ValueChanged("Name")) {
+            boolean duplicated;
+            if (BPartnerNameIndex.isEnabled()) {
+                duplicated = BPartnerNameIndex.exists(name, bp.getC_BPartner_ID(), bp.get_TrxName());
+            } else {
+                String sql = "SELECT COUNT(*) FROM C_BPartner WHERE Name = ? AND C_BPartner_ID != ?";
+                duplicated = DB.getSQLValue(bp.get_TrxName(), sql, name, bp.getC_BPartner_ID()) > 0;
             }
-            
-            // Verificar desconto máximo
-            BigDecimal discount = orderLine.getDiscount();
-            if (discount != null && discount.compareTo(new BigDecimal("50")) > 0) {
-                return "Desconto não pode ser superior a 50%";
+            if (duplicated) {
+                return "Já existe um parceiro de negócio com este nome";
             }
         }
         
@@ -192,103 +447,519 @@ public class CustomModelValidator implements ModelValidator {
     }
     
     /**
-     * Validação de parceiros de negócio
+     * Alteração de parceiro: atualizar os caches dos callouts
      */
-    private String validateBPartner(PO po, int type) {
-        MBPartner bp = (MBPartner) po;
+    private void onBPartnerChange(MBPartner bp, int type) {
+        TrxPOCache.remove(bp.get_TrxName(), "C_BPartner", bp.getC_BPartner_ID());
+        
+        // Nome usado na validação de nome duplicado
+        if (type == TYPE_AFTER_NEW || (type == TYPE_AFTER_CHANGE && bp.is_ValueChanged("Name"))) {
+            BPartnerNameIndex.add(bp.getName());
+        }
+        
+        // Grupo do parceiro usado nas faixas de desconto
+        if ((type == TYPE_AFTER_CHANGE && bp.is_ValueChanged("C_BP_Group_ID")) || type == TYPE_AFTER_DELETE) {
+            final int partnerId = bp.getC_BPartner_ID();
+            resetAfterCommit(bp, new Runnable() {
+                public void run() {
+                    DiscountTierEngine.removeBPGroup(partnerId);
+                }
+            });
+        }
         
-        // Validação BEFORE_NEW e BEFORE_CHANGE
-        if (type == TYPE_BEFORE_NEW || type == TYPE_BEFORE_CHANGE) {
-            // Verificar se o nome não está vazio
-            String name = bp.getName();
-            if (name == null || name.trim().length() == 0) {
-                return "Nome do parceiro de negócio é obrigatório";
+        // Atualizar o conjunto de clientes especiais usado pelo CalloutCustom.calculateDiscount
+        if (type == TYPE_AFTER_NEW || type == TYPE_AFTER_DELETE
+            || (type == TYPE_AFTER_CHANGE && (bp.is_ValueChanged("SO_CreditLimit") || bp.is_ValueChanged("IsCustomer")))) {
+            final MBPartner partner = bp;
+            final boolean deleted = type == TYPE_AFTER_DELETE;
+            runAtTrxEnd(bp, new Runnable() {
+                public void run() {
+                    SpecialCustomerSet.update(partner, deleted);
+                }
+            }, null);
+        }
+
+    }
+    
+    /**
+     * Alteração de C_Tax: descartar o cache de taxas usado pelo CalloutCustom
+     */
+    private void onTaxChange(PO po) {
+        resetAfterCommit(po, new Runnable() {
+            public void run() {
+                TaxRateCache.reset();
             }
-            
-            // Verificar duplicação de nome
-            if (type == TYPE_BEFORE_NEW || bp.is_ValueChanged("Name")) {
-                String sql = "SELECT COUNT(*) FROM C_BPartner WHERE Name = ? AND C_BPartner_ID != ?";
-                int count = DB.getSQLValue(po.get_TrxName(), sql, name, bp.getC_BPartner_ID());
-                if (count > 0) {
-                    return "Já existe um parceiro de negócio com este nome";
+        });
+    }
+    
+    /**
+     * Alteração de M_Product: remover o produto do cache usado pelo CalloutCustom.validateProduct
+     */
+    private void onProductChange(PO po) {
+        final int productId = po.get_ID();
+        resetAfterCommit(po, new Runnable() {
+            public void run() {
+                ProductSellabilityCache.remove(productId);
+            }
+        });
+    }
+    
+    /**
+     * Alteração de configuração: recarregar os caches que dependem dela
+     */
+    private void onSysConfigChange(PO po) {
+        Object name = po.get_Value("Name");
+        if (SpecialCustomerSet.SYSCONFIG_CreditLimit.equals(name)) {
+            resetAfterCommit(po, new Runnable() {
+                public void run() {
+                    SpecialCustomerSet.reset();
                 }
+            });
+        } else if (DiscountTierEngine.SYSCONFIG_SpecialBonus.equals(name)) {
+            resetAfterCommit(po, new Runnable() {
+                public void run() {
+                    DiscountTierEngine.reset();
+                }
+            });
+        }
+    }
+    
+    /**
+     * Alteração de Custom_DiscountTier: recompilar as faixas de desconto
+     */
+    private void onDiscountTierChange(PO po) {
+        resetAfterCommit(po, new Runnable() {
+            public void run() {
+                DiscountTierEngine.reset();
             }
+        });
+    }
+    
+    /**
+     * Validação de documento de pedido: pelo menos uma linha
+     */
+    private String validateOrderHasLines(MOrder order) {
+        MOrderLine[] lines = TrxPOCache.getLines(order);
+        if (lines == null || lines.length == 0) {
+            return "Pedido deve ter pelo menos uma linha";
         }
         
         return null;
     }
     
     /**
-     * Validação de documento de pedido
+     * Validação de documento de pedido: limite de crédito do cliente
+     * O crédito usado (faturas e pedidos completados não faturados) é lido na transação do pedido;
+     * o valor do pedido é reservado no CreditReservationLedger até o fim da transação, para que
+     * pedidos do mesmo parceiro completados ao mesmo tempo não ultrapassem juntos o limite
      */
-    private String validateOrderDocument(PO po, int timing) {
-        MOrder order = (MOrder) po;
+    private String validateOrderCreditLimit(MOrder order) throws Exception {
+        final CreditReservationLedger.Reservation reservation = 
+            CreditReservationLedger.reserve(order.getC_BPartner_ID(), order.getGrandTotal(), order.get_TrxName());
         
-        // Validação antes de completar
-        if (timing == TIMING_BEFORE_COMPLETE) {
-            // Verificar se tem linhas
-            MOrderLine[] lines = order.getLines();
-            if (lines == null || lines.length == 0) {
-                return "Pedido deve ter pelo menos uma linha";
+        if (!reservation.isOK()) {
+            return "Pedido excede o limite de crédito do cliente. " +
+                   "Limite: " + reservation.getCreditLimit() + ", Usado: " + reservation.getCreditUsed() + 
+                   ", Novo total: " + reservation.getNewCreditUsed();
+        }
+        
+        // Liberada ao fim da transação (commit, rollback ou close): após o commit o pedido completado
+        // conta pelo banco; sem transação, a conclusão não concorre com outras e a reserva é
+        // liberada imediatamente
+        Runnable release = new Runnable() {
+            public void run() {
+                reservation.release();
             }
-            
-            // Verificar limite de crédito do cliente
-            MBPartner bp = new MBPartner(po.getCtx(), order.getC_BPartner_ID(), po.get_TrxName());
-            BigDecimal creditLimit = bp.getSO_CreditLimit();
-            BigDecimal creditUsed = bp.getSO_CreditUsed();
-            BigDecimal grandTotal = order.getGrandTotal();
-            
-            if (creditLimit != null && creditLimit.compareTo(Env.ZERO) > 0) {
-                BigDecimal newCreditUsed = creditUsed.add(grandTotal);
-                if (newCreditUsed.compareTo(creditLimit) > 0) {
-                    return "Pedido excede o limite de crédito do cliente. " +
-                           "Limite: " + creditLimit + ", Usado: " + creditUsed + 
-                           ", Novo total: " + newCreditUsed;
+        };
+        runAtTrxEnd(order, release, release);
+        return null;
+    }
+    
+    /**
+     * Validação de documento de pedido: estoque dos produtos
+     */
+    private String validateOrderStock(MOrder order) {
+        return validateStock(TrxPOCache.getLines(order), order.get_TrxName());
+    }
+    
+    /**
+     * Ação no documento de pedido: atualizar o resumo de vendas (Custom_SalesSummary)
+     * usado pelo relatório de vendas do CustomProcess
+     * Nos eventos AFTER o DocStatus ainda é o anterior à ação
+     * Close (CO -> CL) não altera o resumo: pedidos fechados continuam no relatório
+     * Ativo apenas com CUSTOM_SALES_SUMMARY = Y em AD_SysConfig (padrão N), depois de criada
+     * a tabela: sem ela, a gravação falharia e impediria a conclusão dos pedidos
+     */
+    private void onOrderDocumentAction(MOrder order, int timing) {
+        if (!order.isSOTrx() || !isSalesSummaryEnabled(order.getAD_Client_ID())) {
+            return;
+        }
+        
+        String docStatus = order.getDocStatus();
+        boolean wasCounted = MOrder.DOCSTATUS_Completed.equals(docStatus) 
+                             || MOrder.DOCSTATUS_Closed.equals(docStatus);
+        
+        if (timing == TIMING_AFTER_COMPLETE && !wasCounted) {
+            updateSalesSummary(order, 1);
+        } else if ((timing == TIMING_AFTER_VOID || timing == TIMING_AFTER_REACTIVATE) && wasCounted) {
+            updateSalesSummary(order, -1);
+        }
+    }
+    
+    /**
+     * Resumo de vendas mantido pelo validator (CUSTOM_SALES_SUMMARY, lido do cache do MSysConfig)
+     * 
+     * @param AD_Client_ID Cliente
+     */
+    private static boolean isSalesSummaryEnabled(int AD_Client_ID) {
+        return MSysConfig.getBooleanValue("CUSTOM_SALES_SUMMARY", false, AD_Client_ID);
+    }
+    
+    /**
+     * Aplicar ao resumo de vendas a variação de um pedido
+     * Executado na transação do documento, confirmado junto com a ação
+     * 
+     * @param order Pedido
+     * @param sign 1 para incluir, -1 para remover
+     */
+    private void updateSalesSummary(MOrder order, int sign) {
+        BigDecimal grandTotal = order.getGrandTotal();
+        if (grandTotal == null) {
+            grandTotal = Env.ZERO;
+        }
+        if (sign < 0) {
+            grandTotal = grandTotal.negate();
+        }
+        
+        String sql = "INSERT INTO Custom_SalesSummary (AD_Client_ID, C_BPartner_ID, DateOrdered, " +
+                     "GrandTotal, OrderCount, Updated) VALUES (?, ?, ?, ?, ?, NOW()) " +
+                     "ON CONFLICT (AD_Client_ID, C_BPartner_ID, DateOrdered) DO UPDATE SET " +
+                     "GrandTotal = Custom_SalesSummary.GrandTotal + EXCLUDED.GrandTotal, " +
+                     "OrderCount = Custom_SalesSummary.OrderCount + EXCLUDED.OrderCount, " +
+                     "Updated = NOW()";
+        DB.executeUpdateEx(sql, new Object[] {order.getAD_Client_ID(), order.getC_BPartner_ID(), 
+                                              TimeUtil.getDay(order.getDateOrdered()), grandTotal, sign},
+                           order.get_TrxName());
+    }
+    
+    /**
+     * Validação de estoque de todas as linhas do pedido
+     * Quantidades do mesmo produto e armazém são somadas; o estoque de todos os
+     * localizadores é lido do índice em memória, se ativo, ou em uma consulta por
+     * bloco de produtos; todas as faltas são informadas de uma vez
+     * 
+     * @param lines Linhas do pedido
+     * @param trxName Transação
+     * @return Mensagem com as faltas ou null se OK
+     */
+    private String validateStock(MOrderLine[] lines, String trxName) {
+        // Quantidade pedida por produto e armazém (chave: M_Product_ID << 32 | M_Warehouse_ID)
+        Map<Long, BigDecimal> required = new LinkedHashMap<Long, BigDecimal>();
+        Map<Long, MOrderLine> firstLine = new HashMap<Long, MOrderLine>();
+        Set<Integer> productIds = new LinkedHashSet<Integer>();
+        Set<Integer> warehouseIds = new HashSet<Integer>();
+        
+        for (MOrderLine line : lines) {
+            if (line.getM_Product_ID() <= 0 || line.getQtyEntered() == null) {
+                continue;
+            }
+            long key = stockKey(line.getM_Product_ID(), line.getM_Warehouse_ID());
+            BigDecimal qty = required.get(key);
+            required.put(key, qty == null ? line.getQtyEntered() : qty.add(line.getQtyEntered()));
+            if (!firstLine.containsKey(key)) {
+                firstLine.put(key, line);
+            }
+            productIds.add(line.getM_Product_ID());
+            warehouseIds.add(line.getM_Warehouse_ID());
+        }
+        
+        if (required.isEmpty()) {
+            return null;
+        }
+        
+        Map<Long, BigDecimal> onHand = new HashMap<Long, BigDecimal>();
+        if (StockAvailabilityIndex.isAvailable()) {
+            // Estoque lido do índice em memória (CUSTOM_STOCK_INDEX)
+            for (Long key : required.keySet()) {
+                onHand.put(key, StockAvailabilityIndex.getQtyOnHand((int) (key >>> 32), (int) key.longValue()));
+            }
+        } else {
+            try {
+                List<Integer> products = new ArrayList<Integer>(productIds);
+                for (int from = 0; from < products.size(); from += STOCK_QUERY_CHUNK) {
+                    loadQtyOnHand(products.subList(from, Math.min(products.size(), from + STOCK_QUERY_CHUNK)),
+                                  warehouseIds, onHand, trxName);
                 }
+            } catch (Exception e) {
+                log.log(Level.SEVERE, "Erro ao validar estoque: " + e.getMessage(), e);
+                return "Erro ao validar estoque: " + e.getMessage();
+            }
+        }
+        
+        StringBuilder shortages = new StringBuilder();
+        for (Map.Entry<Long, BigDecimal> entry : required.entrySet()) {
+            BigDecimal qtyOnHand = onHand.get(entry.getKey());
+            if (qtyOnHand == null) {
+                qtyOnHand = Env.ZERO;
             }
             
-            // Verificar estoque para produtos
-            for (MOrderLine line : lines) {
-                if (line.getM_Product_ID() > 0) {
-                    String stockValidation = validateStock(line);
-                    if (stockValidation != null) {
-                        return stockValidation;
-                    }
+            if (entry.getValue().compareTo(qtyOnHand) > 0) {
+                if (shortages.length() > 0) {
+                    shortages.append("\n");
                 }
+                shortages.append("Quantidade solicitada (").append(entry.getValue())
+                         .append(") excede o estoque disponível (").append(qtyOnHand).append(") ")
+                         .append("para o produto: ").append(firstLine.get(entry.getKey()).getProduct().getName());
             }
         }
         
-        return null;
+        return shortages.length() > 0 ? shortages.toString() : null;
     }
     
     /**
-     * Validação de estoque
+     * Somar QtyOnHand de todos os localizadores por produto e armazém
      */
-    private String validateStock(MOrderLine line) {
+    private void loadQtyOnHand(List<Integer> productIds, Set<Integer> warehouseIds, 
+                               Map<Long, BigDecimal> onHand, String trxName) throws Exception {
+        StringBuilder sql = new StringBuilder("SELECT s.M_Product_ID, l.M_Warehouse_ID, SUM(s.QtyOnHand) ")
+            .append("FROM M_Storage s ")
+            .append("INNER JOIN M_Locator l ON (s.M_Locator_ID = l.M_Locator_ID) ")
+            .append("WHERE s.M_Product_ID IN (");
+        appendPlaceholders(sql, productIds.size());
+        sql.append(") AND l.M_Warehouse_ID IN (");
+        appendPlaceholders(sql, warehouseIds.size());
+        sql.append(") GROUP BY s.M_Product_ID, l.M_Warehouse_ID");
+        
+        PreparedStatement pstmt = DB.prepareStatement(sql.toString(), trxName);
         try {
-            String sql = "SELECT QtyOnHand FROM M_Storage " +
-                        "WHERE M_Product_ID = ? AND M_Locator_ID IN " +
-                        "(SELECT M_Locator_ID FROM M_Locator WHERE M_Warehouse_ID = ?)";
+            int index = 1;
+            for (Integer productId : productIds) {
+                pstmt.setInt(index++, productId);
+            }
+            for (Integer warehouseId : warehouseIds) {
+                pstmt.setInt(index++, warehouseId);
+            }
             
-            BigDecimal qtyOnHand = DB.getSQLValueBD(line.get_TrxName(), sql, 
-                                                   line.getM_Product_ID(), 
-                                                   line.getM_Warehouse_ID());
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                onHand.put(stockKey(rs.getInt(1), rs.getInt(2)), rs.getBigDecimal(3));
+            }
+            rs.close();
+        } finally {
+            pstmt.close();
+        }
+    }
+    
+    private static long stockKey(int M_Product_ID, int M_Warehouse_ID) {
+        return ((long) M_Product_ID << 32) | (M_Warehouse_ID & 0xFFFFFFFFL);
+    }
+    
+    private static void appendPlaceholders(StringBuilder sql, int count) {
+        for (int i = 0; i < count; i++) {
+            sql.append(i > 0 ? ", ?" : "?");
+        }
+    }
+    
+    /**
+     * Regra de validação
+     */
+    private static abstract class Rule {
+        
+        /** Nome (CUSTOM_VALIDATOR_RULE_<Nome> em AD_SysConfig) */
+        final String name;
+        
+        /** Tabela */
+        final String tableName;
+        
+        /** true = docValidate (TIMING_), false = modelChange (TYPE_) */
+        final boolean document;
+        
+        /** Eventos tratados */
+        final int[] events;
+        
+        /** Chave de ativação em AD_SysConfig */
+        private final String configName;
+        
+        Rule(String name, String tableName, boolean document, int... events) {
+            this.name = name;
+            this.tableName = tableName;
+            this.document = document;
+            this.events = events;
+            this.configName = "CUSTOM_VALIDATOR_RULE_" + name;
+        }
+        
+        /**
+         * Regra ativa para o cliente (padrão: ativa)
+         * Lida do cache do MSysConfig: a alteração vale sem reiniciar o servidor
+         */
+        boolean isEnabled(int AD_Client_ID) {
+            return MSysConfig.getBooleanValue(configName, true, AD_Client_ID);
+        }
+        
+        /**
+         * Executar a regra
+         * 
+         * @param po Registro
+         * @param event Evento (TYPE_ ou TIMING_)
+         * @return Mensagem de erro ou null se OK
+         */
+        abstract String validate(PO po, int event) throws Exception;
+    }
+    
+    /**
+     * Manutenção executada após a gravação (caches, índice de estoque, resumo de vendas)
+     * Sempre ativa: desativá-la deixaria caches e resumos desatualizados sem aviso
+     */
+    private static abstract class Hook extends Rule {
+        
+        Hook(String name, String tableName, boolean document, int... events) {
+            super(name, tableName, document, events);
+        }
+        
+        boolean isEnabled(int AD_Client_ID) {
+            return true;
+        }
+        
+        final String validate(PO po, int event) throws Exception {
+            run(po, event);
+            return null;
+        }
+        
+        /**
+         * Executar a manutenção
+         * 
+         * @param po Registro
+         * @param event Evento (TYPE_ ou TIMING_)
+         */
+        abstract void run(PO po, int event) throws Exception;
+    }
+    
+    /**
+     * Tabela de despacho das regras
+     * AD_Table_ID em vetor ordenado (busca binária); para cada tabela, as regras
+     * de cada evento em um vetor indexado pelo número do evento
+     */
+    private static class RuleTable {
+        
+        /** Tabelas com regras, ordenadas */
+        private final int[] tableIds;
+        
+        /** Nomes das tabelas, na mesma ordem */
+        private final String[] tableNames;
+        
+        /** Regras por tabela e evento: rules[tabela][evento] */
+        private final Rule[][][] rules;
+        
+        /**
+         * Montar a tabela de despacho
+         * 
+         * @param all Regras
+         * @param document true = regras de docValidate, false = de modelChange
+         */
+        RuleTable(List<Rule> all, boolean document) {
+            Map<Integer, List<Rule>> byTable = new TreeMap<Integer, List<Rule>>();
+            Map<Integer, String> names = new TreeMap<Integer, String>();
             
-            if (qtyOnHand == null) {
-                qtyOnHand = Env.ZERO;
+            for (Rule rule : all) {
+                if (rule.document != document) {
+                    continue;
+                }
+                int AD_Table_ID = MTable.getTable_ID(rule.tableName);
+                if (AD_Table_ID <= 0) {
+                    log.warning("Tabela não encontrada: " + rule.tableName + " (regra " + rule.name + ")");
+                    continue;
+                }
+                List<Rule> tableRules = byTable.get(AD_Table_ID);
+                if (tableRules == null) {
+                    tableRules = new ArrayList<Rule>();
+                    byTable.put(AD_Table_ID, tableRules);
+                    names.put(AD_Table_ID, rule.tableName);
+                }
+                tableRules.add(rule);
             }
             
-            if (line.getQtyEntered().compareTo(qtyOnHand) > 0) {
-                return "Quantidade solicitada (" + line.getQtyEntered() + 
-                       ") excede o estoque disponível (" + qtyOnHand + ") " +
-                       "para o produto: " + line.getProduct().getName();
+            tableIds = new int[byTable.size()];
+            tableNames = new String[byTable.size()];
+            rules = new Rule[byTable.size()][][];
+            
+            int index = 0;
+            for (Map.Entry<Integer, List<Rule>> entry : byTable.entrySet()) {
+                tableIds[index] = entry.getKey();
+                tableNames[index] = names.get(entry.getKey());
+                rules[index] = byEvent(entry.getValue());
+                index++;
+            }
+        }
+        
+        /**
+         * Agrupar as regras de uma tabela por evento, mantendo a ordem de registro
+         */
+        private static Rule[][] byEvent(List<Rule> tableRules) {
+            int maxEvent = 0;
+            for (Rule rule : tableRules) {
+                for (int event : rule.events) {
+                    maxEvent = Math.max(maxEvent, event);
+                }
             }
             
-        } catch (Exception e) {
-            log.log(Level.SEVERE, "Erro ao validar estoque: " + e.getMessage(), e);
-            return "Erro ao validar estoque: " + e.getMessage();
+            Rule[][] result = new Rule[maxEvent + 1][];
+            for (int event = 0; event <= maxEvent; event++) {
+                List<Rule> eventRules = new ArrayList<Rule>();
+                for (Rule rule : tableRules) {
+                    for (int ruleEvent : rule.events) {
+                        if (ruleEvent == event) {
+                            eventRules.add(rule);
+                            break;
+                        }
+                    }
+                }
+                if (!eventRules.isEmpty()) {
+                    result[event] = eventRules.toArray(new Rule[eventRules.size()]);
+                }
+            }
+            return result;
         }
         
-        return null;
+        /**
+         * @return Tabelas com regras
+         */
+        String[] getTableNames() {
+            return tableNames;
+        }
+        
+        /**
+         * Executar as regras ativas do evento, até a primeira que rejeitar
+         * 
+         * @param po Registro
+         * @param event Evento (TYPE_ ou TIMING_)
+         * @return Mensagem de erro ou null se OK
+         */
+        String dispatch(PO po, int event) throws Exception {
+            int index = Arrays.binarySearch(tableIds, po.get_Table_ID());
+            if (index < 0) {
+                return null;
+            }
+            
+            Rule[][] tableRules = rules[index];
+            if (event < 0 || event >= tableRules.length || tableRules[event] == null) {
+                return null;
+            }
+            
+            for (Rule rule : tableRules[event]) {
+                if (!rule.isEnabled(po.getAD_Client_ID())) {
+                    continue;
+                }
+                long start = ValidationEventLog.start();
+                String error = rule.validate(po, event);
+                ValidationEventLog.publish(rule.name, po, event, start, error);
+                if (error != null) {
+                    if (log.isLoggable(Level.FINE)) {
+                        log.fine(rule.name + " rejeitou " + po.get_TableName() + " ID=" + po.get_ID() + ": " + error);
+                    }
+                    return error;
+                }
+            }
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
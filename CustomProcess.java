@@ -1,18 +1,36 @@
 package org.compiere.process;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 import org.compiere.model.MOrder;
 import org.compiere.model.MOrderLine;
 import org.compiere.model.MProduct;
+import org.compiere.model.MSysConfig;
 import org.compiere.process.ProcessInfoParameter;
 import org.compiere.process.SvrProcess;
 import org.compiere.util.DB;
 import org.compiere.util.Env;
+import org.compiere.util.TimeUtil;
+import org.compiere.util.Trx;
 
 /**
  * Processo Personalizado para ADempiere
@@ -30,6 +48,324 @@ public class CustomProcess extends SvrProcess {
     private Timestamp p_DateFrom = null;
     private Timestamp p_DateTo = null;
     private boolean p_IsActive = true;
+    private int p_BatchSize = 0; // 0 = sem batch, uma única transação
+    private String p_LogMode = ProcessLogSink.MODE_Detail; // D=Detalhe, S=Resumo, A=Amostragem, B=Arquivo
+    private int p_LogSampleRate = 100;
+    
+    /** Log de detalhe da atualização de preços */
+    private ProcessLogSink m_priceLog = null;
+    private int p_Parallelism = 1; // > 1 = partições por versão de lista de preço
+    private int p_FetchSize = 0; // > 0 = leitura em streaming, paginada por chave
+    private boolean p_IsResume = false; // Y = continuar do último checkpoint
+    private boolean p_IsPreview = false; // Y = apenas calcular o impacto, sem gravar
+    private String p_Action = ACTION_PriceUpdate;
+    private boolean p_IsUseSalesSummary = false; // Y = relatório lido de Custom_SalesSummary
+    private int p_TopN = 0; // > 0 = relatório apenas com os N maiores clientes
+    private boolean p_IsExportCsv = false; // Y = relatório completo anexado em CSV
+    
+    /** Ações do processo */
+    private static final String ACTION_PriceUpdate = "U";
+    private static final String ACTION_SalesReport = "R";
+    private static final String ACTION_RebuildSalesSummary = "S";
+    
+    /** Tamanho de página padrão da leitura por chave */
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    
+    /** Ordem da chave dos checkpoints; checkpoints gravados em outra ordem não são continuados */
+    private static final String KEY_ORDER = "VP";
+    
+    /** Checkpoints da execução anterior por partição (0 = execução sequencial) */
+    private Map<Integer, PriceCheckpoint> m_checkpoints = new HashMap<Integer, PriceCheckpoint>();
+    
+    /**
+     * Contadores de uma execução de atualização de preços
+     */
+    private static class PriceUpdateResult {
+        int products = 0;
+        int prices = 0;
+        int partitions = 0;
+        List<String> failures = new ArrayList<String>();
+        // Já confirmados nos lotes, mantidos se a transação falhar depois
+        int committedProducts = 0;
+        int committedPrices = 0;
+        
+        /**
+         * Registrar o commit de um lote: os contadores até aqui não serão mais desfeitos
+         */
+        void commit() {
+            committedProducts = products;
+            committedPrices = prices;
+        }
+    }
+    
+    /**
+     * Última chave confirmada de uma partição da atualização de preços
+     */
+    private static class PriceCheckpoint {
+        int productId = 0;
+        int versionId = 0;
+        boolean completed = false;
+    }
+    
+    /**
+     * Estatísticas de impacto da prévia, calculadas sobre a variação do preço padrão
+     * Cada partição acumula as suas e o resultado é combinado ao final
+     */
+    private static class PriceImpactStats {
+        int count = 0;
+        int belowLimit = 0;
+        BigDecimal sumDelta = Env.ZERO;
+        BigDecimal minDelta = null;
+        BigDecimal maxDelta = null;
+        /** Estatísticas por M_Product_Category_ID (null nas próprias categorias) */
+        Map<Integer, PriceImpactStats> categories;
+        
+        PriceImpactStats(boolean withCategories) {
+            categories = withCategories ? new HashMap<Integer, PriceImpactStats>() : null;
+        }
+        
+        void add(int categoryId, BigDecimal delta, boolean isBelowLimit) {
+            count++;
+            if (isBelowLimit) {
+                belowLimit++;
+            }
+            sumDelta = sumDelta.add(delta);
+            if (minDelta == null || delta.compareTo(minDelta) < 0) {
+                minDelta = delta;
+            }
+            if (maxDelta == null || delta.compareTo(maxDelta) > 0) {
+                maxDelta = delta;
+            }
+            
+            if (categories != null) {
+                PriceImpactStats category = categories.get(categoryId);
+                if (category == null) {
+                    category = new PriceImpactStats(false);
+                    categories.put(categoryId, category);
+                }
+                category.add(categoryId, delta, isBelowLimit);
+            }
+        }
+        
+        void merge(PriceImpactStats other) {
+            count += other.count;
+            belowLimit += other.belowLimit;
+            sumDelta = sumDelta.add(other.sumDelta);
+            if (other.minDelta != null && (minDelta == null || other.minDelta.compareTo(minDelta) < 0)) {
+                minDelta = other.minDelta;
+            }
+            if (other.maxDelta != null && (maxDelta == null || other.maxDelta.compareTo(maxDelta) > 0)) {
+                maxDelta = other.maxDelta;
+            }
+            
+            if (categories != null && other.categories != null) {
+                for (Map.Entry<Integer, PriceImpactStats> entry : other.categories.entrySet()) {
+                    PriceImpactStats category = categories.get(entry.getKey());
+                    if (category == null) {
+                        categories.put(entry.getKey(), entry.getValue());
+                    } else {
+                        category.merge(entry.getValue());
+                    }
+                }
+            }
+        }
+        
+        BigDecimal getAvgDelta() {
+            if (count == 0) {
+                return Env.ZERO;
+            }
+            return sumDelta.divide(BigDecimal.valueOf(count), 2, BigDecimal.ROUND_HALF_UP);
+        }
+    }
+    
+    /**
+     * Soma e quantidade de pedidos por C_BPartner_ID
+     * Endereçamento aberto com chaves int, sem objetos Integer por parceiro
+     */
+    private static class PartnerSalesTotals {
+        int[] keys;
+        String[] names;
+        BigDecimal[] sums;
+        int[] counts;
+        private int size = 0;
+        
+        PartnerSalesTotals(int capacity) {
+            // Capacidade potência de 2 para o cálculo do slot por máscara
+            int n = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+            keys = new int[n];
+            names = new String[n];
+            sums = new BigDecimal[n];
+            counts = new int[n];
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        int capacity() {
+            return keys.length;
+        }
+        
+        boolean isUsed(int slot) {
+            return keys[slot] != 0;
+        }
+        
+        /**
+         * Somar os valores de um parceiro (C_BPartner_ID > 0)
+         */
+        void add(int bpartnerId, String name, BigDecimal sum, int count) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            
+            int mask = keys.length - 1;
+            int slot = (bpartnerId * 0x9E3779B9) & mask;
+            while (keys[slot] != 0 && keys[slot] != bpartnerId) {
+                slot = (slot + 1) & mask;
+            }
+            
+            if (keys[slot] == 0) {
+                keys[slot] = bpartnerId;
+                names[slot] = name;
+                sums[slot] = sum;
+                counts[slot] = count;
+                size++;
+            } else {
+                sums[slot] = sums[slot].add(sum);
+                counts[slot] += count;
+            }
+        }
+        
+        /**
+         * Combinar os totais de outra partição
+         */
+        void merge(PartnerSalesTotals other) {
+            for (int slot = 0; slot < other.keys.length; slot++) {
+                if (other.keys[slot] != 0) {
+                    add(other.keys[slot], other.names[slot], other.sums[slot], other.counts[slot]);
+                }
+            }
+        }
+        
+        private void resize() {
+            int[] oldKeys = keys;
+            String[] oldNames = names;
+            BigDecimal[] oldSums = sums;
+            int[] oldCounts = counts;
+            
+            keys = new int[oldKeys.length * 2];
+            names = new String[keys.length];
+            sums = new BigDecimal[keys.length];
+            counts = new int[keys.length];
+            size = 0;
+            
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != 0) {
+                    add(oldKeys[slot], oldNames[slot], oldSums[slot], oldCounts[slot]);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Saída do relatório de vendas
+     * Totais gerais sempre sobre todas as linhas; no log apenas os TopN maiores clientes
+     * (heap limitado a N) e, opcionalmente, exportação completa em CSV gravada linha a linha
+     */
+    private class SalesReportOutput {
+        private final ProcessLogSink reportLog;
+        private final ProcessLogSink export;
+        private final PriorityQueue<Object[]> top;
+        private BigDecimal totalGeral = Env.ZERO;
+        private int totalPedidos = 0;
+        private int totalClientes = 0;
+        
+        SalesReportOutput() throws Exception {
+            String[] header = new String[] {"Cliente", "TotalVendas", "QtdPedidos", "TicketMedio"};
+            reportLog = ProcessLogSink.create(CustomProcess.this, p_LogMode, p_LogSampleRate, "vendas", header,
+                    new ProcessLogSink.RowFormatter() {
+                        public String format(Object[] values) {
+                            return values[0] + " | " + values[1] + " | " + values[2] + " | " + values[3];
+                        }
+                    });
+            try {
+                export = p_IsExportCsv 
+                         ? ProcessLogSink.create(CustomProcess.this, ProcessLogSink.MODE_Bulk, 0, "vendas", header, null)
+                         : null;
+            } catch (IOException e) {
+                reportLog.discard();
+                throw e;
+            }
+            
+            // Heap mínimo: a raiz é o menor total entre os N mantidos
+            top = p_TopN > 0 
+                  ? new PriorityQueue<Object[]>(p_TopN, new Comparator<Object[]>() {
+                        public int compare(Object[] a, Object[] b) {
+                            return ((BigDecimal) a[1]).compareTo((BigDecimal) b[1]);
+                        }
+                    })
+                  : null;
+            
+            addLog("=== RELATÓRIO DE VENDAS ===");
+            if (p_TopN > 0) {
+                addLog("Top " + p_TopN + " clientes");
+            }
+            addLog("Cliente | Total Vendas | Qtd Pedidos | Ticket Médio");
+            addLog("------------------------------------------------");
+        }
+        
+        void add(String cliente, BigDecimal totalVendas, int qtdPedidos) throws Exception {
+            BigDecimal ticketMedio = getTicketMedio(totalVendas, qtdPedidos);
+            totalGeral = totalGeral.add(totalVendas);
+            totalPedidos += qtdPedidos;
+            totalClientes++;
+            
+            Object[] row = new Object[] {cliente, totalVendas, qtdPedidos, ticketMedio};
+            if (export != null) {
+                export.log(false, row);
+            }
+            
+            if (top == null) {
+                reportLog.log(false, row);
+            } else if (top.size() < p_TopN) {
+                top.add(row);
+            } else if (totalVendas.compareTo((BigDecimal) top.peek()[1]) > 0) {
+                top.poll();
+                top.add(row);
+            }
+        }
+        
+        void close() throws Exception {
+            if (top != null) {
+                // Esvaziar o heap do menor para o maior e registrar em ordem decrescente
+                Object[][] rows = new Object[top.size()][];
+                for (int i = rows.length - 1; i >= 0; i--) {
+                    rows[i] = top.poll();
+                }
+                for (Object[] row : rows) {
+                    reportLog.log(false, row);
+                }
+            }
+            
+            addLog("------------------------------------------------");
+            addLog("TOTAL GERAL: " + totalGeral + " | " + totalPedidos + " pedidos" + 
+                   (top != null ? " | " + totalClientes + " clientes" : ""));
+            reportLog.close();
+            if (export != null) {
+                export.close();
+            }
+        }
+        
+        /**
+         * Descartar os logs de um relatório interrompido por erro (sem efeito após close)
+         */
+        void discard() {
+            reportLog.discard();
+            if (export != null) {
+                export.discard();
+            }
+        }
+    }
     
     /**
      * Prepare - Obter parâmetros
@@ -57,6 +393,49 @@ public class CustomProcess extends SvrProcess {
             else if (name.equals("IsActive")) {
                 p_IsActive = "Y".equals(para[i].getParameter());
             }
+            else if (name.equals("BatchSize")) {
+                p_BatchSize = para[i].getParameterAsInt();
+            }
+            else if (name.equals("IsDetailLog")) {
+                // Mantido por compatibilidade: N equivale ao modo de log Resumo
+                if ("N".equals(para[i].getParameter())) {
+                    p_LogMode = ProcessLogSink.MODE_Summary;
+                }
+            }
+            else if (name.equals("LogMode")) {
+                if (para[i].getParameter() != null) {
+                    p_LogMode = (String) para[i].getParameter();
+                }
+            }
+            else if (name.equals("LogSampleRate")) {
+                p_LogSampleRate = para[i].getParameterAsInt();
+            }
+            else if (name.equals("Parallelism")) {
+                p_Parallelism = para[i].getParameterAsInt();
+            }
+            else if (name.equals("FetchSize")) {
+                p_FetchSize = para[i].getParameterAsInt();
+            }
+            else if (name.equals("IsPreview")) {
+                p_IsPreview = "Y".equals(para[i].getParameter());
+            }
+            else if (name.equals("Action")) {
+                if (para[i].getParameter() != null) {
+                    p_Action = (String) para[i].getParameter();
+                }
+            }
+            else if (name.equals("IsUseSalesSummary")) {
+                p_IsUseSalesSummary = "Y".equals(para[i].getParameter());
+            }
+            else if (name.equals("TopN")) {
+                p_TopN = para[i].getParameterAsInt();
+            }
+            else if (name.equals("IsExportCsv")) {
+                p_IsExportCsv = "Y".equals(para[i].getParameter());
+            }
+            else if (name.equals("IsResume")) {
+                p_IsResume = "Y".equals(para[i].getParameter());
+            }
             else {
                 log.log(Level.SEVERE, "Unknown Parameter: " + name);
             }
@@ -67,6 +446,13 @@ public class CustomProcess extends SvrProcess {
      * Process - Executar o processo
      */
     protected String doIt() throws Exception {
+        if (ACTION_SalesReport.equals(p_Action)) {
+            return generateSalesReport();
+        }
+        if (ACTION_RebuildSalesSummary.equals(p_Action)) {
+            return rebuildSalesSummary();
+        }
+        
         log.info("Iniciando processo de atualização de preços...");
         
         // Validar parâmetros obrigatórios
@@ -78,58 +464,551 @@ public class CustomProcess extends SvrProcess {
             return "Tipo de ajuste deve ser 'P' (Percentual) ou 'A' (Valor)";
         }
         
+        PriceUpdateResult result = null;
         try {
-            int updatedProducts = 0;
-            int updatedPrices = 0;
+            if (p_IsPreview) {
+                return previewPrices();
+            }
             
-            // Construir query para buscar produtos
-            StringBuilder sql = new StringBuilder();
-            sql.append("SELECT p.M_Product_ID, p.Name, pl.M_PriceList_Version_ID, ")
-               .append("pl.PriceList, pl.PriceStd, pl.PriceLimit ")
-               .append("FROM M_Product p ")
-               .append("INNER JOIN M_ProductPrice pl ON p.M_Product_ID = pl.M_Product_ID ")
-               .append("INNER JOIN M_PriceList_Version plv ON pl.M_PriceList_Version_ID = plv.M_PriceList_Version_ID ")
-               .append("WHERE p.IsActive = ? ");
+
+            // Checkpoints: continuar a execução interrompida ou iniciar do zero
+            // Em transação única nada é confirmado antes do fim e não há o que continuar
+            if (p_IsResume) {
+                if (!isCheckpointed()) {
+                    return "IsResume requer BatchSize ou Parallelism: a execução em transação única " +
+                           "não confirma atualizações parciais";
+                }
+                String error = loadCheckpoints();
+                if (error != null) {
+                    return error;
+                }
+            } else if (isCheckpointed()) {
+                deleteCheckpoints();
+            }
             
-            // Adicionar filtros opcionais
-            if (p_M_Product_Category_ID > 0) {
-                sql.append("AND p.M_Product_Category_ID = ? ");
+            m_priceLog = ProcessLogSink.create(this, p_LogMode, p_LogSampleRate, "precos",
+                    new String[] {"M_Product_ID", "Name", "M_PriceList_Version_ID", 
+                                  "PriceList", "NewPriceList", "PriceStd", "NewPriceStd", 
+                                  "PriceLimit", "NewPriceLimit"},
+                    new ProcessLogSink.RowFormatter() {
+                        public String format(Object[] values) {
+                            return "Produto atualizado: " + values[1] + 
+                                   " - Preço Lista: " + values[3] + " -> " + values[4];
+                        }
+                    });
+            
+            if (p_Parallelism > 1) {
+                result = updatePricesParallel();
+            } else {
+                result = new PriceUpdateResult();
+                updatePrices(get_TrxName(), 0, result);
             }
             
-            if (p_DateFrom != null) {
-                sql.append("AND plv.ValidFrom >= ? ");
+            // Log final
+            addLog("Processo concluído:");
+            addLog("- Produtos processados: " + result.products);
+            addLog("- Preços atualizados: " + result.prices);
+            addLog("- Tipo de ajuste: " + (p_AdjustmentType.equals("P") ? "Percentual" : "Valor"));
+            addLog("- Ajuste aplicado: " + p_PriceAdjustment);
+            addLog("- Modo de execução: " + (isSetBased() ? "Conjunto (SQL)" : "Linha a linha"));
+            if (!isSetBased() && p_BatchSize > 0) {
+                addLog("- Tamanho do lote: " + p_BatchSize);
+            }
+            if (!isSetBased() && p_FetchSize > 0) {
+                addLog("- Leitura em streaming, fetch size: " + p_FetchSize);
             }
+            if (p_Parallelism > 1) {
+                addLog("- Paralelismo: " + p_Parallelism + " (" + result.partitions + " partições)");
+            }
+            m_priceLog.close();
+            m_priceLog = null;
             
-            if (p_DateTo != null) {
-                sql.append("AND plv.ValidFrom <= ? ");
+            // Nas partições com erro foi desfeito apenas o que veio depois do último lote
+            // confirmado; os lotes confirmados já estão nos contadores e os checkpoints são
+            // mantidos para a execução com IsResume
+            if (result.failures.size() > 0) {
+                for (String failure : result.failures) {
+                    addLog(failure);
+                }
+                throw new Exception(result.failures.size() + " de " + result.partitions + 
+                                    " partições falharam. Preços atualizados e confirmados: " + result.prices);
             }
             
-            sql.append("ORDER BY p.Name");
+            // Execução completa: checkpoints não são mais necessários
+            if (isCheckpointed()) {
+                DB.executeUpdateEx("DELETE FROM Custom_PriceCheckpoint WHERE AD_Client_ID = ? AND AD_Process_ID = ?",
+                                   new Object[] {getAD_Client_ID(), getProcessInfo().getAD_Process_ID()}, get_TrxName());
+            }
             
-            // Executar query
-            PreparedStatement pstmt = DB.prepareStatement(sql.toString(), get_TrxName());
-            int paramIndex = 1;
+            return "Processo de atualização de preços concluído com sucesso. " +
+                   "Produtos processados: " + result.products + 
+                   ", Preços atualizados: " + result.prices;
+            
+        } catch (Exception e) {
+            log.log(Level.SEVERE, "Erro no processo de atualização de preços: " + e.getMessage(), e);
+            if (p_Parallelism <= 1 && result != null && result.committedPrices > 0) {
+                // Lotes sequenciais confirmados antes da falha não são desfeitos
+                throw new Exception("Erro no processo: " + e.getMessage() + 
+                                    ". Preços atualizados e confirmados: " + result.committedPrices);
+            }
+            throw new Exception("Erro no processo: " + e.getMessage());
+        } finally {
+            // Execução interrompida: fecha e remove o arquivo temporário do modo B
+            if (m_priceLog != null) {
+                m_priceLog.discard();
+                m_priceLog = null;
+            }
+        }
+    }
+    
+    /**
+     * Prévia do ajuste: aplica calculateNewPrice em memória sobre a mesma consulta,
+     * sem gravar nada, e registra as estatísticas de impacto
+     * 
+     * @return Mensagem do processo
+     */
+    private String previewPrices() throws Exception {
+        PriceImpactStats stats = new PriceImpactStats(true);
+        
+        if (p_Parallelism > 1) {
+            // Agregação paralela: uma partição por versão de lista de preço, combinadas ao final
+            List<Integer> partitions = getPartitions();
+            if (!partitions.isEmpty()) {
+                ExecutorService executor = Executors.newFixedThreadPool(Math.min(p_Parallelism, partitions.size()));
+                List<Future<PriceImpactStats>> futures = new ArrayList<Future<PriceImpactStats>>();
+                try {
+                    for (final Integer priceListVersionId : partitions) {
+                        futures.add(executor.submit(new Callable<PriceImpactStats>() {
+                            public PriceImpactStats call() throws Exception {
+                                return previewPartition(priceListVersionId);
+                            }
+                        }));
+                    }
+                    for (Future<PriceImpactStats> future : futures) {
+                        stats.merge(future.get());
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        } else {
+            stats = previewPartition(0);
+        }
+        
+        addLog("=== PRÉVIA DO AJUSTE DE PREÇOS (nenhum preço foi alterado) ===");
+        addLog("- Tipo de ajuste: " + (p_AdjustmentType.equals("P") ? "Percentual" : "Valor"));
+        addLog("- Ajuste simulado: " + p_PriceAdjustment);
+        addLog("- Preços analisados: " + stats.count);
+        if (stats.count == 0) {
+            // Sem preços não há variação mínima e máxima
+            addLog("- Nenhum preço encontrado com os filtros informados");
+            return "Prévia concluída. Nenhum preço encontrado com os filtros informados";
+        }
+        addLog("- Variação do preço padrão: mínima " + stats.minDelta + ", máxima " + stats.maxDelta + 
+               ", média " + stats.getAvgDelta());
+        addLog("- Preço padrão abaixo do preço limite: " + stats.belowLimit);
+        
+        for (Map.Entry<Integer, PriceImpactStats> entry : stats.categories.entrySet()) {
+            PriceImpactStats category = entry.getValue();
+            String categoryName = DB.getSQLValueString(get_TrxName(), 
+                    "SELECT Name FROM M_Product_Category WHERE M_Product_Category_ID = ?", entry.getKey());
+            addLog("Categoria " + categoryName + ": " + category.count + " preços, variação média " + 
+                   category.getAvgDelta() + ", abaixo do limite: " + category.belowLimit);
+        }
+        
+        return "Prévia concluída. Preços analisados: " + stats.count + 
+               ", abaixo do preço limite: " + stats.belowLimit;
+    }
+    
+    /**
+     * Calcular o impacto de uma partição em transação somente leitura
+     * 
+     * @param priceListVersionId Partição (0 = todas as versões)
+     * @return Estatísticas da partição
+     */
+    private PriceImpactStats previewPartition(int priceListVersionId) throws Exception {
+        PriceImpactStats stats = new PriceImpactStats(true);
+        
+        // Sem ORDER BY: a agregação não depende da ordem e o banco evita a ordenação
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT p.M_Product_Category_ID, pl.PriceStd, pl.PriceLimit ")
+           .append("FROM M_Product p ")
+           .append("INNER JOIN M_ProductPrice pl ON p.M_Product_ID = pl.M_Product_ID ")
+           .append("INNER JOIN M_PriceList_Version plv ON pl.M_PriceList_Version_ID = plv.M_PriceList_Version_ID ");
+        appendPriceFilter(sql, priceListVersionId);
+        
+        Trx trx = Trx.get(Trx.createTrxName("PricePrv"), true);
+        Connection conn = trx.getConnection();
+        try {
+            conn.setReadOnly(true);
             
-            pstmt.setString(paramIndex++, p_IsActive ? "Y" : "N");
+            PreparedStatement pstmt = DB.prepareStatement(sql.toString(), trx.getTrxName());
+            setPriceFilterParameters(pstmt, 1, priceListVersionId);
+            pstmt.setFetchSize(p_FetchSize > 0 ? p_FetchSize : DEFAULT_PAGE_SIZE);
+            ResultSet rs = pstmt.executeQuery();
             
-            if (p_M_Product_Category_ID > 0) {
-                pstmt.setInt(paramIndex++, p_M_Product_Category_ID);
+            while (rs.next()) {
+                BigDecimal priceStd = rs.getBigDecimal("PriceStd");
+                if (priceStd == null) {
+                    continue;
+                }
+                BigDecimal priceLimit = rs.getBigDecimal("PriceLimit");
+                
+                BigDecimal newPriceStd = calculateNewPrice(priceStd, p_PriceAdjustment, p_AdjustmentType);
+                BigDecimal newPriceLimit = calculateNewPrice(priceLimit, p_PriceAdjustment, p_AdjustmentType);
+                boolean isBelowLimit = newPriceLimit != null && newPriceStd.compareTo(newPriceLimit) < 0;
+                
+                stats.add(rs.getInt("M_Product_Category_ID"), newPriceStd.subtract(priceStd), isBelowLimit);
             }
             
-            if (p_DateFrom != null) {
-                pstmt.setTimestamp(paramIndex++, p_DateFrom);
+            rs.close();
+            pstmt.close();
+        } finally {
+            trx.rollback();
+            try {
+                // A conexão volta ao pool: restaurar o modo de escrita
+                conn.setReadOnly(false);
+            } finally {
+                // Mesmo com a conexão quebrada a transação é fechada e a conexão devolvida
+                trx.close();
+            }
+        }
+        
+        return stats;
+    }
+    
+    /**
+     * Atualizar os preços com o modo de execução configurado
+     * 
+     * @param trxName Transação
+     * @param priceListVersionId Partição (0 = todas as versões)
+     * @param result Contadores da execução, atualizados a cada linha e a cada lote confirmado
+     */
+    private void updatePrices(String trxName, int priceListVersionId, PriceUpdateResult result) throws Exception {
+        PriceCheckpoint checkpoint = m_checkpoints.get(priceListVersionId);
+        if (checkpoint != null && checkpoint.completed) {
+            // Partição já confirmada na execução interrompida
+            return;
+        }
+        
+        if (isSetBased()) {
+            updatePricesSetBased(trxName, priceListVersionId, checkpoint, result);
+        } else {
+            updatePricesRowByRow(trxName, priceListVersionId, checkpoint, result);
+        }
+        
+        // Marcar a partição como concluída na mesma transação da última atualização
+        if (isCheckpointed()) {
+            saveCheckpoint(trxName, priceListVersionId, 0, 0, true);
+        }
+    }
+    
+    /**
+     * Execução com confirmações parciais, registradas em Custom_PriceCheckpoint: lotes de
+     * BatchSize linhas (modo linha a linha) ou partições paralelas em transações próprias
+     */
+    private boolean isCheckpointed() {
+        return p_Parallelism > 1 || (p_BatchSize > 0 && !isSetBased());
+    }
+    
+    /**
+     * Impressão digital dos parâmetros que definem o ajuste e o particionamento
+     * Uma execução só pode continuar de um checkpoint gravado com os mesmos parâmetros
+     */
+    private String getFingerprint() {
+        return p_AdjustmentType + "|" + p_PriceAdjustment.stripTrailingZeros().toPlainString() + 
+               "|" + p_M_Product_Category_ID + "|" + p_DateFrom + "|" + p_DateTo + "|" + p_IsActive + 
+               "|" + (p_Parallelism > 1 ? "P" : "S") + "|" + KEY_ORDER;
+    }
+    
+    /**
+     * Carregar os checkpoints da execução interrompida
+     * 
+     * @return Mensagem de erro ou null se OK
+     */
+    private String loadCheckpoints() throws Exception {
+        String sql = "SELECT Partition_ID, Fingerprint, M_Product_ID, M_PriceList_Version_ID, IsCompleted " +
+                     "FROM Custom_PriceCheckpoint WHERE AD_Client_ID = ? AND AD_Process_ID = ?";
+        String fingerprint = getFingerprint();
+        
+        PreparedStatement pstmt = DB.prepareStatement(sql, get_TrxName());
+        pstmt.setInt(1, getAD_Client_ID());
+        pstmt.setInt(2, getProcessInfo().getAD_Process_ID());
+        ResultSet rs = pstmt.executeQuery();
+        
+        try {
+            while (rs.next()) {
+                if (!fingerprint.equals(rs.getString("Fingerprint"))) {
+                    return "Checkpoint gravado com parâmetros diferentes (" + rs.getString("Fingerprint") + 
+                           "). Execute com os mesmos parâmetros ou sem IsResume";
+                }
+                
+                PriceCheckpoint checkpoint = new PriceCheckpoint();
+                checkpoint.productId = rs.getInt("M_Product_ID");
+                checkpoint.versionId = rs.getInt("M_PriceList_Version_ID");
+                checkpoint.completed = "Y".equals(rs.getString("IsCompleted"));
+                m_checkpoints.put(rs.getInt("Partition_ID"), checkpoint);
+            }
+        } finally {
+            rs.close();
+            pstmt.close();
+        }
+        
+        if (m_checkpoints.isEmpty()) {
+            // A execução anterior foi concluída (checkpoints removidos) ou nunca confirmou um lote:
+            // continuar reaplicaria o ajuste a todos os preços
+            return "Nenhum checkpoint encontrado para continuar. Execute sem IsResume";
+        }
+        
+        addLog("Continuando a partir de " + m_checkpoints.size() + " checkpoint(s)");
+        return null;
+    }
+    
+    /**
+     * Descartar checkpoints anteriores
+     * Na execução paralela é confirmado imediatamente para não bloquear as partições que
+     * gravam a mesma chave; nos lotes sequenciais segue com o commit do primeiro lote
+     */
+    private void deleteCheckpoints() throws Exception {
+        DB.executeUpdateEx("DELETE FROM Custom_PriceCheckpoint WHERE AD_Client_ID = ? AND AD_Process_ID = ?",
+                           new Object[] {getAD_Client_ID(), getProcessInfo().getAD_Process_ID()}, get_TrxName());
+        if (p_Parallelism > 1) {
+            commitEx();
+        }
+    }
+    
+    /**
+     * Gravar a última chave processada de uma partição
+     * Deve ser chamado na transação das atualizações, antes do commit, para que
+     * checkpoint e preços sejam confirmados juntos
+     * 
+     * @param trxName Transação
+     * @param partitionId Partição (0 = execução sequencial)
+     * @param productId Último M_Product_ID confirmado
+     * @param versionId Último M_PriceList_Version_ID confirmado
+     * @param completed Partição concluída
+     */
+    private void saveCheckpoint(String trxName, int partitionId, int productId, int versionId, 
+                                boolean completed) throws Exception {
+        Object[] params = new Object[] {getFingerprint(), productId, versionId, completed ? "Y" : "N",
+                                        getAD_Client_ID(), getProcessInfo().getAD_Process_ID(), partitionId};
+        int updated = DB.executeUpdateEx("UPDATE Custom_PriceCheckpoint SET Fingerprint = ?, M_Product_ID = ?, " +
+                                         "M_PriceList_Version_ID = ?, IsCompleted = ?, Updated = NOW() " +
+                                         "WHERE AD_Client_ID = ? AND AD_Process_ID = ? AND Partition_ID = ?",
+                                         params, trxName);
+        if (updated == 0) {
+            DB.executeUpdateEx("INSERT INTO Custom_PriceCheckpoint (Fingerprint, M_Product_ID, " +
+                               "M_PriceList_Version_ID, IsCompleted, AD_Client_ID, AD_Process_ID, Partition_ID, Updated) " +
+                               "VALUES (?, ?, ?, ?, ?, ?, ?, NOW())",
+                               params, trxName);
+        }
+    }
+    
+    /**
+     * Atualização paralela: uma partição por M_PriceList_Version_ID,
+     * cada uma executada em sua própria transação por um pool limitado de threads
+     * 
+     * @return Contadores agregados de tudo o que foi confirmado: partições concluídas e
+     *         lotes confirmados das partições que falharam
+     */
+    private PriceUpdateResult updatePricesParallel() throws Exception {
+        PriceUpdateResult result = new PriceUpdateResult();
+        List<Integer> partitions = getPartitions();
+        
+        result.partitions = partitions.size();
+        if (partitions.isEmpty()) {
+            return result;
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(p_Parallelism, partitions.size()));
+        List<Future<PriceUpdateResult>> futures = new ArrayList<Future<PriceUpdateResult>>();
+        List<PriceUpdateResult> partials = new ArrayList<PriceUpdateResult>();
+        try {
+            for (final Integer priceListVersionId : partitions) {
+                final PriceUpdateResult partial = new PriceUpdateResult();
+                partials.add(partial);
+                futures.add(executor.submit(new Callable<PriceUpdateResult>() {
+                    public PriceUpdateResult call() throws Exception {
+                        updatePartition(priceListVersionId, partial);
+                        return partial;
+                    }
+                }));
             }
             
-            if (p_DateTo != null) {
-                pstmt.setTimestamp(paramIndex++, p_DateTo);
+            // Aguardar todas as partições; uma falha não interrompe as demais
+            // Future.get garante a leitura dos contadores gravados pela thread da partição
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.log(Level.SEVERE, "Erro na partição M_PriceList_Version_ID=" + partitions.get(i), cause);
+                    result.failures.add("Partição M_PriceList_Version_ID=" + partitions.get(i) + 
+                                        " falhou após confirmar " + partials.get(i).committedPrices + 
+                                        " preço(s): " + cause.getMessage());
+                }
+                result.products += partials.get(i).committedProducts;
+                result.prices += partials.get(i).committedPrices;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Partições da execução paralela: versões de lista de preço que atendem aos filtros
+     */
+    private List<Integer> getPartitions() throws Exception {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT DISTINCT plv.M_PriceList_Version_ID ")
+           .append("FROM M_Product p ")
+           .append("INNER JOIN M_ProductPrice pl ON p.M_Product_ID = pl.M_Product_ID ")
+           .append("INNER JOIN M_PriceList_Version plv ON pl.M_PriceList_Version_ID = plv.M_PriceList_Version_ID ");
+        appendPriceFilter(sql, 0);
+        
+        List<Integer> partitions = new ArrayList<Integer>();
+        PreparedStatement pstmt = DB.prepareStatement(sql.toString(), get_TrxName());
+        setPriceFilterParameters(pstmt, 1, 0);
+        ResultSet rs = pstmt.executeQuery();
+        while (rs.next()) {
+            partitions.add(rs.getInt(1));
+        }
+        rs.close();
+        pstmt.close();
+        
+        return partitions;
+    }
+    
+    /**
+     * Executar uma partição em transação própria
+     * Com BatchSize cada lote é confirmado e contado ao ser confirmado; uma falha desfaz
+     * apenas o que veio depois do último lote
+     * 
+     * @param priceListVersionId Versão da lista de preço
+     * @param result Contadores da partição
+     */
+    private void updatePartition(int priceListVersionId, PriceUpdateResult result) throws Exception {
+        String trxName = Trx.createTrxName("PriceUpd");
+        Trx trx = Trx.get(trxName, true);
+        try {
+            updatePrices(trxName, priceListVersionId, result);
+            trx.commit(true);
+            result.commit();
+        } catch (Exception e) {
+            trx.rollback();
+            throw e;
+        } finally {
+            trx.close();
+        }
+    }
+    
+    /**
+     * Sem log por linha, todo o ajuste é feito por um único UPDATE no banco
+     */
+    private boolean isSetBased() {
+        return ProcessLogSink.MODE_Summary.equals(p_LogMode);
+    }
+    
+    /**
+     * Preço fora do padrão: valor negativo ou preço padrão abaixo do preço limite
+     * 
+     * @param row Linha no formato do cabeçalho do log de preços
+     */
+    private boolean isPriceAnomaly(Object[] row) {
+        BigDecimal newPriceList = (BigDecimal) row[4];
+        BigDecimal newPriceStd = (BigDecimal) row[6];
+        BigDecimal newPriceLimit = (BigDecimal) row[8];
+        
+        if ((newPriceList != null && newPriceList.signum() < 0) 
+                || (newPriceStd != null && newPriceStd.signum() < 0)) {
+            return true;
+        }
+        return newPriceStd != null && newPriceLimit != null && newPriceStd.compareTo(newPriceLimit) < 0;
+    }
+    
+    /**
+     * Atualização linha a linha: lê cada preço, calcula em Java e grava
+     * Com FetchSize ou BatchSize > 0 a leitura é feita em páginas (LIMIT) pela chave primária de
+     * M_ProductPrice (M_PriceList_Version_ID, M_Product_ID), mantendo o uso de memória e o custo
+     * de cada página constantes independente do volume de preços. Cada página fixa a versão
+     * (igualdade na primeira coluna e intervalo na segunda) para que o banco posicione o índice
+     * na última chave lida; ao fim da versão, a página seguinte começa na próxima versão
+     * 
+     * @param trxName Transação
+     * @param priceListVersionId Partição (0 = todas as versões)
+     * @param checkpoint Checkpoint para continuar a partição, ou null
+     * @param result Contadores da execução
+     */
+    private void updatePricesRowByRow(String trxName, int priceListVersionId, 
+                                      PriceCheckpoint checkpoint, PriceUpdateResult result) throws Exception {
+        
+        // Leitura por chave em páginas de FetchSize linhas; um lote (BatchSize) ocupa uma ou mais
+        // páginas e é confirmado com seu checkpoint ao fim da última, com o cursor já fechado
+        boolean keyset = p_FetchSize > 0 || p_BatchSize > 0 || checkpoint != null;
+        int pageSize = p_FetchSize > 0 ? p_FetchSize : DEFAULT_PAGE_SIZE;
+        int batchRowCount = 0;
+        
+        // Construir query para buscar produtos
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT p.M_Product_ID, p.Name, pl.M_PriceList_Version_ID, ")
+           .append("pl.PriceList, pl.PriceStd, pl.PriceLimit ")
+           .append("FROM M_Product p ")
+           .append("INNER JOIN M_ProductPrice pl ON p.M_Product_ID = pl.M_Product_ID ")
+           .append("INNER JOIN M_PriceList_Version plv ON pl.M_PriceList_Version_ID = plv.M_PriceList_Version_ID ");
+        appendPriceFilter(sql, priceListVersionId);
+        String versionSQL = null;
+        String nextVersionSQL = null;
+        if (keyset) {
+            // Ordenação pela chave primária: cada página é lida pelo índice a partir da última
+            // linha, sem ordenar o restante, e a execução pode continuar do checkpoint
+            String orderBy = "ORDER BY pl.M_PriceList_Version_ID, pl.M_Product_ID LIMIT ?";
+            versionSQL = sql + "AND pl.M_PriceList_Version_ID = ? AND pl.M_Product_ID > ? " + orderBy;
+            nextVersionSQL = sql + "AND pl.M_PriceList_Version_ID > ? " + orderBy;
+        } else {
+            sql.append("ORDER BY p.Name");
+        }
+        
+        // Statement de atualização preparado uma única vez e reutilizado
+        String updateSQL = "UPDATE M_ProductPrice SET " +
+                          "PriceList = ?, PriceStd = ?, PriceLimit = ?, " +
+                          "Updated = NOW(), UpdatedBy = ? " +
+                          "WHERE M_Product_ID = ? AND M_PriceList_Version_ID = ?";
+        PreparedStatement updateStmt = DB.prepareStatement(updateSQL, trxName);
+        List<Object[]> batchRows = new ArrayList<Object[]>();
+        
+        int lastProductId = checkpoint != null ? checkpoint.productId : 0;
+        int lastVersionId = checkpoint != null ? checkpoint.versionId : 0;
+        boolean withinVersion = lastVersionId > 0;
+        boolean morePages = true;
+        
+        while (morePages) {
+            // Executar query
+            PreparedStatement pstmt = DB.prepareStatement(!keyset ? sql.toString() 
+                                                          : (withinVersion ? versionSQL : nextVersionSQL), trxName);
+            int paramIndex = setPriceFilterParameters(pstmt, 1, priceListVersionId);
+            int limit = pageSize;
+            if (keyset) {
+                if (p_BatchSize > 0) {
+                    // Página termina no fim do lote para que o commit seja feito sem cursor aberto
+                    limit = Math.min(pageSize, p_BatchSize - batchRowCount);
+                }
+                pstmt.setInt(paramIndex++, lastVersionId);
+                if (withinVersion) {
+                    pstmt.setInt(paramIndex++, lastProductId);
+                }
+                pstmt.setInt(paramIndex, limit);
+                pstmt.setFetchSize(limit);
             }
             
             ResultSet rs = pstmt.executeQuery();
+            int pageRows = 0;
             
             while (rs.next()) {
                 int productId = rs.getInt("M_Product_ID");
                 String productName = rs.getString("Name");
-                int priceListVersionId = rs.getInt("M_PriceList_Version_ID");
+                int versionId = rs.getInt("M_PriceList_Version_ID");
                 BigDecimal priceList = rs.getBigDecimal("PriceList");
                 BigDecimal priceStd = rs.getBigDecimal("PriceStd");
                 BigDecimal priceLimit = rs.getBigDecimal("PriceLimit");
@@ -140,49 +1019,222 @@ public class CustomProcess extends SvrProcess {
                 BigDecimal newPriceLimit = calculateNewPrice(priceLimit, p_PriceAdjustment, p_AdjustmentType);
                 
                 // Atualizar preços
-                String updateSQL = "UPDATE M_ProductPrice SET " +
-                                  "PriceList = ?, PriceStd = ?, PriceLimit = ?, " +
-                                  "Updated = NOW(), UpdatedBy = ? " +
-                                  "WHERE M_Product_ID = ? AND M_PriceList_Version_ID = ?";
-                
-                PreparedStatement updateStmt = DB.prepareStatement(updateSQL, get_TrxName());
                 updateStmt.setBigDecimal(1, newPriceList);
                 updateStmt.setBigDecimal(2, newPriceStd);
                 updateStmt.setBigDecimal(3, newPriceLimit);
                 updateStmt.setInt(4, getAD_User_ID());
                 updateStmt.setInt(5, productId);
-                updateStmt.setInt(6, priceListVersionId);
+                updateStmt.setInt(6, versionId);
                 
-                int updated = updateStmt.executeUpdate();
-                updateStmt.close();
+                Object[] row = new Object[] {productId, productName, versionId, 
+                                             priceList, newPriceList, priceStd, newPriceStd, 
+                                             priceLimit, newPriceLimit};
                 
-                if (updated > 0) {
-                    updatedPrices++;
-                    addLog("Produto atualizado: " + productName + 
-                          " - Preço Lista: " + priceList + " -> " + newPriceList);
+                if (p_BatchSize > 0) {
+                    // Lote executado e confirmado no fim da página
+                    updateStmt.addBatch();
+                    batchRows.add(row);
+                } else {
+                    int updated = updateStmt.executeUpdate();
+                    if (updated > 0) {
+                        result.prices++;
+                        m_priceLog.log(isPriceAnomaly(row), row);
+                    }
                 }
                 
-                updatedProducts++;
+                result.products++;
+                pageRows++;
+                batchRowCount++;
+                lastProductId = productId;
+                lastVersionId = versionId;
             }
             
             rs.close();
             pstmt.close();
             
-            // Log final
-            addLog("Processo concluído:");
-            addLog("- Produtos processados: " + updatedProducts);
-            addLog("- Preços atualizados: " + updatedPrices);
-            addLog("- Tipo de ajuste: " + (p_AdjustmentType.equals("P") ? "Percentual" : "Valor"));
-            addLog("- Ajuste aplicado: " + p_PriceAdjustment);
-            
-            return "Processo de atualização de preços concluído com sucesso. " +
-                   "Produtos processados: " + updatedProducts + 
-                   ", Preços atualizados: " + updatedPrices;
-            
-        } catch (Exception e) {
-            log.log(Level.SEVERE, "Erro no processo de atualização de preços: " + e.getMessage(), e);
-            throw new Exception("Erro no processo: " + e.getMessage());
+            if (keyset) {
+                // Fim da página: cursor fechado, o lote e o checkpoint podem ser confirmados
+                if (batchRows.size() > 0) {
+                    result.prices += executeBatch(updateStmt, batchRows);
+                }
+                // Página incompleta na versão: continuar da versão seguinte
+                // Página incompleta a partir da versão seguinte: fim da leitura
+                boolean fullPage = pageRows == limit;
+                morePages = fullPage || withinVersion;
+                withinVersion = fullPage;
+                if (p_BatchSize > 0 && batchRowCount > 0 && (batchRowCount == p_BatchSize || !morePages)) {
+                    saveCheckpoint(trxName, priceListVersionId, lastProductId, lastVersionId, false);
+                    DB.commit(true, trxName);
+                    result.commit();
+                    batchRowCount = 0;
+                }
+            } else {
+                morePages = false;
+            }
         }
+        
+        updateStmt.close();
+    }
+    
+    /**
+     * Atualização baseada em conjunto: um único UPDATE executado no banco,
+     * equivalente ao cálculo de calculateNewPrice (arredondamento HALF_UP, 2 casas).
+     * ROUND do PostgreSQL/Oracle arredonda a metade para longe do zero, como HALF_UP.
+     * 
+     * @param trxName Transação
+     * @param priceListVersionId Partição (0 = todas as versões)
+     * @param checkpoint Checkpoint para continuar a partição, ou null
+     * @param result Contadores da execução
+     */
+    private void updatePricesSetBased(String trxName, int priceListVersionId, 
+                                      PriceCheckpoint checkpoint, PriceUpdateResult result) throws Exception {
+        
+        // Percentual: mesmo fator de 4 casas usado em calculateNewPrice
+        String operator;
+        BigDecimal operand;
+        if ("P".equals(p_AdjustmentType)) {
+            operator = " * ";
+            operand = getPercentageFactor(p_PriceAdjustment);
+        } else {
+            operator = " + ";
+            operand = p_PriceAdjustment;
+        }
+        
+        StringBuilder sql = new StringBuilder();
+        sql.append("UPDATE M_ProductPrice SET ")
+           .append("PriceList = ROUND(PriceList").append(operator).append("?, 2), ")
+           .append("PriceStd = ROUND(PriceStd").append(operator).append("?, 2), ")
+           .append("PriceLimit = ROUND(PriceLimit").append(operator).append("?, 2), ")
+           .append("Updated = NOW(), UpdatedBy = ? ")
+           .append("WHERE EXISTS (SELECT 1 FROM M_Product p ")
+           .append("INNER JOIN M_PriceList_Version plv ON plv.M_PriceList_Version_ID = M_ProductPrice.M_PriceList_Version_ID ");
+        appendPriceFilter(sql, priceListVersionId);
+        sql.append("AND p.M_Product_ID = M_ProductPrice.M_Product_ID) ");
+        if (checkpoint != null) {
+            // Linhas até o checkpoint já foram ajustadas pela execução interrompida
+            appendKeyFilter(sql, "M_ProductPrice");
+        }
+        
+        PreparedStatement pstmt = DB.prepareStatement(sql.toString(), trxName);
+        pstmt.setBigDecimal(1, operand);
+        pstmt.setBigDecimal(2, operand);
+        pstmt.setBigDecimal(3, operand);
+        pstmt.setInt(4, getAD_User_ID());
+        int paramIndex = setPriceFilterParameters(pstmt, 5, priceListVersionId);
+        if (checkpoint != null) {
+            setKeyFilterParameters(pstmt, paramIndex, checkpoint.productId, checkpoint.versionId);
+        }
+        
+        int updated = pstmt.executeUpdate();
+        pstmt.close();
+        
+        result.products += updated;
+        result.prices += updated;
+    }
+    
+    /**
+     * Adicionar os filtros de parâmetros (aliases p = M_Product, plv = M_PriceList_Version)
+     * A ordem dos filtros deve ser a mesma de setPriceFilterParameters
+     * 
+     * @param sql SQL em construção
+     * @param priceListVersionId Partição (0 = todas as versões)
+     */
+    private void appendPriceFilter(StringBuilder sql, int priceListVersionId) {
+        sql.append("WHERE p.IsActive = ? ");
+        
+        // Adicionar filtros opcionais
+        if (p_M_Product_Category_ID > 0) {
+            sql.append("AND p.M_Product_Category_ID = ? ");
+        }
+        
+        if (p_DateFrom != null) {
+            sql.append("AND plv.ValidFrom >= ? ");
+        }
+        
+        if (p_DateTo != null) {
+            sql.append("AND plv.ValidFrom <= ? ");
+        }
+        
+        if (priceListVersionId > 0) {
+            sql.append("AND plv.M_PriceList_Version_ID = ? ");
+        }
+    }
+    
+    /**
+     * Adicionar o filtro de chave posterior a (M_PriceList_Version_ID, M_Product_ID), na ordem
+     * da chave primária de M_ProductPrice e da leitura por chave de updatePricesRowByRow
+     * 
+     * @param sql SQL em construção
+     * @param alias Alias ou nome da tabela M_ProductPrice
+     */
+    private void appendKeyFilter(StringBuilder sql, String alias) {
+        sql.append("AND (").append(alias).append(".M_PriceList_Version_ID, ")
+           .append(alias).append(".M_Product_ID) > (?, ?) ");
+    }
+    
+    /**
+     * Preencher os parâmetros do filtro gerado por appendKeyFilter
+     * 
+     * @return Próximo índice livre
+     */
+    private int setKeyFilterParameters(PreparedStatement pstmt, int paramIndex, 
+                                       int productId, int versionId) throws Exception {
+        pstmt.setInt(paramIndex++, versionId);
+        pstmt.setInt(paramIndex++, productId);
+        return paramIndex;
+    }
+    
+    /**
+     * Preencher os parâmetros dos filtros gerados por appendPriceFilter
+     * 
+     * @param pstmt Statement
+     * @param paramIndex Índice do primeiro parâmetro do filtro
+     * @param priceListVersionId Partição (0 = todas as versões)
+     * @return Próximo índice livre
+     */
+    private int setPriceFilterParameters(PreparedStatement pstmt, int paramIndex, int priceListVersionId) throws Exception {
+        pstmt.setString(paramIndex++, p_IsActive ? "Y" : "N");
+        
+        if (p_M_Product_Category_ID > 0) {
+            pstmt.setInt(paramIndex++, p_M_Product_Category_ID);
+        }
+        
+        if (p_DateFrom != null) {
+            pstmt.setTimestamp(paramIndex++, p_DateFrom);
+        }
+        
+        if (p_DateTo != null) {
+            pstmt.setTimestamp(paramIndex++, p_DateTo);
+        }
+        
+        if (priceListVersionId > 0) {
+            pstmt.setInt(paramIndex++, priceListVersionId);
+        }
+        
+        return paramIndex;
+    }
+    
+    /**
+     * Executar o lote pendente de atualizações
+     * Registra no log apenas as linhas efetivamente atualizadas
+     * 
+     * @param updateStmt Statement com o lote acumulado
+     * @param batchRows Linhas de log correspondentes a cada item do lote
+     * @return Quantidade de preços atualizados
+     */
+    private int executeBatch(PreparedStatement updateStmt, List<Object[]> batchRows) throws Exception {
+        int[] results = updateStmt.executeBatch();
+        int updated = 0;
+        
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] > 0 || results[i] == Statement.SUCCESS_NO_INFO) {
+                updated++;
+                m_priceLog.log(isPriceAnomaly(batchRows.get(i)), batchRows.get(i));
+            }
+        }
+        
+        batchRows.clear();
+        return updated;
     }
     
     /**
@@ -197,8 +1249,7 @@ public class CustomProcess extends SvrProcess {
         
         if ("P".equals(adjustmentType)) {
             // Ajuste percentual
-            BigDecimal factor = Env.ONE.add(adjustment.divide(Env.ONEHUNDRED, 4, BigDecimal.ROUND_HALF_UP));
-            newPrice = currentPrice.multiply(factor);
+            newPrice = currentPrice.multiply(getPercentageFactor(adjustment));
         } else {
             // Ajuste por valor
             newPrice = currentPrice.add(adjustment);
@@ -208,6 +1259,13 @@ public class CustomProcess extends SvrProcess {
         return newPrice.setScale(2, BigDecimal.ROUND_HALF_UP);
     }
     
+    /**
+     * Fator multiplicador de um ajuste percentual (4 casas decimais)
+     */
+    private BigDecimal getPercentageFactor(BigDecimal adjustment) {
+        return Env.ONE.add(adjustment.divide(Env.ONEHUNDRED, 4, BigDecimal.ROUND_HALF_UP));
+    }
+    
     /**
      * Método adicional: Processo de relatório de vendas
      */
@@ -215,24 +1273,59 @@ public class CustomProcess extends SvrProcess {
         log.info("Gerando relatório de vendas...");
         
         try {
-            String sql = "SELECT bp.Name as Cliente, " +
-                        "SUM(o.GrandTotal) as TotalVendas, " +
-                        "COUNT(o.C_Order_ID) as QtdPedidos, " +
-                        "AVG(o.GrandTotal) as TicketMedio " +
-                        "FROM C_Order o " +
-                        "INNER JOIN C_BPartner bp ON o.C_BPartner_ID = bp.C_BPartner_ID " +
-                        "WHERE o.IsSOTrx = 'Y' AND o.DocStatus IN ('CO', 'CL') ";
-            
-            if (p_DateFrom != null) {
-                sql += "AND o.DateOrdered >= ? ";
+            // Períodos longos: agregação paralela por mês em conexões separadas
+            if (p_Parallelism > 1 && !p_IsUseSalesSummary && p_DateFrom != null && p_DateTo != null) {
+                generateSalesReportParallel();
+                return "Relatório de vendas gerado com sucesso";
             }
             
-            if (p_DateTo != null) {
-                sql += "AND o.DateOrdered <= ? ";
+            String sql;
+            
+            if (p_IsUseSalesSummary && !MSysConfig.getBooleanValue("CUSTOM_SALES_SUMMARY", false, getAD_Client_ID())) {
+                // Sem CUSTOM_SALES_SUMMARY o resumo não acompanha os pedidos e estaria desatualizado
+                return "IsUseSalesSummary requer CUSTOM_SALES_SUMMARY = Y em AD_SysConfig " +
+                       "e a carga inicial do resumo (Action = S)";
             }
             
-            sql += "GROUP BY bp.C_BPartner_ID, bp.Name " +
-                   "ORDER BY TotalVendas DESC";
+            if (p_IsUseSalesSummary) {
+                // Resumo mantido pelo CustomModelValidator: mesmo resultado sem varrer C_Order
+                sql = "SELECT bp.Name as Cliente, " +
+                      "SUM(s.GrandTotal) as TotalVendas, " +
+                      "SUM(s.OrderCount) as QtdPedidos " +
+                      "FROM Custom_SalesSummary s " +
+                      "INNER JOIN C_BPartner bp ON s.C_BPartner_ID = bp.C_BPartner_ID " +
+                      "WHERE 1=1 ";
+                
+                if (p_DateFrom != null) {
+                    sql += "AND s.DateOrdered >= ? ";
+                }
+                
+                if (p_DateTo != null) {
+                    sql += "AND s.DateOrdered <= ? ";
+                }
+                
+                sql += "GROUP BY bp.C_BPartner_ID, bp.Name " +
+                       "HAVING SUM(s.OrderCount) > 0 " +
+                       "ORDER BY TotalVendas DESC";
+            } else {
+                sql = "SELECT bp.Name as Cliente, " +
+                      "SUM(o.GrandTotal) as TotalVendas, " +
+                      "COUNT(o.C_Order_ID) as QtdPedidos " +
+                      "FROM C_Order o " +
+                      "INNER JOIN C_BPartner bp ON o.C_BPartner_ID = bp.C_BPartner_ID " +
+                      "WHERE o.IsSOTrx = 'Y' AND o.DocStatus IN ('CO', 'CL') ";
+                
+                if (p_DateFrom != null) {
+                    sql += "AND o.DateOrdered >= ? ";
+                }
+                
+                if (p_DateTo != null) {
+                    sql += "AND o.DateOrdered <= ? ";
+                }
+                
+                sql += "GROUP BY bp.C_BPartner_ID, bp.Name " +
+                       "ORDER BY TotalVendas DESC";
+            }
             
             PreparedStatement pstmt = DB.prepareStatement(sql, get_TrxName());
             int paramIndex = 1;
@@ -245,38 +1338,181 @@ public class CustomProcess extends SvrProcess {
                 pstmt.setTimestamp(paramIndex++, p_DateTo);
             }
             
+            // Leitura em streaming: a memória não depende da quantidade de parceiros
+            pstmt.setFetchSize(p_FetchSize > 0 ? p_FetchSize : DEFAULT_PAGE_SIZE);
             ResultSet rs = pstmt.executeQuery();
             
-            addLog("=== RELATÓRIO DE VENDAS ===");
-            addLog("Cliente | Total Vendas | Qtd Pedidos | Ticket Médio");
-            addLog("------------------------------------------------");
-            
-            BigDecimal totalGeral = Env.ZERO;
-            int totalPedidos = 0;
-            
-            while (rs.next()) {
-                String cliente = rs.getString("Cliente");
-                BigDecimal totalVendas = rs.getBigDecimal("TotalVendas");
-                int qtdPedidos = rs.getInt("QtdPedidos");
-                BigDecimal ticketMedio = rs.getBigDecimal("TicketMedio");
+            SalesReportOutput output = null;
+            try {
+                output = new SalesReportOutput();
                 
-                addLog(cliente + " | " + totalVendas + " | " + qtdPedidos + " | " + ticketMedio);
+                while (rs.next()) {
+                    output.add(rs.getString("Cliente"), 
+                               rs.getBigDecimal("TotalVendas"), 
+                               rs.getInt("QtdPedidos"));
+                }
                 
-                totalGeral = totalGeral.add(totalVendas);
-                totalPedidos += qtdPedidos;
+                output.close();
+            } finally {
+                if (output != null) {
+                    output.discard();
+                }
+                rs.close();
+                pstmt.close();
             }
             
-            addLog("------------------------------------------------");
-            addLog("TOTAL GERAL: " + totalGeral + " | " + totalPedidos + " pedidos");
+            return "Relatório de vendas gerado com sucesso";
+            
+        } catch (Exception e) {
+            log.log(Level.SEVERE, "Erro ao gerar relatório: " + e.getMessage(), e);
+            throw new Exception("Erro ao gerar relatório: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Relatório de vendas com o período dividido em meses, agregados em paralelo
+     * e combinados por parceiro. O ticket médio é calculado sobre a soma e a
+     * quantidade totais, não como média das médias mensais.
+     */
+    private void generateSalesReportParallel() throws Exception {
+        // Partições mensais [início, fim): a última inclui DateTo, como no relatório sequencial
+        List<Timestamp[]> months = new ArrayList<Timestamp[]>();
+        Timestamp start = p_DateFrom;
+        while (!start.after(p_DateTo)) {
+            Timestamp next = TimeUtil.getMonthFirstDay(TimeUtil.addMonths(start, 1));
+            months.add(new Timestamp[] {start, next.after(p_DateTo) ? null : next});
+            start = next;
+        }
+        
+        PartnerSalesTotals totals = new PartnerSalesTotals(1024);
+        // DateFrom posterior a DateTo: nenhum mês e relatório vazio, como no sequencial
+        if (!months.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(p_Parallelism, months.size()));
+            List<Future<PartnerSalesTotals>> futures = new ArrayList<Future<PartnerSalesTotals>>();
+            try {
+                for (final Timestamp[] month : months) {
+                    futures.add(executor.submit(new Callable<PartnerSalesTotals>() {
+                        public PartnerSalesTotals call() throws Exception {
+                            return aggregateSalesMonth(month[0], month[1]);
+                        }
+                    }));
+                }
+                for (Future<PartnerSalesTotals> future : futures) {
+                    totals.merge(future.get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        
+        // Mesma ordenação do relatório sequencial (TotalVendas decrescente)
+        List<Object[]> rows = new ArrayList<Object[]>(totals.size());
+        for (int slot = 0; slot < totals.capacity(); slot++) {
+            if (totals.isUsed(slot)) {
+                rows.add(new Object[] {totals.names[slot], totals.sums[slot], totals.counts[slot]});
+            }
+        }
+        Collections.sort(rows, new Comparator<Object[]>() {
+            public int compare(Object[] a, Object[] b) {
+                return ((BigDecimal) b[1]).compareTo((BigDecimal) a[1]);
+            }
+        });
+        
+        SalesReportOutput output = new SalesReportOutput();
+        try {
+            for (Object[] row : rows) {
+                output.add((String) row[0], (BigDecimal) row[1], (Integer) row[2]);
+            }
+            output.close();
+        } finally {
+            output.discard();
+        }
+        addLog("- Partições mensais: " + months.size() + ", paralelismo: " + p_Parallelism);
+    }
+    
+    /**
+     * Ticket médio do relatório de vendas, calculado da mesma forma em todas as leituras
+     * (C_Order, Custom_SalesSummary ou meses em paralelo): valor monetário, 2 casas, HALF_UP
+     * 
+     * @param totalVendas Soma de GrandTotal
+     * @param qtdPedidos Quantidade de pedidos
+     * @return Ticket médio
+     */
+    private static BigDecimal getTicketMedio(BigDecimal totalVendas, int qtdPedidos) {
+        if (qtdPedidos == 0) {
+            return Env.ZERO;
+        }
+        return totalVendas.divide(BigDecimal.valueOf(qtdPedidos), 2, BigDecimal.ROUND_HALF_UP);
+    }
+    
+    /**
+     * Agregar as vendas de um mês em transação própria
+     * 
+     * @param from Início (inclusive)
+     * @param to Fim (exclusivo), ou null para usar DateTo (inclusive)
+     * @return Soma e quantidade por parceiro
+     */
+    private PartnerSalesTotals aggregateSalesMonth(Timestamp from, Timestamp to) throws Exception {
+        String sql = "SELECT bp.C_BPartner_ID, bp.Name, SUM(o.GrandTotal), COUNT(o.C_Order_ID) " +
+                     "FROM C_Order o " +
+                     "INNER JOIN C_BPartner bp ON o.C_BPartner_ID = bp.C_BPartner_ID " +
+                     "WHERE o.IsSOTrx = 'Y' AND o.DocStatus IN ('CO', 'CL') " +
+                     "AND o.DateOrdered >= ? " +
+                     (to != null ? "AND o.DateOrdered < ? " : "AND o.DateOrdered <= ? ") +
+                     "GROUP BY bp.C_BPartner_ID, bp.Name";
+        
+        PartnerSalesTotals totals = new PartnerSalesTotals(1024);
+        Trx trx = Trx.get(Trx.createTrxName("SalesRpt"), true);
+        try {
+            PreparedStatement pstmt = DB.prepareStatement(sql, trx.getTrxName());
+            pstmt.setTimestamp(1, from);
+            pstmt.setTimestamp(2, to != null ? to : p_DateTo);
+            pstmt.setFetchSize(p_FetchSize > 0 ? p_FetchSize : DEFAULT_PAGE_SIZE);
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                totals.add(rs.getInt(1), rs.getString(2), rs.getBigDecimal(3), rs.getInt(4));
+            }
             
             rs.close();
             pstmt.close();
+        } finally {
+            trx.rollback();
+            trx.close();
+        }
+        
+        return totals;
+    }
+    
+    /**
+     * Reconstruir o resumo de vendas por parceiro e dia a partir de C_Order
+     * Usado na carga inicial e para corrigir divergências; depois disso o
+     * CustomModelValidator mantém o resumo a cada complete/void/reactivate
+     * Apenas o resumo do cliente do processo é reconstruído
+     */
+    public String rebuildSalesSummary() throws Exception {
+        log.info("Reconstruindo resumo de vendas...");
+        
+        try {
+            DB.executeUpdateEx("DELETE FROM Custom_SalesSummary WHERE AD_Client_ID = ?",
+                               new Object[] {getAD_Client_ID()}, get_TrxName());
             
-            return "Relatório de vendas gerado com sucesso";
+            int inserted = DB.executeUpdateEx(
+                    "INSERT INTO Custom_SalesSummary (AD_Client_ID, C_BPartner_ID, DateOrdered, " +
+                    "GrandTotal, OrderCount, Updated) " +
+                    "SELECT o.AD_Client_ID, o.C_BPartner_ID, TRUNC(o.DateOrdered), " +
+                    "SUM(o.GrandTotal), COUNT(o.C_Order_ID), NOW() " +
+                    "FROM C_Order o " +
+                    "WHERE o.AD_Client_ID = ? AND o.IsSOTrx = 'Y' AND o.DocStatus IN ('CO', 'CL') " +
+                    "GROUP BY o.AD_Client_ID, o.C_BPartner_ID, TRUNC(o.DateOrdered)",
+                    new Object[] {getAD_Client_ID()}, get_TrxName());
+            
+            addLog("Resumo de vendas reconstruído: " + inserted + " registros");
+            return "Resumo de vendas reconstruído com sucesso. Registros: " + inserted;
             
         } catch (Exception e) {
-            log.log(Level.SEVERE, "Erro ao gerar relatório: " + e.getMessage(), e);
-            throw new Exception("Erro ao gerar relatório: " + e.getMessage());
+            log.log(Level.SEVERE, "Erro ao reconstruir resumo de vendas: " + e.getMessage(), e);
+            throw new Exception("Erro ao reconstruir resumo de vendas: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,369 @@
+package org.compiere.model;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+import org.compiere.util.CCache;
+import org.compiere.util.CLogger;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+
+/**
+ * Faixas de desconto por quantidade usadas pelo CalloutCustom.calculateDiscount
+ *
+ * As faixas ativas de Custom_DiscountTier são compiladas em vetores ordenados por
+ * (AD_Client_ID, M_Product_Category_ID, M_PriceList_ID, C_BP_Group_ID) e, dentro de cada
+ * regra, por MinQty; as consultas usam busca binária, sem acesso ao banco.
+ * O conjunto compilado é imutável e substituído de uma vez quando a tabela muda
+ * (CustomModelValidator) ou após CUSTOM_DISCOUNT_TIER_REFRESH segundos (padrão 300).
+ *
+ * Colunas nulas valem para qualquer valor. A regra mais específica prevalece, nesta ordem:
+ * categoria, lista de preços e grupo de parceiro. Cliente sem faixas ativas usa as faixas
+ * padrão (10 -> 5%, 50 -> 10%).
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class DiscountTierEngine {
+
+    /** Desconto adicional para clientes especiais em AD_SysConfig */
+    public static final String SYSCONFIG_SpecialBonus = "CUSTOM_DISCOUNT_SPECIAL_BONUS";
+
+    /** Intervalo de recarga em AD_SysConfig (segundos) */
+    public static final String SYSCONFIG_Refresh = "CUSTOM_DISCOUNT_TIER_REFRESH";
+
+    /** Faixas padrão */
+    private static final BigDecimal[] DEFAULT_MIN_QTY = {new BigDecimal("10"), new BigDecimal("50")};
+    private static final BigDecimal[] DEFAULT_DISCOUNT = {new BigDecimal("5"), new BigDecimal("10")};
+
+    /** Desconto adicional padrão */
+    private static final String DEFAULT_SpecialBonus = "5";
+
+    /** Logger */
+    private static CLogger log = CLogger.getCLogger(DiscountTierEngine.class);
+
+    /** Faixas compiladas; null = carregar no próximo uso */
+    private static volatile Snapshot s_snapshot = null;
+
+    /** Recarga por tempo em andamento */
+    private static final AtomicBoolean s_refreshing = new AtomicBoolean(false);
+
+    /** Idas ao banco (CalloutMetrics) */
+    private static final CalloutMetrics.Metric s_metric = CalloutMetrics.register("DiscountTierEngine");
+
+    /** Grupo do parceiro de negócio */
+    private static CCache<Integer, Integer> s_bpGroup = new CCache<Integer, Integer>("C_BPartner_Group", 1000);
+
+    /**
+     * Cópia imutável das faixas
+     */
+    private static class Snapshot {
+        /** {AD_Client_ID, M_Product_Category_ID, M_PriceList_ID, C_BP_Group_ID}, ordenadas; 0 = qualquer */
+        final int[][] keys;
+        /** Quantidades mínimas de cada regra, ordenadas */
+        final BigDecimal[][] minQty;
+        /** Descontos correspondentes */
+        final BigDecimal[][] discounts;
+        /** Clientes com faixas, ordenados */
+        final int[] clients;
+        final BigDecimal specialBonus;
+        final long expiresAt;
+
+        Snapshot(int[][] keys, BigDecimal[][] minQty, BigDecimal[][] discounts, int[] clients,
+                 BigDecimal specialBonus, long expiresAt) {
+            this.keys = keys;
+            this.minQty = minQty;
+            this.discounts = discounts;
+            this.clients = clients;
+            this.specialBonus = specialBonus;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Obter o desconto por quantidade
+     *
+     * @param AD_Client_ID Cliente
+     * @param M_Product_Category_ID Categoria do produto (0 = desconhecida)
+     * @param M_PriceList_ID Lista de preços (0 = desconhecida)
+     * @param C_BP_Group_ID Grupo do parceiro (0 = desconhecido)
+     * @param qty Quantidade
+     * @return Desconto (percentual)
+     */
+    public static BigDecimal getDiscount(int AD_Client_ID, int M_Product_Category_ID, int M_PriceList_ID,
+                                         int C_BP_Group_ID, BigDecimal qty) {
+        Snapshot snapshot = getSnapshot();
+
+        if (Arrays.binarySearch(snapshot.clients, AD_Client_ID) < 0) {
+            return findDiscount(DEFAULT_MIN_QTY, DEFAULT_DISCOUNT, qty);
+        }
+
+        // Da regra mais específica para a mais genérica: o bit 2 libera a categoria,
+        // o bit 1 a lista de preços e o bit 0 o grupo
+        for (int wildcard = 0; wildcard < 8; wildcard++) {
+            int category = (wildcard & 4) == 0 ? M_Product_Category_ID : 0;
+            int priceList = (wildcard & 2) == 0 ? M_PriceList_ID : 0;
+            int group = (wildcard & 1) == 0 ? C_BP_Group_ID : 0;
+
+            int index = findRule(snapshot.keys, AD_Client_ID, category, priceList, group);
+            if (index >= 0) {
+                return findDiscount(snapshot.minQty[index], snapshot.discounts[index], qty);
+            }
+        }
+
+        return Env.ZERO;
+    }
+
+    /**
+     * @return Desconto adicional para clientes especiais (percentual)
+     */
+    public static BigDecimal getSpecialBonus() {
+        return getSnapshot().specialBonus;
+    }
+
+    /**
+     * Obter o grupo do parceiro de negócio
+     *
+     * @param C_BPartner_ID Parceiro
+     * @return C_BP_Group_ID ou 0 se não encontrado
+     */
+    public static int getBPGroup(int C_BPartner_ID) {
+        Integer group = s_bpGroup.get(C_BPartner_ID);
+        if (group == null) {
+            s_metric.dbCall();
+            int value = DB.getSQLValue(null, "SELECT C_BP_Group_ID FROM C_BPartner WHERE C_BPartner_ID = ?",
+                                       C_BPartner_ID);
+            group = value > 0 ? value : 0;
+            s_bpGroup.put(C_BPartner_ID, group);
+        }
+        return group;
+    }
+
+    /**
+     * Remover o grupo de um parceiro alterado
+     */
+    public static void removeBPGroup(int C_BPartner_ID) {
+        s_bpGroup.remove(C_BPartner_ID);
+    }
+
+    /**
+     * Descartar as faixas compiladas; a próxima consulta recarrega Custom_DiscountTier
+     */
+    public static void reset() {
+        s_snapshot = null;
+    }
+
+    /**
+     * Compilar as faixas, se ainda não compiladas
+     * Executado em segundo plano na inicialização do servidor
+     */
+    public static void warmUp() {
+        getSnapshot();
+    }
+
+    /**
+     * Obter as faixas compiladas
+     * Vencido o intervalo de recarga, apenas uma sessão recarrega; as demais seguem com as faixas atuais
+     */
+    private static Snapshot getSnapshot() {
+        Snapshot snapshot = s_snapshot;
+        if (snapshot == null) {
+            return load();
+        }
+
+        if (snapshot.expiresAt < System.currentTimeMillis() && s_refreshing.compareAndSet(false, true)) {
+            try {
+                Snapshot refreshed = build(snapshot);
+                synchronized (DiscountTierEngine.class) {
+                    // Não sobrescrever um reset feito durante a recarga
+                    if (s_snapshot == snapshot) {
+                        s_snapshot = refreshed;
+                    }
+                }
+            } finally {
+                s_refreshing.set(false);
+            }
+        }
+        Snapshot current = s_snapshot;
+        return current != null ? current : snapshot;
+    }
+
+    /**
+     * Carregar as faixas após um reset
+     * Sincronizado para que consultas simultâneas façam uma única carga
+     */
+    private static synchronized Snapshot load() {
+        Snapshot snapshot = s_snapshot;
+        if (snapshot == null) {
+            snapshot = build(null);
+            s_snapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Compilar as faixas ativas de Custom_DiscountTier
+     *
+     * @param previous Faixas atuais, mantidas em caso de erro
+     */
+    private static Snapshot build(Snapshot previous) {
+        List<int[]> keys = new ArrayList<int[]>();
+        List<BigDecimal[]> minQty = new ArrayList<BigDecimal[]>();
+        List<BigDecimal[]> discounts = new ArrayList<BigDecimal[]>();
+        List<Integer> clients = new ArrayList<Integer>();
+
+        String sql = "SELECT AD_Client_ID, COALESCE(M_Product_Category_ID, 0), COALESCE(M_PriceList_ID, 0), " +
+                     "COALESCE(C_BP_Group_ID, 0), MinQty, Discount " +
+                     "FROM Custom_DiscountTier WHERE IsActive = 'Y' " +
+                     "ORDER BY 1, 2, 3, 4, 5";
+        boolean ok = false;
+        s_metric.dbCall();
+
+        try {
+            PreparedStatement pstmt = DB.prepareStatement(sql, null);
+            ResultSet rs = pstmt.executeQuery();
+
+            int[] key = null;
+            List<BigDecimal> ruleQty = new ArrayList<BigDecimal>();
+            List<BigDecimal> ruleDiscount = new ArrayList<BigDecimal>();
+
+            while (rs.next()) {
+                int[] rowKey = new int[] {rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4)};
+
+                if (key == null || compare(key, rowKey[0], rowKey[1], rowKey[2], rowKey[3]) != 0) {
+                    if (key != null) {
+                        addRule(keys, minQty, discounts, key, ruleQty, ruleDiscount);
+                    }
+                    if (clients.isEmpty() || clients.get(clients.size() - 1) != rowKey[0]) {
+                        clients.add(rowKey[0]);
+                    }
+                    key = rowKey;
+                }
+
+                ruleQty.add(rs.getBigDecimal(5));
+                ruleDiscount.add(rs.getBigDecimal(6));
+            }
+            if (key != null) {
+                addRule(keys, minQty, discounts, key, ruleQty, ruleDiscount);
+            }
+
+            rs.close();
+            pstmt.close();
+            ok = true;
+
+        } catch (Exception e) {
+            log.log(Level.SEVERE, "Erro ao carregar faixas de desconto: " + e.getMessage(), e);
+        }
+
+        long expiresAt = System.currentTimeMillis() + MSysConfig.getIntValue(SYSCONFIG_Refresh, 300) * 1000L;
+
+        if (!ok && previous != null) {
+            // Manter as faixas atuais e tentar novamente no próximo intervalo
+            return new Snapshot(previous.keys, previous.minQty, previous.discounts, previous.clients,
+                                previous.specialBonus, expiresAt);
+        }
+
+        int[] clientIds = new int[clients.size()];
+        for (int i = 0; i < clientIds.length; i++) {
+            clientIds[i] = clients.get(i);
+        }
+
+        log.info("Faixas de desconto: " + keys.size() + " regras, " + clientIds.length + " clientes");
+        return new Snapshot(keys.toArray(new int[keys.size()][]),
+                            minQty.toArray(new BigDecimal[minQty.size()][]),
+                            discounts.toArray(new BigDecimal[discounts.size()][]),
+                            clientIds, getSpecialBonusConfig(), expiresAt);
+    }
+
+    /**
+     * Fechar uma regra lida
+     */
+    private static void addRule(List<int[]> keys, List<BigDecimal[]> minQty, List<BigDecimal[]> discounts,
+                                int[] key, List<BigDecimal> ruleQty, List<BigDecimal> ruleDiscount) {
+        keys.add(key);
+        minQty.add(ruleQty.toArray(new BigDecimal[ruleQty.size()]));
+        discounts.add(ruleDiscount.toArray(new BigDecimal[ruleDiscount.size()]));
+        ruleQty.clear();
+        ruleDiscount.clear();
+    }
+
+    /**
+     * Busca binária da regra
+     *
+     * @return Índice da regra ou -1 se não existir
+     */
+    private static int findRule(int[][] keys, int client, int category, int priceList, int group) {
+        int low = 0;
+        int high = keys.length - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(keys[mid], client, category, priceList, group);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Desconto da maior quantidade mínima atingida
+     *
+     * @return Desconto ou zero se a quantidade não atinge nenhuma faixa
+     */
+    private static BigDecimal findDiscount(BigDecimal[] minQty, BigDecimal[] discounts, BigDecimal qty) {
+        int low = 0;
+        int high = minQty.length - 1;
+        int found = -1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (minQty[mid].compareTo(qty) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found >= 0 ? discounts[found] : Env.ZERO;
+    }
+
+    private static int compare(int[] key, int client, int category, int priceList, int group) {
+        if (key[0] != client) {
+            return key[0] < client ? -1 : 1;
+        }
+        if (key[1] != category) {
+            return key[1] < category ? -1 : 1;
+        }
+        if (key[2] != priceList) {
+            return key[2] < priceList ? -1 : 1;
+        }
+        if (key[3] != group) {
+            return key[3] < group ? -1 : 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Desconto adicional configurado
+     */
+    private static BigDecimal getSpecialBonusConfig() {
+        String value = MSysConfig.getValue(SYSCONFIG_SpecialBonus, DEFAULT_SpecialBonus);
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            log.warning(SYSCONFIG_SpecialBonus + " inválido: " + value);
+            return new BigDecimal(DEFAULT_SpecialBonus);
+        }
+    }
+}
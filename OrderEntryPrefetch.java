@@ -0,0 +1,201 @@
+package org.compiere.model;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.compiere.util.CLogger;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+
+/**
+ * Pré-carga dos dados da digitação de pedidos ao selecionar o parceiro no cabeçalho
+ * Iniciada pelo CalloutCustom.prefetchPartner e executada em segundo plano, fora da thread da UI
+ *
+ * Aquece os caches compartilhados: conjunto de clientes especiais, grupo do parceiro, taxas
+ * de imposto, faixas de desconto e os produtos pedidos recentemente pelo parceiro. Os callouts
+ * continuam lendo desses caches, invalidados pelo CustomModelValidator após o commit; a
+ * pré-carga não guarda cópia própria dos dados, que ficaria desatualizada. Por janela
+ * (#AD_Session_ID e WindowNo) é registrado apenas o parceiro, para não repetir a pré-carga.
+ *
+ * As pré-cargas aguardam em uma fila limitada; com a fila cheia a nova pré-carga é descartada
+ * (os callouts leem do banco normalmente) e a janela pode tentar de novo ao selecionar o parceiro.
+ *
+ * AD_SysConfig: CUSTOM_PREFETCH_THREADS (padrão 4), CUSTOM_PREFETCH_QUEUE (padrão 100),
+ * CUSTOM_PREFETCH_TTL (segundos, padrão 600), CUSTOM_PREFETCH_PRODUCTS (padrão 200) e
+ * CUSTOM_PREFETCH_DAYS (dias de pedidos lidos para os produtos recentes, padrão 180).
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class OrderEntryPrefetch {
+
+    /** Logger */
+    private static CLogger log = CLogger.getCLogger(OrderEntryPrefetch.class);
+
+    /** Pré-cargas por janela */
+    private static final ConcurrentHashMap<String, Prefetch> s_windows = new ConcurrentHashMap<String, Prefetch>();
+
+    /** Threads da pré-carga, criadas no primeiro uso */
+    private static ThreadPoolExecutor s_executor = null;
+
+    /**
+     * Pré-carga iniciada em uma janela
+     */
+    private static class Prefetch {
+        private final int partnerId;
+        private final long expiresAt;
+
+        Prefetch(int partnerId, long expiresAt) {
+            this.partnerId = partnerId;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Pré-carga na fila do executor, com a janela que a registrou
+     */
+    private static class PrefetchTask implements Runnable {
+        private final String key;
+        private final Prefetch prefetch;
+
+        PrefetchTask(String key, Prefetch prefetch) {
+            this.key = key;
+            this.prefetch = prefetch;
+        }
+
+        public void run() {
+            load(prefetch);
+        }
+    }
+
+    /**
+     * Fila cheia: descarta a pré-carga e libera a janela para tentar de novo
+     */
+    private static class DiscardPrefetchPolicy extends ThreadPoolExecutor.DiscardPolicy {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            PrefetchTask task = (PrefetchTask) r;
+            s_windows.remove(task.key, task.prefetch);
+            log.fine("Fila de pré-carga cheia, descartada a do parceiro " + task.prefetch.partnerId);
+            super.rejectedExecution(r, executor);
+        }
+    }
+
+    /**
+     * Iniciar a pré-carga do parceiro selecionado na janela
+     *
+     * @param ctx Contexto
+     * @param WindowNo Número da janela
+     * @param C_BPartner_ID Parceiro
+     */
+    public static void start(Properties ctx, int WindowNo, final int C_BPartner_ID) {
+        String key = getKey(ctx, WindowNo);
+        long now = System.currentTimeMillis();
+
+        Prefetch current = s_windows.get(key);
+        if (current != null && current.partnerId == C_BPartner_ID && current.expiresAt > now) {
+            return;
+        }
+
+        purgeExpired(now);
+
+        Prefetch prefetch = new Prefetch(C_BPartner_ID,
+                                         now + MSysConfig.getIntValue("CUSTOM_PREFETCH_TTL", 600) * 1000L);
+        s_windows.put(key, prefetch);
+
+        getExecutor().execute(new PrefetchTask(key, prefetch));
+    }
+
+    /**
+     * Aquecer os caches compartilhados usados pelos callouts das linhas
+     */
+    private static void load(Prefetch prefetch) {
+        try {
+            SpecialCustomerSet.contains(prefetch.partnerId);
+            DiscountTierEngine.getBPGroup(prefetch.partnerId);
+
+            TaxRateCache.warmUp();
+            DiscountTierEngine.warmUp();
+            ProductSellabilityCache.preload(getRecentProducts(prefetch.partnerId));
+
+        } catch (Exception e) {
+            log.log(Level.WARNING, "Erro na pré-carga do parceiro " + prefetch.partnerId + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Produtos pedidos recentemente pelo parceiro
+     * Apenas os pedidos dos últimos CUSTOM_PREFETCH_DAYS dias, para não agregar todo o histórico
+     */
+    private static List<Integer> getRecentProducts(int C_BPartner_ID) throws Exception {
+        List<Integer> products = new ArrayList<Integer>();
+        String sql = "SELECT ol.M_Product_ID, MAX(o.DateOrdered) " +
+                     "FROM C_OrderLine ol " +
+                     "INNER JOIN C_Order o ON (ol.C_Order_ID = o.C_Order_ID) " +
+                     "WHERE o.C_BPartner_ID = ? AND o.DateOrdered >= ? " +
+                     "AND o.IsSOTrx = 'Y' AND ol.M_Product_ID IS NOT NULL " +
+                     "GROUP BY ol.M_Product_ID " +
+                     "ORDER BY 2 DESC";
+
+        long days = MSysConfig.getIntValue("CUSTOM_PREFETCH_DAYS", 180);
+        PreparedStatement pstmt = DB.prepareStatement(sql, null);
+        pstmt.setInt(1, C_BPartner_ID);
+        pstmt.setTimestamp(2, new Timestamp(System.currentTimeMillis() - days * 24 * 60 * 60 * 1000L));
+        pstmt.setMaxRows(MSysConfig.getIntValue("CUSTOM_PREFETCH_PRODUCTS", 200));
+        ResultSet rs = pstmt.executeQuery();
+
+        while (rs.next()) {
+            products.add(rs.getInt(1));
+        }
+
+        rs.close();
+        pstmt.close();
+        return products;
+    }
+
+    /**
+     * Remover as pré-cargas vencidas (janelas fechadas ou abandonadas)
+     */
+    private static void purgeExpired(long now) {
+        Iterator<Prefetch> it = s_windows.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAt < now) {
+                it.remove();
+            }
+        }
+    }
+
+    private static String getKey(Properties ctx, int WindowNo) {
+        return Env.getContext(ctx, "#AD_Session_ID") + "|" + WindowNo;
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (s_executor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            int threads = MSysConfig.getIntValue("CUSTOM_PREFETCH_THREADS", 4);
+            s_executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(MSysConfig.getIntValue("CUSTOM_PREFETCH_QUEUE", 100)),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "OrderEntryPrefetch-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                },
+                new DiscardPrefetchPolicy());
+        }
+        return s_executor;
+    }
+}
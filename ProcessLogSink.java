@@ -0,0 +1,269 @@
+package org.compiere.process;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import org.compiere.model.MAttachment;
+import org.compiere.model.MPInstance;
+
+/**
+ * Destino do log de detalhe de processos
+ * Evita um registro de AD_PInstance_Log por linha processada em execuções grandes
+ *
+ * Modos:
+ * D = Detalhe (padrão): um addLog por linha, como antes
+ * S = Resumo: apenas os contadores finais
+ * A = Amostragem: uma linha a cada N e todas as anomalias
+ * B = Arquivo: detalhe completo em CSV compactado (gzip), anexado à instância do processo
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public abstract class ProcessLogSink {
+
+    /** Modos de log */
+    public static final String MODE_Detail = "D";
+    public static final String MODE_Summary = "S";
+    public static final String MODE_Sampled = "A";
+    public static final String MODE_Bulk = "B";
+
+    /**
+     * Formatação de uma linha de detalhe como mensagem de log
+     * Só é chamada quando a linha será de fato registrada
+     */
+    public interface RowFormatter {
+        String format(Object[] values);
+    }
+
+    /** Processo dono do log */
+    protected final SvrProcess process;
+
+    /** Linhas recebidas */
+    private int rows = 0;
+
+    /** Anomalias recebidas */
+    private int anomalies = 0;
+
+    /**
+     * Criar o destino de log para o modo informado
+     *
+     * @param process Processo
+     * @param mode Modo (D, S, A ou B); nulo = Detalhe
+     * @param sampleRate Intervalo de amostragem do modo A
+     * @param name Nome base do arquivo do modo B
+     * @param header Cabeçalho das colunas do modo B
+     * @param formatter Formatação das mensagens dos modos D e A
+     * @return Destino de log
+     */
+    public static ProcessLogSink create(SvrProcess process, String mode, int sampleRate,
+                                        String name, String[] header, RowFormatter formatter) throws IOException {
+        if (MODE_Summary.equals(mode)) {
+            return new SummarySink(process);
+        }
+        if (MODE_Sampled.equals(mode)) {
+            return new SampledSink(process, formatter, sampleRate);
+        }
+        if (MODE_Bulk.equals(mode)) {
+            return new BulkSink(process, name, header);
+        }
+        return new DetailSink(process, formatter);
+    }
+
+    /**
+     * Constructor
+     */
+    protected ProcessLogSink(SvrProcess process) {
+        this.process = process;
+    }
+
+    /**
+     * Registrar uma linha de detalhe
+     * Sincronizado, pois as partições paralelas registram ao mesmo tempo
+     *
+     * @param anomaly Linha fora do padrão (sempre registrada no modo A)
+     * @param values Valores da linha
+     */
+    public synchronized void log(boolean anomaly, Object... values) throws IOException {
+        rows++;
+        if (anomaly) {
+            anomalies++;
+        }
+        write(rows, anomaly, values);
+    }
+
+    /**
+     * Gravar a linha no destino
+     */
+    protected abstract void write(int rowNo, boolean anomaly, Object[] values) throws IOException;
+
+    /**
+     * Finalizar o log e registrar o resumo
+     */
+    public synchronized void close() throws IOException {
+        if (anomalies > 0) {
+            process.addLog("- Anomalias: " + anomalies);
+        }
+    }
+
+    /**
+     * Descartar o log de uma execução interrompida por erro, liberando arquivos abertos
+     * Sem efeito depois de close()
+     */
+    public synchronized void discard() {
+    }
+
+    /**
+     * @return Linhas recebidas
+     */
+    public synchronized int getRows() {
+        return rows;
+    }
+
+    /**
+     * Modo D: um addLog por linha
+     */
+    private static class DetailSink extends ProcessLogSink {
+        private final RowFormatter formatter;
+
+        DetailSink(SvrProcess process, RowFormatter formatter) {
+            super(process);
+            this.formatter = formatter;
+        }
+
+        protected void write(int rowNo, boolean anomaly, Object[] values) {
+            process.addLog(formatter.format(values));
+        }
+    }
+
+    /**
+     * Modo S: nenhum log por linha
+     */
+    private static class SummarySink extends ProcessLogSink {
+        SummarySink(SvrProcess process) {
+            super(process);
+        }
+
+        protected void write(int rowNo, boolean anomaly, Object[] values) {
+        }
+    }
+
+    /**
+     * Modo A: uma linha a cada N e todas as anomalias
+     */
+    private static class SampledSink extends ProcessLogSink {
+        private final RowFormatter formatter;
+        private final int sampleRate;
+
+        SampledSink(SvrProcess process, RowFormatter formatter, int sampleRate) {
+            super(process);
+            this.formatter = formatter;
+            this.sampleRate = sampleRate > 0 ? sampleRate : 100;
+        }
+
+        protected void write(int rowNo, boolean anomaly, Object[] values) {
+            if (anomaly) {
+                process.addLog("[Anomalia] " + formatter.format(values));
+            } else if (rowNo % sampleRate == 0) {
+                process.addLog("[" + rowNo + "] " + formatter.format(values));
+            }
+        }
+    }
+
+    /**
+     * Modo B: CSV compactado gravado com escrita bufferizada e anexado à instância do processo
+     */
+    private static class BulkSink extends ProcessLogSink {
+        private final Path file;
+        private final BufferedWriter writer;
+        private boolean closed = false;
+
+        BulkSink(SvrProcess process, String name, String[] header) throws IOException {
+            super(process);
+            file = Files.createTempFile(name + "_" + process.getAD_PInstance_ID() + "_", ".csv.gz");
+            try {
+                writer = new BufferedWriter(new OutputStreamWriter(
+                            new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024),
+                            StandardCharsets.UTF_8), 64 * 1024);
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            try {
+                writeLine(header);
+            } catch (IOException e) {
+                discard();
+                throw e;
+            }
+        }
+
+        protected void write(int rowNo, boolean anomaly, Object[] values) throws IOException {
+            writeLine(values);
+        }
+
+        private void writeLine(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(';');
+                }
+                writer.write(escape(values[i]));
+            }
+            writer.newLine();
+        }
+
+        private String escape(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String text = value.toString();
+            if (text.indexOf(';') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0) {
+                return "\"" + text.replace("\"", "\"\"") + "\"";
+            }
+            return text;
+        }
+
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            File csv = file.toFile();
+            try {
+                writer.close();
+                MAttachment attachment = new MAttachment(process.getCtx(), MPInstance.Table_ID,
+                                                         process.getAD_PInstance_ID(), process.get_TrxName());
+                attachment.addEntry(csv);
+                attachment.saveEx();
+            } finally {
+                // O arquivo temporário não fica no servidor, anexado ou não
+                Files.deleteIfExists(file);
+            }
+
+            process.addLog("- Detalhe anexado: " + csv.getName() + " (" + getRows() + " linhas)");
+            super.close();
+        }
+
+        public synchronized void discard() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // Arquivo descartado: erro ao fechar é irrelevante
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+}
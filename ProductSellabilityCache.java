@@ -0,0 +1,268 @@
+package org.compiere.model;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.compiere.util.CLogger;
+import org.compiere.util.DB;
+
+/**
+ * Cache local da situação de venda dos produtos (IsActive, IsSold, Name, M_Product_Category_ID)
+ * Usado pelo CalloutCustom.validateProduct a cada seleção de produto e pelo calculateDiscount
+ *
+ * Limitado por quantidade (LRU) e por tempo de vida (TTL), configuráveis em AD_SysConfig:
+ * CUSTOM_PRODUCT_CACHE_SIZE (padrão 10000) e CUSTOM_PRODUCT_CACHE_TTL (segundos, padrão 300).
+ * Os produtos alterados são removidos pelo CustomModelValidator após o commit; leituras do
+ * banco iniciadas antes de uma remoção não são guardadas (contador de gerações), para que
+ * uma linha anterior à alteração não volte ao cache.
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class ProductSellabilityCache {
+
+    /** Logger */
+    private static CLogger log = CLogger.getCLogger(ProductSellabilityCache.class);
+
+    /** Idas ao banco (CalloutMetrics) */
+    private static final CalloutMetrics.Metric s_metric = CalloutMetrics.register("ProductSellabilityCache");
+
+    /** Produtos em ordem de acesso; o mais antigo é removido ao exceder a capacidade */
+    private static final LinkedHashMap<Integer, Product> s_cache =
+        new LinkedHashMap<Integer, Product>(1024, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(Map.Entry<Integer, Product> eldest) {
+                return size() > getCapacity();
+            }
+        };
+
+    /** Incrementado a cada remoção; protegido por s_cache */
+    private static long s_generation = 0;
+
+    /**
+     * Situação de venda de um produto
+     */
+    public static class Product {
+        private final int productId;
+        private final boolean active;
+        private final boolean sold;
+        private final String name;
+        private final int categoryId;
+        private final long expiresAt;
+
+        Product(int productId, boolean active, boolean sold, String name, int categoryId, long expiresAt) {
+            this.productId = productId;
+            this.active = active;
+            this.sold = sold;
+            this.name = name;
+            this.categoryId = categoryId;
+            this.expiresAt = expiresAt;
+        }
+
+        public int getM_Product_ID() {
+            return productId;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public boolean isSold() {
+            return sold;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getM_Product_Category_ID() {
+            return categoryId;
+        }
+    }
+
+    /**
+     * Obter a situação de venda do produto
+     *
+     * @param M_Product_ID Produto
+     * @return Produto ou null se não existir
+     * @throws Exception Erro ao ler o produto do banco (o produto não é considerado válido)
+     */
+    public static Product get(int M_Product_ID) throws Exception {
+        long now = System.currentTimeMillis();
+        long generation;
+
+        synchronized (s_cache) {
+            Product product = s_cache.get(M_Product_ID);
+            if (product != null && product.expiresAt > now) {
+                return product;
+            }
+            generation = s_generation;
+        }
+
+        Product product = load(M_Product_ID);
+        if (product != null) {
+            synchronized (s_cache) {
+                // Remoção durante a leitura: o valor lido pode ser anterior à alteração
+                if (generation == s_generation) {
+                    s_cache.put(M_Product_ID, product);
+                }
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Remover um produto alterado
+     */
+    public static void remove(int M_Product_ID) {
+        synchronized (s_cache) {
+            s_cache.remove(M_Product_ID);
+            s_generation++;
+        }
+    }
+
+    /**
+     * Carregar o catálogo ativo, até a capacidade do cache
+     * Executado em segundo plano na inicialização do servidor
+     */
+    public static void warmUp() {
+        String sql = "SELECT M_Product_ID, IsActive, IsSold, Name, M_Product_Category_ID FROM M_Product " +
+                     "WHERE IsActive = 'Y' AND IsSold = 'Y'";
+        long expiresAt = System.currentTimeMillis() + getTtlMillis();
+        int loaded = 0;
+        long generation;
+        synchronized (s_cache) {
+            generation = s_generation;
+        }
+
+        try {
+            PreparedStatement pstmt = DB.prepareStatement(sql, null);
+            pstmt.setMaxRows(getCapacity());
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                Product product = new Product(rs.getInt(1), "Y".equals(rs.getString(2)),
+                                              "Y".equals(rs.getString(3)), rs.getString(4), rs.getInt(5),
+                                              expiresAt);
+                synchronized (s_cache) {
+                    // Produto removido durante a carga: a consulta pode ter lido a linha anterior
+                    // à alteração; os demais passam a ser lidos sob demanda
+                    if (generation != s_generation) {
+                        break;
+                    }
+                    // Não sobrescrever um produto carregado durante a carga
+                    if (!s_cache.containsKey(product.productId)) {
+                        s_cache.put(product.productId, product);
+                    }
+                }
+                loaded++;
+            }
+
+            rs.close();
+            pstmt.close();
+
+        } catch (Exception e) {
+            log.log(Level.SEVERE, "Erro ao carregar cache de produtos: " + e.getMessage(), e);
+        }
+
+        log.info("Produtos carregados: " + loaded);
+    }
+
+    /**
+     * Carregar em uma consulta os produtos informados que não estão no cache
+     * Usado pela pré-carga da digitação de pedidos (OrderEntryPrefetch)
+     *
+     * @param productIds Produtos
+     */
+    public static void preload(List<Integer> productIds) throws Exception {
+        long now = System.currentTimeMillis();
+        List<Integer> missing = new ArrayList<Integer>();
+        long generation;
+
+        synchronized (s_cache) {
+            generation = s_generation;
+            for (Integer productId : productIds) {
+                Product product = s_cache.get(productId);
+                if (product == null || product.expiresAt <= now) {
+                    missing.add(productId);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT M_Product_ID, IsActive, IsSold, Name, M_Product_Category_ID ")
+            .append("FROM M_Product WHERE M_Product_ID IN (");
+        for (int i = 0; i < missing.size(); i++) {
+            sql.append(i > 0 ? ", ?" : "?");
+        }
+        sql.append(")");
+
+        long expiresAt = now + getTtlMillis();
+        s_metric.dbCall();
+        PreparedStatement pstmt = DB.prepareStatement(sql.toString(), null);
+        for (int i = 0; i < missing.size(); i++) {
+            pstmt.setInt(i + 1, missing.get(i));
+        }
+        ResultSet rs = pstmt.executeQuery();
+
+        while (rs.next()) {
+            Product product = new Product(rs.getInt(1), "Y".equals(rs.getString(2)),
+                                          "Y".equals(rs.getString(3)), rs.getString(4), rs.getInt(5),
+                                          expiresAt);
+            synchronized (s_cache) {
+                // Remoção durante a leitura, como em get(): os produtos seguem para a leitura sob demanda
+                if (generation != s_generation) {
+                    break;
+                }
+                s_cache.put(product.productId, product);
+            }
+        }
+
+        rs.close();
+        pstmt.close();
+    }
+
+    /**
+     * Ler o produto do banco
+     * Erros são propagados: um produto não lido não pode ser tratado como inexistente e aceito
+     */
+    private static Product load(int M_Product_ID) throws Exception {
+        String sql = "SELECT IsActive, IsSold, Name, M_Product_Category_ID FROM M_Product WHERE M_Product_ID = ?";
+        s_metric.dbCall();
+        Product product = null;
+
+        PreparedStatement pstmt = DB.prepareStatement(sql, null);
+        try {
+            pstmt.setInt(1, M_Product_ID);
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                product = new Product(M_Product_ID, "Y".equals(rs.getString("IsActive")),
+                                      "Y".equals(rs.getString("IsSold")), rs.getString("Name"),
+                                      rs.getInt("M_Product_Category_ID"), System.currentTimeMillis() + getTtlMillis());
+            }
+
+            rs.close();
+        } finally {
+            pstmt.close();
+        }
+
+        return product;
+    }
+
+    private static int getCapacity() {
+        return MSysConfig.getIntValue("CUSTOM_PRODUCT_CACHE_SIZE", 10000);
+    }
+
+    private static long getTtlMillis() {
+        return MSysConfig.getIntValue("CUSTOM_PRODUCT_CACHE_TTL", 300) * 1000L;
+    }
+}
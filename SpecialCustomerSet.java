@@ -0,0 +1,214 @@
+package org.compiere.model;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.logging.Level;
+
+import org.compiere.util.CLogger;
+import org.compiere.util.DB;
+
+/**
+ * Conjunto em memória dos clientes especiais (IsCustomer = 'Y' e SO_CreditLimit acima do limite)
+ * Usado pelo CalloutCustom.calculateDiscount a cada alteração de quantidade
+ *
+ * Os parceiros especiais ficam em um vetor ordenado de C_BPartner_ID (busca binária), com
+ * tamanho proporcional aos clientes especiais e não ao maior ID. O conjunto publicado é
+ * imutável: cada alteração gera uma cópia, de modo que as consultas não usam sincronização.
+ * O limite é lido de AD_SysConfig (CUSTOM_SPECIAL_CUSTOMER_CREDIT_LIMIT, padrão 10000);
+ * o CustomModelValidator reconstrói o conjunto quando o limite muda e atualiza os
+ * parceiros alterados após o commit. Uma reconstrução em andamento durante um descarte ou
+ * uma alteração de parceiro não é publicada (contador de gerações), pois pode ter lido os
+ * dados anteriores.
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class SpecialCustomerSet {
+
+    /** Limite de crédito em AD_SysConfig */
+    public static final String SYSCONFIG_CreditLimit = "CUSTOM_SPECIAL_CUSTOMER_CREDIT_LIMIT";
+
+    /** Limite padrão */
+    private static final String DEFAULT_CreditLimit = "10000";
+
+    /** Logger */
+    private static CLogger log = CLogger.getCLogger(SpecialCustomerSet.class);
+
+    /** Idas ao banco (CalloutMetrics) */
+    private static final CalloutMetrics.Metric s_metric = CalloutMetrics.register("SpecialCustomerSet");
+
+    /** Conjunto publicado; null = reconstruir no próximo uso */
+    private static volatile Snapshot s_snapshot = null;
+
+    /** Protege s_snapshot e s_generation nas alterações e na publicação */
+    private static final Object s_lock = new Object();
+
+    /** Incrementado a cada descarte ou alteração sem conjunto publicado; protegido por s_lock */
+    private static long s_generation = 0;
+
+    /**
+     * Cópia imutável do conjunto
+     */
+    private static class Snapshot {
+        final BigDecimal threshold;
+        /** C_BPartner_ID dos clientes especiais, em ordem crescente */
+        final int[] partners;
+
+        Snapshot(BigDecimal threshold, int[] partners) {
+            this.threshold = threshold;
+            this.partners = partners;
+        }
+    }
+
+    /**
+     * Verificar se o parceiro é cliente especial
+     *
+     * @param C_BPartner_ID Parceiro
+     * @return true se for cliente especial
+     */
+    public static boolean contains(int C_BPartner_ID) {
+        Snapshot snapshot = s_snapshot;
+        if (snapshot == null) {
+            snapshot = rebuild();
+        }
+        return C_BPartner_ID > 0 && Arrays.binarySearch(snapshot.partners, C_BPartner_ID) >= 0;
+    }
+
+    /**
+     * Atualizar um parceiro alterado
+     *
+     * @param bp Parceiro
+     * @param deleted Parceiro excluído
+     */
+    public static void update(MBPartner bp, boolean deleted) {
+        synchronized (s_lock) {
+            Snapshot snapshot = s_snapshot;
+            if (snapshot == null) {
+                // Não construído ou em reconstrução, que pode ter lido o parceiro antes da
+                // alteração e não será publicada; a próxima consulta lê o parceiro atualizado
+                s_generation++;
+                return;
+            }
+
+            int partnerId = bp.getC_BPartner_ID();
+            boolean special = !deleted && isSpecial(bp.isCustomer(), bp.getSO_CreditLimit(), snapshot.threshold);
+            int index = Arrays.binarySearch(snapshot.partners, partnerId);
+            if ((index >= 0) == special) {
+                return;
+            }
+
+            int[] current = snapshot.partners;
+            int[] partners;
+            if (special) {
+                // Inserir na posição que mantém a ordem
+                int position = -index - 1;
+                partners = new int[current.length + 1];
+                System.arraycopy(current, 0, partners, 0, position);
+                partners[position] = partnerId;
+                System.arraycopy(current, position, partners, position + 1, current.length - position);
+            } else {
+                partners = new int[current.length - 1];
+                System.arraycopy(current, 0, partners, 0, index);
+                System.arraycopy(current, index + 1, partners, index, current.length - index - 1);
+            }
+            s_snapshot = new Snapshot(snapshot.threshold, partners);
+        }
+    }
+
+    /**
+     * Descartar o conjunto; a próxima consulta reconstrói com o limite atual
+     */
+    public static void reset() {
+        synchronized (s_lock) {
+            s_snapshot = null;
+            s_generation++;
+        }
+    }
+
+    /**
+     * Construir o conjunto, se ainda não construído
+     * Executado em segundo plano na inicialização do servidor
+     */
+    public static void warmUp() {
+        if (s_snapshot == null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Construir o conjunto a partir de C_BPartner
+     * Sincronizado para que consultas simultâneas após um reset façam uma única carga
+     */
+    private static synchronized Snapshot rebuild() {
+        Snapshot snapshot;
+        long generation;
+        synchronized (s_lock) {
+            snapshot = s_snapshot;
+            if (snapshot != null) {
+                return snapshot;
+            }
+            generation = s_generation;
+        }
+
+        BigDecimal threshold = getThreshold();
+        int[] partners = new int[256];
+        int count = 0;
+        String sql = "SELECT C_BPartner_ID FROM C_BPartner WHERE IsCustomer = 'Y' AND SO_CreditLimit > ? " +
+                     "ORDER BY C_BPartner_ID";
+        s_metric.dbCall();
+
+        try {
+            PreparedStatement pstmt = DB.prepareStatement(sql, null);
+            pstmt.setBigDecimal(1, threshold);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                if (count == partners.length) {
+                    partners = Arrays.copyOf(partners, count * 2);
+                }
+                partners[count++] = rs.getInt(1);
+            }
+
+            rs.close();
+            pstmt.close();
+
+        } catch (Exception e) {
+            // Conjunto vazio até o próximo reset: nenhum desconto especial é aplicado
+            log.log(Level.SEVERE, "Erro ao carregar clientes especiais: " + e.getMessage(), e);
+        }
+
+        snapshot = new Snapshot(threshold, Arrays.copyOf(partners, count));
+        synchronized (s_lock) {
+            // Descarte ou alteração durante a leitura: o conjunto lido serve apenas a esta
+            // consulta; a próxima reconstrói
+            if (generation != s_generation) {
+                return snapshot;
+            }
+            s_snapshot = snapshot;
+        }
+        log.info("Clientes especiais: " + count + " (limite " + threshold + ")");
+        return snapshot;
+    }
+
+    /**
+     * Regra de cliente especial
+     */
+    private static boolean isSpecial(boolean isCustomer, BigDecimal creditLimit, BigDecimal threshold) {
+        return isCustomer && creditLimit != null && creditLimit.compareTo(threshold) > 0;
+    }
+
+    /**
+     * Limite de crédito configurado
+     */
+    private static BigDecimal getThreshold() {
+        String value = MSysConfig.getValue(SYSCONFIG_CreditLimit, DEFAULT_CreditLimit);
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            log.warning(SYSCONFIG_CreditLimit + " inválido: " + value);
+            return new BigDecimal(DEFAULT_CreditLimit);
+        }
+    }
+}
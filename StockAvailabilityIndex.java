@@ -0,0 +1,341 @@
+package org.adempiere.model;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.compiere.model.MSysConfig;
+import org.compiere.util.CLogger;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+
+/**
+ * Índice em memória do estoque (soma de M_Storage.QtyOnHand) por produto e armazém
+ * Usado pela validação de estoque do CustomModelValidator ao completar pedidos
+ *
+ * Chave long (M_Product_ID << 32 | M_Warehouse_ID) em tabelas de endereçamento aberto,
+ * divididas em faixas com bloqueio próprio. Carregado de M_Storage na inicialização,
+ * atualizado pelas variações de M_Storage após o commit e reconciliado periodicamente
+ * com o banco, corrigindo divergências.
+ *
+ * AD_SysConfig: CUSTOM_STOCK_INDEX = Y ativa o índice (padrão N: consulta ao banco);
+ * CUSTOM_STOCK_INDEX_RECONCILE = intervalo da reconciliação em minutos (padrão 15).
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class StockAvailabilityIndex {
+
+    /** Logger */
+    private static CLogger log = CLogger.getCLogger(StockAvailabilityIndex.class);
+
+    /** Quantidade de faixas (potência de 2) */
+    private static final int STRIPES = 64;
+
+    /** Faixas */
+    private static final Stripe[] s_stripes = new Stripe[STRIPES];
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            s_stripes[i] = new Stripe();
+        }
+    }
+
+    /** Variações de M_Storage sendo aplicadas (a partir do início da carga) */
+    private static volatile boolean s_tracking = false;
+
+    /** Carga inicial concluída */
+    private static volatile boolean s_ready = false;
+
+    /** Reconciliação agendada */
+    private static ScheduledExecutorService s_scheduler = null;
+
+    /**
+     * Faixa do índice: tabela de endereçamento aberto (sondagem linear), chave 0 = vazia
+     */
+    private static final class Stripe {
+        private long[] keys = new long[64];
+        private BigDecimal[] values = new BigDecimal[64];
+        /** Instante da última variação aplicada, usado pela reconciliação */
+        private long[] updated = new long[64];
+        private int size = 0;
+
+        synchronized BigDecimal get(long key) {
+            int slot = find(keys, key);
+            return keys[slot] == key ? values[slot] : null;
+        }
+
+        synchronized void add(long key, BigDecimal delta, long now) {
+            int slot = slot(key);
+            values[slot] = values[slot] == null ? delta : values[slot].add(delta);
+            updated[slot] = now;
+        }
+
+        /**
+         * Corrigir o valor se a chave não recebeu variações desde o início da reconciliação
+         *
+         * @return true se o valor foi corrigido
+         */
+        synchronized boolean repair(long key, BigDecimal value, long since) {
+            int slot = find(keys, key);
+            if (keys[slot] == key) {
+                if (updated[slot] >= since || values[slot].compareTo(value) == 0) {
+                    return false;
+                }
+            } else if (value.signum() == 0) {
+                return false;
+            }
+            slot = slot(key);
+            values[slot] = value;
+            return true;
+        }
+
+        /**
+         * Zerar as chaves que não existem mais no banco
+         *
+         * @param marked Chaves vistas na reconciliação, por faixa
+         * @return Quantidade de chaves zeradas
+         */
+        synchronized int clearMissing(LongSet marked, long since) {
+            int cleared = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0 && updated[i] < since && values[i].signum() != 0 && !marked.contains(keys[i])) {
+                    values[i] = Env.ZERO;
+                    cleared++;
+                }
+            }
+            return cleared;
+        }
+
+        synchronized void clear() {
+            keys = new long[64];
+            values = new BigDecimal[64];
+            updated = new long[64];
+            size = 0;
+        }
+
+        /** Posição da chave, incluída se não existir */
+        private int slot(long key) {
+            int slot = find(keys, key);
+            if (keys[slot] != key) {
+                if ((size + 1) * 2 > keys.length) {
+                    resize();
+                    slot = find(keys, key);
+                }
+                keys[slot] = key;
+                updated[slot] = 0;
+                size++;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            BigDecimal[] oldValues = values;
+            long[] oldUpdated = updated;
+            keys = new long[oldKeys.length * 2];
+            values = new BigDecimal[keys.length];
+            updated = new long[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = find(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                    updated[slot] = oldUpdated[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Conjunto simples de chaves long (endereçamento aberto), usado na reconciliação
+     */
+    private static final class LongSet {
+        private long[] keys = new long[1024];
+        private int size = 0;
+
+        void add(long key) {
+            int slot = find(keys, key);
+            if (keys[slot] == key) {
+                return;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                long[] old = keys;
+                keys = new long[old.length * 2];
+                for (long k : old) {
+                    if (k != 0) {
+                        keys[find(keys, k)] = k;
+                    }
+                }
+                slot = find(keys, key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+
+        boolean contains(long key) {
+            return keys[find(keys, key)] == key;
+        }
+    }
+
+    /**
+     * @return true se o índice estiver ativo (CUSTOM_STOCK_INDEX) e carregado
+     */
+    public static boolean isAvailable() {
+        return s_ready && MSysConfig.getBooleanValue("CUSTOM_STOCK_INDEX", false);
+    }
+
+    /**
+     * @return true se as variações de M_Storage devem ser aplicadas ao índice
+     */
+    public static boolean isTracking() {
+        return s_tracking;
+    }
+
+    /**
+     * Obter o estoque do produto no armazém
+     *
+     * @return Soma de QtyOnHand (zero se não houver estoque)
+     */
+    public static BigDecimal getQtyOnHand(int M_Product_ID, int M_Warehouse_ID) {
+        long key = key(M_Product_ID, M_Warehouse_ID);
+        BigDecimal qty = stripe(key).get(key);
+        return qty != null ? qty : Env.ZERO;
+    }
+
+    /**
+     * Aplicar a variação de estoque de um registro de M_Storage confirmado
+     *
+     * @param M_Product_ID Produto
+     * @param M_Warehouse_ID Armazém
+     * @param delta Variação de QtyOnHand
+     */
+    public static void add(int M_Product_ID, int M_Warehouse_ID, BigDecimal delta) {
+        if (!s_tracking || delta == null || delta.signum() == 0) {
+            return;
+        }
+        long key = key(M_Product_ID, M_Warehouse_ID);
+        stripe(key).add(key, delta, System.currentTimeMillis());
+    }
+
+    /**
+     * Carregar o índice e agendar a reconciliação, se CUSTOM_STOCK_INDEX estiver ativo
+     * Executado em segundo plano na inicialização do servidor
+     */
+    public static synchronized void start() {
+        if (s_scheduler != null || !MSysConfig.getBooleanValue("CUSTOM_STOCK_INDEX", false)) {
+            return;
+        }
+
+        try {
+            // Variações recebidas durante a carga são corrigidas na primeira reconciliação
+            s_tracking = true;
+            reconcile(0);
+            s_ready = true;
+            log.info("Índice de estoque carregado");
+        } catch (Exception e) {
+            s_tracking = false;
+            for (Stripe stripe : s_stripes) {
+                stripe.clear();
+            }
+            log.log(Level.SEVERE, "Erro ao carregar índice de estoque: " + e.getMessage(), e);
+            return;
+        }
+
+        long minutes = Math.max(1, MSysConfig.getIntValue("CUSTOM_STOCK_INDEX_RECONCILE", 15));
+        s_scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "StockAvailabilityIndex-Reconcile");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        s_scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    int repaired = reconcile(System.currentTimeMillis());
+                    if (repaired > 0) {
+                        log.warning("Índice de estoque: " + repaired + " divergências corrigidas");
+                    }
+                } catch (Exception e) {
+                    log.log(Level.SEVERE, "Erro na reconciliação do índice de estoque: " + e.getMessage(), e);
+                }
+            }
+        }, minutes, minutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Comparar o índice com M_Storage e corrigir as divergências
+     * Chaves alteradas depois do início da leitura são mantidas: a variação já foi aplicada
+     *
+     * @param since Início da reconciliação (0 = carga inicial, aceita todos os valores)
+     * @return Quantidade de chaves corrigidas
+     */
+    private static int reconcile(long since) throws Exception {
+        String sql = "SELECT s.M_Product_ID, l.M_Warehouse_ID, SUM(s.QtyOnHand) " +
+                     "FROM M_Storage s " +
+                     "INNER JOIN M_Locator l ON (s.M_Locator_ID = l.M_Locator_ID) " +
+                     "GROUP BY s.M_Product_ID, l.M_Warehouse_ID";
+        long readStart = since > 0 ? since : Long.MAX_VALUE;
+        LongSet seen = new LongSet();
+        int repaired = 0;
+
+        PreparedStatement pstmt = DB.prepareStatement(sql, null);
+        try {
+            pstmt.setFetchSize(10000);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                long key = key(rs.getInt(1), rs.getInt(2));
+                BigDecimal qty = rs.getBigDecimal(3);
+                seen.add(key);
+                if (stripe(key).repair(key, qty != null ? qty : Env.ZERO, readStart)) {
+                    repaired++;
+                }
+            }
+            rs.close();
+        } finally {
+            pstmt.close();
+        }
+
+        if (since > 0) {
+            for (Stripe stripe : s_stripes) {
+                repaired += stripe.clearMissing(seen, since);
+            }
+        }
+        return since > 0 ? repaired : 0;
+    }
+
+    private static long key(int M_Product_ID, int M_Warehouse_ID) {
+        return ((long) M_Product_ID << 32) | (M_Warehouse_ID & 0xFFFFFFFFL);
+    }
+
+    private static Stripe stripe(long key) {
+        return s_stripes[(int) (mix(key) >>> 58) & (STRIPES - 1)];
+    }
+
+    /**
+     * Posição da chave ou da primeira posição livre (sondagem linear)
+     */
+    private static int find(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /** Espalhamento da chave (finalizador do MurmurHash3) */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb53a3a5a4d2bL;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,178 @@
+package org.compiere.model;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.compiere.util.CLogger;
+import org.compiere.util.DB;
+
+/**
+ * Cache de taxas de imposto (C_Tax.Rate) compartilhado por toda a JVM
+ * C_Tax tem poucas linhas e quase não muda: a tabela inteira é carregada no
+ * primeiro uso em vetores ordenados por C_Tax_ID (chaves int, busca binária)
+ * e descartada pelo CustomModelValidator quando uma taxa é alterada. Cargas iniciadas antes
+ * de um descarte não são publicadas (contador de gerações), para que taxas lidas antes do
+ * commit da alteração não voltem ao cache.
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class TaxRateCache {
+
+    /** Logger */
+    private static CLogger log = CLogger.getCLogger(TaxRateCache.class);
+
+    /** Taxas carregadas; null = recarregar no próximo uso */
+    private static volatile Snapshot s_snapshot = null;
+
+    /** Protege s_snapshot e s_generation na publicação e no descarte */
+    private static final Object s_lock = new Object();
+
+    /** Incrementado a cada descarte; protegido por s_lock */
+    private static long s_generation = 0;
+
+    /** Contadores */
+    private static final AtomicLong s_hits = new AtomicLong();
+    private static final AtomicLong s_misses = new AtomicLong();
+    private static final AtomicLong s_loads = new AtomicLong();
+    
+    /** Idas ao banco (CalloutMetrics) */
+    private static final CalloutMetrics.Metric s_metric = CalloutMetrics.register("TaxRateCache");
+
+    /**
+     * Cópia imutável de C_Tax
+     */
+    private static class Snapshot {
+        final int[] taxIds;
+        final BigDecimal[] rates;
+
+        Snapshot(int[] taxIds, BigDecimal[] rates) {
+            this.taxIds = taxIds;
+            this.rates = rates;
+        }
+    }
+
+    /**
+     * Obter a taxa de imposto
+     *
+     * @param C_Tax_ID Imposto
+     * @return Taxa (percentual) ou null se não encontrada
+     */
+    public static BigDecimal get(int C_Tax_ID) {
+        Snapshot snapshot = s_snapshot;
+        if (snapshot == null) {
+            snapshot = load();
+        }
+
+        int index = Arrays.binarySearch(snapshot.taxIds, C_Tax_ID);
+        if (index >= 0) {
+            s_hits.incrementAndGet();
+            return snapshot.rates[index];
+        }
+
+        // Imposto criado depois da carga e ainda não invalidado
+        s_misses.incrementAndGet();
+        s_metric.dbCall();
+        return DB.getSQLValueBD(null, "SELECT Rate FROM C_Tax WHERE C_Tax_ID = ?", C_Tax_ID);
+    }
+
+    /**
+     * Descartar as taxas carregadas; a próxima consulta recarrega C_Tax
+     */
+    public static void reset() {
+        synchronized (s_lock) {
+            s_snapshot = null;
+            s_generation++;
+        }
+    }
+
+    /**
+     * Carregar as taxas, se ainda não carregadas
+     */
+    public static void warmUp() {
+        if (s_snapshot == null) {
+            load();
+        }
+    }
+
+    /**
+     * @return Consultas atendidas pelo cache
+     */
+    public static long getHits() {
+        return s_hits.get();
+    }
+
+    /**
+     * @return Consultas que foram ao banco
+     */
+    public static long getMisses() {
+        return s_misses.get();
+    }
+
+    /**
+     * @return Quantidade de cargas completas de C_Tax
+     */
+    public static long getLoads() {
+        return s_loads.get();
+    }
+
+    /**
+     * Carregar todas as taxas de C_Tax
+     * Sincronizado para que acessos simultâneos após um reset façam uma única carga
+     */
+    private static synchronized Snapshot load() {
+        Snapshot snapshot;
+        long generation;
+        synchronized (s_lock) {
+            snapshot = s_snapshot;
+            if (snapshot != null) {
+                return snapshot;
+            }
+            generation = s_generation;
+        }
+
+        List<Integer> taxIds = new ArrayList<Integer>();
+        List<BigDecimal> rates = new ArrayList<BigDecimal>();
+        String sql = "SELECT C_Tax_ID, Rate FROM C_Tax ORDER BY C_Tax_ID";
+        s_metric.dbCall();
+
+        try {
+            PreparedStatement pstmt = DB.prepareStatement(sql, null);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                taxIds.add(rs.getInt(1));
+                rates.add(rs.getBigDecimal(2));
+            }
+
+            rs.close();
+            pstmt.close();
+
+        } catch (Exception e) {
+            // Sem cache: as consultas seguem individualmente ao banco até o próximo reset
+            log.log(Level.SEVERE, "Erro ao carregar taxas de imposto: " + e.getMessage(), e);
+        }
+
+        int[] ids = new int[taxIds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = taxIds.get(i);
+        }
+
+        snapshot = new Snapshot(ids, rates.toArray(new BigDecimal[rates.size()]));
+        synchronized (s_lock) {
+            // Descarte durante a leitura: as taxas lidas podem ser anteriores à alteração e
+            // servem apenas a esta consulta; a próxima recarrega
+            if (generation == s_generation) {
+                s_snapshot = snapshot;
+            }
+        }
+        s_loads.incrementAndGet();
+        return snapshot;
+    }
+}
@@ -0,0 +1,152 @@
+package org.adempiere.model;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.compiere.model.MBPartner;
+import org.compiere.model.MOrder;
+import org.compiere.model.MOrderLine;
+import org.compiere.util.Trx;
+import org.compiere.util.TrxEventListener;
+
+/**
+ * Cache dos registros lidos pelas regras do CustomModelValidator, por transação
+ * Evita reler o mesmo parceiro ou as mesmas linhas de pedido em regras e documentos
+ * diferentes da mesma transação (ex.: importação de pedidos em lote)
+ *
+ * As entradas de uma transação são descartadas no commit, rollback ou close; as de um
+ * registro alterado na transação são removidas pelo validator. Sem transação nada é guardado.
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class TrxPOCache {
+
+    /** Máximo de entradas por transação; ao exceder, a transação recomeça vazia */
+    private static final int MAX_ENTRIES = 1000;
+
+    /** Prefixo das linhas de um pedido */
+    private static final String LINES = "C_OrderLine|C_Order_ID=";
+
+    /** Entradas por transação */
+    private static final ConcurrentHashMap<String, Map<String, Object>> s_trx =
+        new ConcurrentHashMap<String, Map<String, Object>>();
+
+    /**
+     * Obter o parceiro de negócio na transação
+     *
+     * @param ctx Contexto
+     * @param C_BPartner_ID Parceiro
+     * @param trxName Transação
+     * @return Parceiro
+     */
+    public static MBPartner getBPartner(Properties ctx, int C_BPartner_ID, String trxName) {
+        Map<String, Object> entries = getEntries(trxName);
+        String key = getKey("C_BPartner", C_BPartner_ID);
+        MBPartner bp = entries != null ? (MBPartner) entries.get(key) : null;
+        if (bp == null) {
+            bp = new MBPartner(ctx, C_BPartner_ID, trxName);
+            put(entries, key, bp);
+        }
+        return bp;
+    }
+
+    /**
+     * Obter as linhas do pedido na transação
+     *
+     * @param order Pedido
+     * @return Linhas
+     */
+    public static MOrderLine[] getLines(MOrder order) {
+        Map<String, Object> entries = getEntries(order.get_TrxName());
+        String key = LINES + order.getC_Order_ID();
+        MOrderLine[] lines = entries != null ? (MOrderLine[]) entries.get(key) : null;
+        if (lines == null) {
+            // Relidas do banco: as linhas guardadas no próprio MOrder podem estar desatualizadas
+            lines = order.getLines(true, null);
+            if (lines != null) {
+                put(entries, key, lines);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Remover um registro alterado na transação
+     *
+     * @param trxName Transação
+     * @param tableName Tabela
+     * @param id ID do registro
+     */
+    public static void remove(String trxName, String tableName, int id) {
+        Map<String, Object> entries = trxName != null ? s_trx.get(trxName) : null;
+        if (entries != null) {
+            entries.remove(getKey(tableName, id));
+        }
+    }
+
+    /**
+     * Remover as linhas de um pedido alteradas na transação
+     *
+     * @param trxName Transação
+     * @param C_Order_ID Pedido
+     */
+    public static void removeLines(String trxName, int C_Order_ID) {
+        Map<String, Object> entries = trxName != null ? s_trx.get(trxName) : null;
+        if (entries != null) {
+            entries.remove(LINES + C_Order_ID);
+        }
+    }
+
+    /**
+     * Entradas da transação, criadas no primeiro uso com o descarte no fim da transação
+     *
+     * @return Entradas ou null sem transação
+     */
+    private static Map<String, Object> getEntries(final String trxName) {
+        if (trxName == null) {
+            return null;
+        }
+        Map<String, Object> entries = s_trx.get(trxName);
+        if (entries != null) {
+            return entries;
+        }
+
+        Trx trx = Trx.get(trxName, false);
+        if (trx == null) {
+            return null;
+        }
+        entries = new ConcurrentHashMap<String, Object>();
+        Map<String, Object> existing = s_trx.putIfAbsent(trxName, entries);
+        if (existing != null) {
+            return existing;
+        }
+        trx.addTrxEventListener(new TrxEventListener() {
+            public void afterCommit(Trx trx, boolean success) {
+                s_trx.remove(trxName);
+            }
+            public void afterRollback(Trx trx, boolean success) {
+                s_trx.remove(trxName);
+            }
+            public void afterClose(Trx trx) {
+                s_trx.remove(trxName);
+            }
+        });
+        return entries;
+    }
+
+    private static void put(Map<String, Object> entries, String key, Object value) {
+        if (entries == null) {
+            return;
+        }
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        entries.put(key, value);
+    }
+
+    private static String getKey(String tableName, int id) {
+        return tableName + "|" + id;
+    }
+}
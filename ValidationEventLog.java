@@ -0,0 +1,293 @@
+package org.adempiere.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import org.compiere.model.CalloutMetrics;
+import org.compiere.model.MSysConfig;
+import org.compiere.model.PO;
+import org.compiere.util.CLogger;
+
+/**
+ * Eventos das regras do CustomModelValidator: duração de cada execução e rejeições
+ *
+ * As regras publicam em um buffer circular sem bloqueio; com o buffer cheio o evento é
+ * descartado e contado, sem atrasar a gravação. Uma thread em segundo plano consome os
+ * eventos a cada segundo: acumula chamadas, rejeições e o histograma de latência por regra
+ * (CalloutMetrics, método "CustomModelValidator.<Regra>") e grava as rejeições e, a cada
+ * minuto, o resumo por regra em um arquivo texto com rotação por tamanho.
+ *
+ * AD_SysConfig: CUSTOM_VALIDATOR_EVENTS = Y ativa os eventos (verificado a cada minuto);
+ * CUSTOM_VALIDATOR_EVENTS_FILE = caminho do arquivo (vazio: apenas métricas);
+ * CUSTOM_VALIDATOR_EVENTS_FILE_SIZE = tamanho máximo em MB antes da rotação (padrão 10).
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class ValidationEventLog {
+
+    /** Logger */
+    private static CLogger log = CLogger.getCLogger(ValidationEventLog.class);
+
+    /** Capacidade do buffer (potência de 2) */
+    private static final int CAPACITY = 8192;
+    private static final int MASK = CAPACITY - 1;
+
+    /** Intervalo de consumo do buffer */
+    private static final long DRAIN_MILLIS = 1000L;
+
+    /** Intervalo de verificação da configuração e de gravação do resumo */
+    private static final long REFRESH_MILLIS = 60 * 1000L;
+
+    /** Buffer circular: posições reservadas por s_head, consumidas até s_tail */
+    private static final AtomicReferenceArray<Event> s_ring = new AtomicReferenceArray<Event>(CAPACITY);
+    private static final AtomicLong s_head = new AtomicLong();
+    private static volatile long s_tail = 0;
+
+    /** Eventos descartados com o buffer cheio */
+    private static final LongAdder s_dropped = new LongAdder();
+
+    /** Eventos ativos */
+    private static volatile boolean s_enabled = false;
+
+    /** Próxima verificação de CUSTOM_VALIDATOR_EVENTS */
+    private static volatile long s_checkAt = 0;
+
+    /** Consumidor iniciado */
+    private static ScheduledExecutorService s_consumer = null;
+
+    /** Contadores por regra, usados apenas pelo consumidor */
+    private static final Map<String, RuleStats> s_stats = new LinkedHashMap<String, RuleStats>();
+
+    /** Próxima gravação do resumo, usada apenas pelo consumidor */
+    private static long s_summaryAt = 0;
+
+    /**
+     * Execução de uma regra
+     */
+    private static final class Event {
+        final long time;
+        final String rule;
+        final String tableName;
+        final int recordId;
+        final int clientId;
+        final int event;
+        final long nanos;
+        /** Mensagem de rejeição; null = aprovado */
+        final String error;
+        final int partnerId;
+        final int productId;
+
+        Event(String rule, PO po, int event, long nanos, String error) {
+            this.time = System.currentTimeMillis();
+            this.rule = rule;
+            this.tableName = po.get_TableName();
+            this.recordId = po.get_ID();
+            this.clientId = po.getAD_Client_ID();
+            this.event = event;
+            this.nanos = nanos;
+            this.error = error;
+            // Parceiro e produto apenas nas rejeições, lidos antes que o registro mude
+            this.partnerId = error != null ? getValueAsInt(po, "C_BPartner_ID") : 0;
+            this.productId = error != null ? getValueAsInt(po, "M_Product_ID") : 0;
+        }
+    }
+
+    /**
+     * Totais de uma regra
+     */
+    private static final class RuleStats {
+        final CalloutMetrics.Metric latency;
+        long calls = 0;
+        long rejections = 0;
+
+        RuleStats(String rule) {
+            latency = CalloutMetrics.register("CustomModelValidator." + rule);
+        }
+    }
+
+    /**
+     * Iniciar a medição de uma regra
+     *
+     * @return Instante inicial (System.nanoTime) ou 0 se os eventos estiverem desativados
+     */
+    public static long start() {
+        if (System.currentTimeMillis() >= s_checkAt) {
+            refresh();
+        }
+        if (!s_enabled) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        return start != 0 ? start : 1;
+    }
+
+    /**
+     * Publicar a execução de uma regra, sem bloquear
+     *
+     * @param rule Nome da regra
+     * @param po Registro
+     * @param event Evento (TYPE_ ou TIMING_)
+     * @param start Retorno de start(); 0 = eventos desativados
+     * @param error Mensagem de rejeição ou null
+     */
+    public static void publish(String rule, PO po, int event, long start, String error) {
+        if (start == 0) {
+            return;
+        }
+        Event e = new Event(rule, po, event, System.nanoTime() - start, error);
+
+        while (true) {
+            long head = s_head.get();
+            if (head - s_tail >= CAPACITY) {
+                s_dropped.increment();
+                return;
+            }
+            if (s_head.compareAndSet(head, head + 1)) {
+                s_ring.set((int) head & MASK, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ler CUSTOM_VALIDATOR_EVENTS e iniciar o consumidor na primeira ativação
+     */
+    private static synchronized void refresh() {
+        if (System.currentTimeMillis() < s_checkAt) {
+            return;
+        }
+        s_enabled = MSysConfig.getBooleanValue("CUSTOM_VALIDATOR_EVENTS", false);
+        s_checkAt = System.currentTimeMillis() + REFRESH_MILLIS;
+
+        if (s_enabled && s_consumer == null) {
+            s_consumer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "ValidationEventLog-Consumer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            s_consumer.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        drain();
+                    } catch (Exception e) {
+                        log.log(Level.WARNING, "Erro ao gravar eventos do validator: " + e.getMessage(), e);
+                    }
+                }
+            }, DRAIN_MILLIS, DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Consumir os eventos publicados: acumular por regra e gravar rejeições e resumo
+     * Executado apenas pela thread do consumidor
+     */
+    private static void drain() throws IOException {
+        List<String> lines = new ArrayList<String>();
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+        long tail = s_tail;
+        while (true) {
+            int slot = (int) tail & MASK;
+            Event e = s_ring.get(slot);
+            if (e == null) {
+                // Posição livre ou reservada e ainda não preenchida: continua na próxima rodada
+                break;
+            }
+            s_ring.set(slot, null);
+            s_tail = ++tail;
+
+            RuleStats stats = s_stats.get(e.rule);
+            if (stats == null) {
+                stats = new RuleStats(e.rule);
+                s_stats.put(e.rule, stats);
+            }
+            stats.calls++;
+            stats.latency.record(e.nanos);
+            if (e.error != null) {
+                stats.rejections++;
+                lines.add(format.format(new Date(e.time)) + " REJECT rule=" + e.rule + " table=" + e.tableName
+                          + " id=" + e.recordId + " client=" + e.clientId + " event=" + e.event
+                          + " partner=" + e.partnerId + " product=" + e.productId
+                          + " us=" + (e.nanos / 1000) + " msg=\"" + e.error.replace('\n', '|').replace('"', '\'') + "\"");
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        if (now >= s_summaryAt) {
+            s_summaryAt = now + REFRESH_MILLIS;
+            String time = format.format(new Date(now));
+            for (Map.Entry<String, RuleStats> entry : s_stats.entrySet()) {
+                RuleStats stats = entry.getValue();
+                lines.add(time + " SUMMARY rule=" + entry.getKey() + " calls=" + stats.calls
+                          + " rejections=" + stats.rejections
+                          + " p50us=" + (stats.latency.getPercentile(50) / 1000)
+                          + " p99us=" + (stats.latency.getPercentile(99) / 1000));
+            }
+            long dropped = s_dropped.sum();
+            if (dropped > 0) {
+                lines.add(time + " SUMMARY dropped=" + dropped);
+            }
+        }
+
+        if (!lines.isEmpty()) {
+            write(lines);
+        }
+    }
+
+    /**
+     * Acrescentar linhas ao arquivo, se configurado, renomeando-o para .1 ao atingir o tamanho máximo
+     */
+    private static void write(List<String> lines) throws IOException {
+        String fileName = MSysConfig.getValue("CUSTOM_VALIDATOR_EVENTS_FILE", null);
+        if (fileName == null || fileName.trim().length() == 0) {
+            return;
+        }
+
+        Path file = Paths.get(fileName.trim());
+        long maxBytes = Math.max(1, MSysConfig.getIntValue("CUSTOM_VALIDATOR_EVENTS_FILE_SIZE", 10)) * 1024L * 1024L;
+        if (Files.exists(file) && Files.size(file) >= maxBytes) {
+            Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                                                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        try {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Valor inteiro de uma coluna, se a tabela a tiver
+     */
+    private static int getValueAsInt(PO po, String columnName) {
+        return po.get_ColumnIndex(columnName) >= 0 ? po.get_ValueAsInt(columnName) : 0;
+    }
+}
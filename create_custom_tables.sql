@@ -0,0 +1,98 @@
+-- Script SQL para criar as tabelas auxiliares dos componentes personalizados
+-- Execute após create_custom_window.sql
+
+-- =====================================================
+-- 1. CHECKPOINT DA ATUALIZAÇÃO DE PREÇOS (CustomProcess)
+-- =====================================================
+
+-- Última chave confirmada por partição (0 = execução sequencial)
+-- Permite continuar uma execução interrompida com o parâmetro IsResume
+CREATE TABLE Custom_PriceCheckpoint (
+    AD_Client_ID            NUMERIC(10)     NOT NULL,
+    AD_Process_ID           NUMERIC(10)     NOT NULL,
+    Partition_ID            NUMERIC(10)     NOT NULL,
+    Fingerprint             VARCHAR(255)    NOT NULL,
+    M_Product_ID            NUMERIC(10)     NOT NULL,
+    M_PriceList_Version_ID  NUMERIC(10)     NOT NULL,
+    IsCompleted             CHAR(1)         DEFAULT 'N' NOT NULL,
+    Updated                 TIMESTAMP       DEFAULT NOW() NOT NULL,
+    CONSTRAINT Custom_PriceCheckpoint_Key PRIMARY KEY (AD_Client_ID, AD_Process_ID, Partition_ID)
+);
+
+-- =====================================================
+-- 2. RESUMO DE VENDAS POR PARCEIRO E DIA (CustomModelValidator / CustomProcess)
+-- =====================================================
+
+-- Mantido incrementalmente pelo CustomModelValidator (complete, void, reactivate)
+-- Carga inicial: executar o CustomProcess com Action = S
+CREATE TABLE Custom_SalesSummary (
+    AD_Client_ID            NUMERIC(10)     NOT NULL,
+    C_BPartner_ID           NUMERIC(10)     NOT NULL,
+    DateOrdered             TIMESTAMP       NOT NULL,
+    GrandTotal              NUMERIC         DEFAULT 0 NOT NULL,
+    OrderCount              NUMERIC(10)     DEFAULT 0 NOT NULL,
+    Updated                 TIMESTAMP       DEFAULT NOW() NOT NULL,
+    CONSTRAINT Custom_SalesSummary_Key PRIMARY KEY (AD_Client_ID, C_BPartner_ID, DateOrdered)
+);
+
+CREATE INDEX Custom_SalesSummary_Date ON Custom_SalesSummary (DateOrdered);
+
+-- =====================================================
+-- 3. FAIXAS DE DESCONTO (CalloutCustom / DiscountTierEngine)
+-- =====================================================
+
+-- Desconto por quantidade mínima, por categoria de produto, lista de preços e grupo de parceiro
+-- Colunas nulas valem para qualquer valor; a combinação mais específica prevalece
+-- Sem faixas ativas para o cliente, valem as faixas padrão (10 -> 5%, 50 -> 10%)
+CREATE TABLE Custom_DiscountTier (
+    Custom_DiscountTier_ID  NUMERIC(10)     NOT NULL,
+    AD_Client_ID            NUMERIC(10)     NOT NULL,
+    AD_Org_ID               NUMERIC(10)     DEFAULT 0 NOT NULL,
+    IsActive                CHAR(1)         DEFAULT 'Y' NOT NULL,
+    Created                 TIMESTAMP       DEFAULT NOW() NOT NULL,
+    CreatedBy               NUMERIC(10)     NOT NULL,
+    Updated                 TIMESTAMP       DEFAULT NOW() NOT NULL,
+    UpdatedBy               NUMERIC(10)     NOT NULL,
+    M_Product_Category_ID   NUMERIC(10),
+    M_PriceList_ID          NUMERIC(10),
+    C_BP_Group_ID           NUMERIC(10),
+    MinQty                  NUMERIC         NOT NULL,
+    Discount                NUMERIC         NOT NULL,
+    CONSTRAINT Custom_DiscountTier_Key PRIMARY KEY (Custom_DiscountTier_ID)
+);
+
+CREATE UNIQUE INDEX Custom_DiscountTier_Rule ON Custom_DiscountTier (AD_Client_ID,
+    COALESCE(M_Product_Category_ID, 0), COALESCE(M_PriceList_ID, 0), COALESCE(C_BP_Group_ID, 0), MinQty);
+
+-- =====================================================
+-- 4. NOME NORMALIZADO DE PARCEIROS (CustomModelValidator / BPartnerNameIndex)
+-- =====================================================
+
+-- Nome sem acentos, em minúsculas e com espaços unificados, usado na validação de nome duplicado
+-- com CUSTOM_BPARTNER_NAME_INDEX = Y. O filtro de BPartnerNameIndex é carregado com as chaves
+-- calculadas por esta função
+-- unaccent(regdictionary, text) é declarado STABLE; com o dicionário fixo o resultado
+-- não muda, o que permite declarar a função IMMUTABLE e usá-la no índice
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+CREATE OR REPLACE FUNCTION custom_normalize_name(p_Name VARCHAR) RETURNS VARCHAR AS $$
+    SELECT LOWER(TRIM(REGEXP_REPLACE(public.unaccent('public.unaccent'::regdictionary, p_Name), '\s+', ' ', 'g')))
+$$ LANGUAGE SQL IMMUTABLE STRICT;
+
+CREATE INDEX Custom_BPartner_NameKey ON C_BPartner (custom_normalize_name(Name));
+
+-- Carga incremental do filtro de nomes (parceiros atualizados desde a carga anterior)
+CREATE INDEX Custom_BPartner_Updated ON C_BPartner (AD_Client_ID, Updated);
+
+-- =====================================================
+-- 5. PRÉ-CARGA DA DIGITAÇÃO DE PEDIDOS (OrderEntryPrefetch)
+-- =====================================================
+
+-- Produtos pedidos recentemente pelo parceiro (pedidos dos últimos CUSTOM_PREFETCH_DAYS dias)
+CREATE INDEX Custom_Order_BPartner_Date ON C_Order (C_BPartner_ID, DateOrdered);
+
+-- =====================================================
+-- FINALIZAR
+-- =====================================================
+
+COMMIT;
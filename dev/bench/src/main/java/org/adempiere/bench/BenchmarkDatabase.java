@@ -0,0 +1,167 @@
+package org.adempiere.bench;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.util.Env;
+
+/**
+ * Banco H2 embutido (modo PostgreSQL) com dados sintéticos para os benchmarks
+ * Criado uma vez por JVM (cada fork do JMH); os dados dependem apenas da semente,
+ * para que execuções diferentes meçam o mesmo conteúdo
+ *
+ * Volumes: 20 impostos, 20 categorias, 10.000 produtos (2% inativos, 2,5% fora de venda),
+ * 2.000 parceiros em 10 grupos (5% clientes especiais), 3 armazéns com estoque de todos
+ * os produtos, faixas de desconto por categoria e grupo e 1.000 pedidos com 10 linhas.
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class BenchmarkDatabase {
+
+    public static final int CLIENT_ID = 11;
+    public static final int PRICELIST_ID = 1;
+
+    public static final int TAXES = 20;
+    public static final int CATEGORIES = 20;
+    public static final int PRODUCTS = 10000;
+    public static final int PARTNERS = 2000;
+    public static final int BP_GROUPS = 10;
+    public static final int WAREHOUSES = 3;
+    public static final int ORDERS = 1000;
+    public static final int LINES_PER_ORDER = 10;
+
+    /** Semente dos dados */
+    private static final long SEED = 42;
+
+    /** Banco criado nesta JVM */
+    private static boolean s_created = false;
+
+    /**
+     * Criar e popular o banco, se ainda não criado nesta JVM
+     * Define também #AD_Client_ID no contexto global
+     */
+    public static synchronized void create() {
+        if (s_created) {
+            return;
+        }
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", CLIENT_ID);
+        StandinDatabase.create("bench");
+        // Função do índice de nomes (BPartnerNameIndex), criada pelo script do PostgreSQL no servidor
+        StandinDatabase.execute("CREATE ALIAS custom_normalize_name FOR 'org.adempiere.model.BPartnerNameIndex.normalize';" +
+                                "CREATE INDEX C_BPartner_Name ON C_BPartner (Name)");
+
+        Random random = new Random(SEED);
+        seedTaxes();
+        seedProducts(random);
+        seedPartners(random);
+        seedStorage(random);
+        seedDiscountTiers();
+        seedOrders(random);
+        s_created = true;
+    }
+
+    private static void seedTaxes() {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 1; i <= TAXES; i++) {
+            rows.add(new Object[] {i, new BigDecimal(i % 5 == 0 ? 0 : i)});
+        }
+        StandinDatabase.insert("INSERT INTO C_Tax (C_Tax_ID, Rate) VALUES (?, ?)", rows);
+    }
+
+    private static void seedProducts(Random random) {
+        List<Object[]> categories = new ArrayList<Object[]>();
+        for (int i = 1; i <= CATEGORIES; i++) {
+            categories.add(new Object[] {i, "Categoria " + i});
+        }
+        StandinDatabase.insert("INSERT INTO M_Product_Category (M_Product_Category_ID, Name) VALUES (?, ?)", categories);
+
+        List<Object[]> products = new ArrayList<Object[]>();
+        List<Object[]> prices = new ArrayList<Object[]>();
+        for (int i = 1; i <= PRODUCTS; i++) {
+            products.add(new Object[] {i, "Produto " + i, i % CATEGORIES + 1,
+                                       i % 50 == 0 ? "N" : "Y", i % 40 == 0 ? "N" : "Y"});
+            BigDecimal price = new BigDecimal(1 + random.nextInt(50000)).movePointLeft(2);
+            prices.add(new Object[] {i, 1, price, price, price});
+        }
+        StandinDatabase.insert("INSERT INTO M_Product (M_Product_ID, Name, M_Product_Category_ID, IsActive, IsSold) " +
+                               "VALUES (?, ?, ?, ?, ?)", products);
+
+        StandinDatabase.execute("INSERT INTO M_PriceList_Version (M_PriceList_Version_ID, M_PriceList_ID, ValidFrom) " +
+                                "VALUES (1, " + PRICELIST_ID + ", TIMESTAMP '2020-01-01 00:00:00')");
+        StandinDatabase.insert("INSERT INTO M_ProductPrice (M_Product_ID, M_PriceList_Version_ID, PriceList, " +
+                               "PriceStd, PriceLimit) VALUES (?, ?, ?, ?, ?)", prices);
+    }
+
+    private static void seedPartners(Random random) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 1; i <= PARTNERS; i++) {
+            BigDecimal creditLimit = new BigDecimal(i % 20 == 0 ? 50000 : 5000 + random.nextInt(5000));
+            BigDecimal creditUsed = new BigDecimal(random.nextInt(2000));
+            rows.add(new Object[] {i, "Cliente " + i, i % BP_GROUPS + 1, creditLimit, creditUsed});
+        }
+        StandinDatabase.insert("INSERT INTO C_BPartner (C_BPartner_ID, Name, C_BP_Group_ID, SO_CreditLimit, " +
+                               "SO_CreditUsed) VALUES (?, ?, ?, ?, ?)", rows);
+    }
+
+    private static void seedStorage(Random random) {
+        List<Object[]> locators = new ArrayList<Object[]>();
+        List<Object[]> storage = new ArrayList<Object[]>();
+        for (int w = 1; w <= WAREHOUSES; w++) {
+            locators.add(new Object[] {w, w});
+            for (int i = 1; i <= PRODUCTS; i++) {
+                storage.add(new Object[] {i, w, new BigDecimal(random.nextInt(500))});
+            }
+        }
+        StandinDatabase.insert("INSERT INTO M_Locator (M_Locator_ID, M_Warehouse_ID) VALUES (?, ?)", locators);
+        StandinDatabase.insert("INSERT INTO M_Storage (M_Product_ID, M_Locator_ID, QtyOnHand) VALUES (?, ?, ?)", storage);
+    }
+
+    private static void seedDiscountTiers() {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        int id = 1;
+        // Faixas gerais e por categoria
+        rows.add(new Object[] {id++, CLIENT_ID, null, null, null, new BigDecimal(10), new BigDecimal(5)});
+        rows.add(new Object[] {id++, CLIENT_ID, null, null, null, new BigDecimal(50), new BigDecimal(10)});
+        for (int c = 1; c <= CATEGORIES; c += 2) {
+            rows.add(new Object[] {id++, CLIENT_ID, c, PRICELIST_ID, null, new BigDecimal(5), new BigDecimal(3)});
+            rows.add(new Object[] {id++, CLIENT_ID, c, PRICELIST_ID, null, new BigDecimal(20), new BigDecimal(8)});
+        }
+        // Faixas por grupo de parceiros
+        for (int g = 1; g <= BP_GROUPS; g += 3) {
+            rows.add(new Object[] {id++, CLIENT_ID, null, null, g, new BigDecimal(1), new BigDecimal(2)});
+        }
+        StandinDatabase.insert("INSERT INTO Custom_DiscountTier (Custom_DiscountTier_ID, AD_Client_ID, " +
+                               "M_Product_Category_ID, M_PriceList_ID, C_BP_Group_ID, MinQty, Discount) " +
+                               "VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    private static void seedOrders(Random random) {
+        List<Object[]> orders = new ArrayList<Object[]>();
+        List<Object[]> lines = new ArrayList<Object[]>();
+        Timestamp dateOrdered = new Timestamp(System.currentTimeMillis());
+        int lineId = 1;
+
+        for (int o = 1; o <= ORDERS; o++) {
+            int warehouseId = o % WAREHOUSES + 1;
+            BigDecimal grandTotal = Env.ZERO;
+            for (int l = 1; l <= LINES_PER_ORDER; l++) {
+                BigDecimal qty = new BigDecimal(1 + random.nextInt(10));
+                BigDecimal price = new BigDecimal(100 + random.nextInt(2000)).movePointLeft(2);
+                lines.add(new Object[] {lineId++, o, l * 10, 1 + random.nextInt(PRODUCTS), warehouseId,
+                                        qty, qty, price});
+                grandTotal = grandTotal.add(qty.multiply(price));
+            }
+            orders.add(new Object[] {o, o % PARTNERS + 1, dateOrdered, grandTotal, warehouseId, PRICELIST_ID});
+        }
+        StandinDatabase.insert("INSERT INTO C_Order (C_Order_ID, C_BPartner_ID, DateOrdered, GrandTotal, " +
+                               "M_Warehouse_ID, M_PriceList_ID) VALUES (?, ?, ?, ?, ?, ?)", orders);
+        StandinDatabase.insert("INSERT INTO C_OrderLine (C_OrderLine_ID, C_Order_ID, Line, M_Product_ID, " +
+                               "M_Warehouse_ID, QtyEntered, QtyOrdered, PriceEntered) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                               lines);
+    }
+}
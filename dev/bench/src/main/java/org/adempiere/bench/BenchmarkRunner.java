@@ -0,0 +1,107 @@
+package org.adempiere.bench;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Executar os benchmarks com o profiler de GC e imprimir o resumo por callout e regra:
+ * operações por segundo, latência p99 (µs), bytes alocados por operação e taxa de alocação (MB/s)
+ *
+ * Aceita as opções de linha de comando do JMH, por exemplo:
+ *   java -jar benchmarks.jar CalloutBenchmark -rf json -rff resultado.json
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+        printSummary(results);
+    }
+
+    /**
+     * Resumo com uma linha por benchmark e parâmetro, juntando os modos Throughput e SampleTime
+     * Nos modos de tempo por operação (SingleShotTime, AverageTime) ops/s é o inverso do tempo
+     */
+    private static void printSummary(Collection<RunResult> results) {
+        Map<String, double[]> rows = new TreeMap<String, double[]>();
+
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            // Classe.método, sem o pacote
+            String benchmark = params.getBenchmark();
+            String name = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+            for (String key : params.getParamsKeys()) {
+                name += " [" + params.getParam(key) + "]";
+            }
+
+            // ops/s, p99 (µs), B/op, MB/s
+            double[] row = rows.get(name);
+            if (row == null) {
+                row = new double[] {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+                rows.put(name, row);
+            }
+
+            Result primary = result.getPrimaryResult();
+            if (params.getMode() == Mode.Throughput) {
+                row[0] = primary.getScore() * perSecond(params.getTimeUnit());
+                row[2] = getSecondary(result, "gc.alloc.rate.norm");
+                row[3] = getSecondary(result, "gc.alloc.rate");
+            } else if (params.getMode() == Mode.SingleShotTime || params.getMode() == Mode.AverageTime) {
+                row[0] = perSecond(params.getTimeUnit()) / primary.getScore();
+                row[2] = getSecondary(result, "gc.alloc.rate.norm");
+                row[3] = getSecondary(result, "gc.alloc.rate");
+            } else if (params.getMode() == Mode.SampleTime) {
+                row[1] = primary.getStatistics().getPercentile(99) * microsPer(params.getTimeUnit());
+            }
+        }
+
+        System.out.println();
+        System.out.println(String.format("%-48s %14s %12s %12s %12s", "Benchmark", "ops/s", "p99 (us)", "B/op", "MB/s"));
+        for (Map.Entry<String, double[]> entry : rows.entrySet()) {
+            double[] row = entry.getValue();
+            System.out.println(String.format("%-48s %14.2f %12.2f %12.0f %12.1f",
+                                             entry.getKey(), row[0], row[1], row[2], row[3]));
+        }
+    }
+
+    /**
+     * Resultado secundário do profiler de GC pelo final do nome (os rótulos têm prefixo)
+     */
+    private static double getSecondary(RunResult result, String suffix) {
+        for (Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet()) {
+            if (entry.getKey().endsWith(suffix)) {
+                return entry.getValue().getScore();
+            }
+        }
+        return Double.NaN;
+    }
+
+    /** Fator de ops/unidade para ops/s */
+    private static double perSecond(TimeUnit unit) {
+        return TimeUnit.SECONDS.toNanos(1) / (double) unit.toNanos(1);
+    }
+
+    /** Fator de unidade/op para µs/op */
+    private static double microsPer(TimeUnit unit) {
+        return unit.toNanos(1) / 1000.0;
+    }
+}
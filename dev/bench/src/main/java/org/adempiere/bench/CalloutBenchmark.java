@@ -0,0 +1,115 @@
+package org.adempiere.bench;
+
+import java.math.BigDecimal;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.compiere.model.CalloutCustom;
+import org.compiere.model.DiscountTierEngine;
+import org.compiere.model.GridField;
+import org.compiere.model.GridTab;
+import org.compiere.model.ProductSellabilityCache;
+import org.compiere.model.SpecialCustomerSet;
+import org.compiere.model.TaxRateCache;
+import org.compiere.util.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Callouts da linha do pedido (CalloutCustom) com os caches aquecidos, como na digitação
+ * após a pré-carga do parceiro. Cada chamada usa o próximo produto, parceiro, imposto e
+ * quantidade de uma sequência fixa, para percorrer o catálogo e não apenas um registro.
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalloutBenchmark {
+
+    private static final int WINDOW_NO = 1;
+
+    /** Tamanho da sequência de entradas (potência de 2) */
+    private static final int INPUTS = 1024;
+
+    private final CalloutCustom callout = new CalloutCustom();
+    private final GridTab tab = new GridTab(WINDOW_NO);
+    private final GridField field = new GridField("M_Product_ID");
+    private Properties ctx;
+
+    private Integer[] productIds;
+    private Integer[] partnerIds;
+    private Integer[] taxIds;
+    private BigDecimal[] quantities;
+    private BigDecimal[] prices;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase.create();
+        ctx = Env.getCtx();
+        Env.setContext(ctx, WINDOW_NO, "M_PriceList_ID", String.valueOf(BenchmarkDatabase.PRICELIST_ID));
+
+        TaxRateCache.warmUp();
+        ProductSellabilityCache.warmUp();
+        SpecialCustomerSet.warmUp();
+        DiscountTierEngine.warmUp();
+
+        Random random = new Random(7);
+        productIds = new Integer[INPUTS];
+        partnerIds = new Integer[INPUTS];
+        taxIds = new Integer[INPUTS];
+        quantities = new BigDecimal[INPUTS];
+        prices = new BigDecimal[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            productIds[i] = 1 + random.nextInt(BenchmarkDatabase.PRODUCTS);
+            partnerIds[i] = 1 + random.nextInt(BenchmarkDatabase.PARTNERS);
+            taxIds[i] = 1 + random.nextInt(BenchmarkDatabase.TAXES);
+            quantities[i] = new BigDecimal(1 + random.nextInt(80));
+            prices[i] = new BigDecimal(100 + random.nextInt(50000)).movePointLeft(2);
+        }
+        // Grupos dos parceiros usados, como após o prefetchPartner
+        for (Integer partnerId : partnerIds) {
+            DiscountTierEngine.getBPGroup(partnerId);
+        }
+    }
+
+    @Benchmark
+    public String calculateLineTotal() {
+        int i = next++ & (INPUTS - 1);
+        tab.setValue("QtyEntered", quantities[i]);
+        tab.setValue("PriceEntered", prices[i]);
+        tab.setValue("C_Tax_ID", taxIds[i]);
+        return callout.calculateLineTotal(ctx, WINDOW_NO, tab, field, quantities[i]);
+    }
+
+    @Benchmark
+    public String validateProduct() {
+        int i = next++ & (INPUTS - 1);
+        return callout.validateProduct(ctx, WINDOW_NO, tab, field, productIds[i]);
+    }
+
+    @Benchmark
+    public String calculateDiscount() {
+        int i = next++ & (INPUTS - 1);
+        tab.setValue("QtyEntered", quantities[i]);
+        tab.setValue("C_BPartner_ID", partnerIds[i]);
+        tab.setValue("M_Product_ID", productIds[i]);
+        tab.setValue("PriceList", prices[i]);
+        return callout.calculateDiscount(ctx, WINDOW_NO, tab, field, quantities[i]);
+    }
+}
@@ -0,0 +1,102 @@
+package org.adempiere.bench;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.process.CustomProcess;
+import org.compiere.process.ProcessInfo;
+import org.compiere.process.ProcessInfoParameter;
+import org.compiere.util.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Atualização de preços do CustomProcess: linhas por segundo em cada modo de execução
+ * (@Param mode), sobre a mesma lista de preços
+ *
+ * - row: linha a linha, um executeUpdate por preço em transação única (BatchSize = 0)
+ * - batch: linha a linha com JDBC batch e commit a cada 1000 linhas (BatchSize = 1000)
+ * - set: um único UPDATE no banco (LogMode = S)
+ *
+ * Cada operação aplica um ajuste de valor a todos os preços; o resultado (ops/s) é em
+ * preços atualizados por segundo. Executar com fork: o banco é próprio deste benchmark.
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class PriceUpdateBenchmark {
+
+    private static final int PRODUCTS = 50000;
+    private static final int VERSIONS = 2;
+    private static final int ROWS = PRODUCTS * VERSIONS;
+
+    @Param({"row", "batch", "set"})
+    public String mode;
+
+    private ProcessInfoParameter[] parameters;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", BenchmarkDatabase.CLIENT_ID);
+        Env.setContext(Env.getCtx(), "#AD_User_ID", 100);
+        StandinDatabase.create("prices");
+        StandinDatabase.execute(
+            "INSERT INTO M_PriceList_Version (M_PriceList_Version_ID, M_PriceList_ID, ValidFrom) " +
+            "SELECT X, " + BenchmarkDatabase.PRICELIST_ID + ", TIMESTAMP '2024-01-01 00:00:00' " +
+            "FROM SYSTEM_RANGE(1, " + VERSIONS + ");" +
+            "INSERT INTO M_Product (M_Product_ID, Name, M_Product_Category_ID) " +
+            "SELECT X, 'Produto ' || X, 1 + MOD(X, 20) FROM SYSTEM_RANGE(1, " + PRODUCTS + ");" +
+            "INSERT INTO M_ProductPrice (M_Product_ID, M_PriceList_Version_ID, PriceList, PriceStd, PriceLimit) " +
+            "SELECT p.X, v.X, 10 + MOD(p.X, 990), 9 + MOD(p.X, 990), 8 + MOD(p.X, 990) " +
+            "FROM SYSTEM_RANGE(1, " + PRODUCTS + ") p, SYSTEM_RANGE(1, " + VERSIONS + ") v");
+
+        List<ProcessInfoParameter> list = new ArrayList<ProcessInfoParameter>();
+        list.add(new ProcessInfoParameter("PriceAdjustment", new BigDecimal("0.01"), null, null, null));
+        list.add(new ProcessInfoParameter("AdjustmentType", "A", null, null, null));
+        if ("set".equals(mode)) {
+            list.add(new ProcessInfoParameter("LogMode", "S", null, null, null));
+        } else {
+            // Log amostrado, para medir a atualização e não o log por linha
+            list.add(new ProcessInfoParameter("LogMode", "A", null, null, null));
+            list.add(new ProcessInfoParameter("LogSampleRate", new BigDecimal(ROWS), null, null, null));
+            if ("batch".equals(mode)) {
+                list.add(new ProcessInfoParameter("BatchSize", new BigDecimal(1000), null, null, null));
+            }
+        }
+        parameters = list.toArray(new ProcessInfoParameter[list.size()]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ProcessInfo updatePrices() {
+        ProcessInfo pi = new ProcessInfo("Atualizar preços", 1000010);
+        pi.setAD_Client_ID(BenchmarkDatabase.CLIENT_ID);
+        pi.setAD_User_ID(100);
+        pi.setParameter(parameters);
+        new CustomProcess().startProcess(Env.getCtx(), pi, null);
+        if (pi.isError()) {
+            throw new IllegalStateException(pi.getSummary());
+        }
+        return pi;
+    }
+}
@@ -0,0 +1,95 @@
+package org.adempiere.bench;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.process.CustomProcess;
+import org.compiere.process.ProcessInfo;
+import org.compiere.process.ProcessInfoParameter;
+import org.compiere.util.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Relatório de vendas do CustomProcess (Action = R) sobre três anos de pedidos: tempo de uma
+ * execução com a consulta única (parallelism = 1) e com a agregação por mês em paralelo
+ *
+ * Pedidos distribuídos entre 20.000 parceiros de 2022 a 2024, 10% em rascunho. O volume é
+ * o parâmetro orders (padrão 2.000.000; ex.: -p orders=200000 para uma execução rápida).
+ * Executar com fork: o banco é próprio deste benchmark.
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SalesReportBenchmark {
+
+    private static final int PARTNERS = 20000;
+    /** Minutos em 1.095 dias (2022-01-01 a 2024-12-30) */
+    private static final int MINUTES = 1095 * 24 * 60;
+
+    @Param({"2000000"})
+    public int orders;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private ProcessInfoParameter[] parameters;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", BenchmarkDatabase.CLIENT_ID);
+        Env.setContext(Env.getCtx(), "#AD_User_ID", 100);
+        StandinDatabase.create("sales");
+        // Datas espalhadas pelo período com um passo primo; mesmo conteúdo em todas as execuções
+        StandinDatabase.execute(
+            "INSERT INTO C_BPartner (C_BPartner_ID, Name) " +
+            "SELECT X, 'Cliente ' || X FROM SYSTEM_RANGE(1, " + PARTNERS + ");" +
+            "INSERT INTO C_Order (C_Order_ID, C_BPartner_ID, DateOrdered, GrandTotal, DocStatus) " +
+            "SELECT X, 1 + MOD(X * 31, " + PARTNERS + "), " +
+            "DATEADD(MINUTE, MOD(X * 7919, " + MINUTES + "), TIMESTAMP '2022-01-01 00:00:00'), " +
+            "MOD(X * 13, 100000) / 100.0 + 10, CASE WHEN MOD(X, 10) = 0 THEN 'DR' ELSE 'CO' END " +
+            "FROM SYSTEM_RANGE(1, " + orders + ");" +
+            "CREATE INDEX C_Order_DateOrdered ON C_Order (DateOrdered);" +
+            // Com o índice por parceiro o H2 percorre todos os parceiros e lê todos os pedidos de
+            // cada um em toda consulta mensal; sem ele usa o índice por data, como o PostgreSQL
+            "DROP INDEX C_Order_BPartner");
+
+        parameters = new ProcessInfoParameter[] {
+            new ProcessInfoParameter("Action", "R", null, null, null),
+            new ProcessInfoParameter("DateFrom", Timestamp.valueOf("2022-01-01 00:00:00"), null, null, null),
+            new ProcessInfoParameter("DateTo", null, Timestamp.valueOf("2024-12-31 23:59:59"), null, null),
+            new ProcessInfoParameter("Parallelism", new BigDecimal(parallelism), null, null, null),
+            new ProcessInfoParameter("TopN", new BigDecimal(100), null, null, null)};
+    }
+
+    @Benchmark
+    public ProcessInfo salesReport() {
+        ProcessInfo pi = new ProcessInfo("Relatório de vendas", 1000020);
+        pi.setAD_Client_ID(BenchmarkDatabase.CLIENT_ID);
+        pi.setAD_User_ID(100);
+        pi.setParameter(parameters);
+        new CustomProcess().startProcess(Env.getCtx(), pi, null);
+        if (pi.isError()) {
+            throw new IllegalStateException(pi.getSummary());
+        }
+        return pi;
+    }
+}
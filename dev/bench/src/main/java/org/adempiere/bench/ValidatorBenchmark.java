@@ -0,0 +1,136 @@
+package org.adempiere.bench;
+
+import java.math.BigDecimal;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.model.CustomModelValidator;
+import org.compiere.model.MBPartner;
+import org.compiere.model.MOrder;
+import org.compiere.model.MOrderLine;
+import org.compiere.model.MSysConfig;
+import org.compiere.model.ModelValidationEngine;
+import org.compiere.model.ModelValidator;
+import org.compiere.model.PO;
+import org.compiere.util.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Regras de validação do CustomModelValidator, uma por execução (@Param rule)
+ * As demais regras de validação ficam desativadas (CUSTOM_VALIDATOR_RULE_<Nome> = N), para
+ * que o resultado seja o custo da regra mais o despacho do ModelValidationEngine. Os eventos
+ * são disparados sem transação, como na gravação fora de processos.
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidatorBenchmark {
+
+    /** Regras de validação (modelChange e docValidate) */
+    private static final String[] RULES = {"OrderPartner", "OrderChange", "OrderDelete", "OrderLine",
+                                           "BPartnerName", "OrderHasLines", "OrderCreditLimit", "OrderStock"};
+
+    /** Registros por execução (potência de 2) */
+    private static final int RECORDS = 64;
+
+    @Param({"OrderPartner", "OrderChange", "OrderDelete", "OrderLine",
+            "BPartnerName", "OrderHasLines", "OrderCreditLimit", "OrderStock"})
+    public String rule;
+
+    private final ModelValidationEngine engine = new ModelValidationEngine();
+    private PO[] records;
+    private int event;
+    private boolean document;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase.create();
+        for (String name : RULES) {
+            MSysConfig.setValue("CUSTOM_VALIDATOR_RULE_" + name, name.equals(rule) ? "Y" : "N");
+        }
+        engine.addModelValidator(new CustomModelValidator(), null);
+
+        Properties ctx = Env.getCtx();
+        Random random = new Random(13);
+        records = new PO[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            records[i] = createRecord(ctx, random, i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MSysConfig.clearValues();
+    }
+
+    @Benchmark
+    public String rule() throws Exception {
+        PO po = records[next++ & (RECORDS - 1)];
+        return document ? engine.fireDocValidate(po, event) : engine.fireModelChange(po, event);
+    }
+
+    /**
+     * Registro e evento da regra medida
+     */
+    private PO createRecord(Properties ctx, Random random, int i) {
+        int orderId = 1 + random.nextInt(BenchmarkDatabase.ORDERS);
+
+        if ("OrderPartner".equals(rule)) {
+            event = ModelValidator.TYPE_BEFORE_NEW;
+            MOrder order = new MOrder(ctx, 0, null);
+            order.set_ValueOfColumn("AD_Client_ID", BenchmarkDatabase.CLIENT_ID);
+            order.set_ValueOfColumn("C_BPartner_ID", 1 + random.nextInt(BenchmarkDatabase.PARTNERS));
+            return order;
+        }
+        if ("OrderChange".equals(rule)) {
+            event = ModelValidator.TYPE_BEFORE_CHANGE;
+            MOrder order = new MOrder(ctx, orderId, null);
+            order.set_ValueOfColumn("GrandTotal", order.getGrandTotal().add(BigDecimal.TEN));
+            return order;
+        }
+        if ("OrderDelete".equals(rule)) {
+            event = ModelValidator.TYPE_BEFORE_DELETE;
+            return new MOrder(ctx, orderId, null);
+        }
+        if ("OrderLine".equals(rule)) {
+            event = ModelValidator.TYPE_BEFORE_NEW;
+            MOrderLine line = new MOrderLine(ctx, 0, null);
+            line.set_ValueOfColumn("AD_Client_ID", BenchmarkDatabase.CLIENT_ID);
+            line.set_ValueOfColumn("QtyEntered", new BigDecimal(1 + random.nextInt(20)));
+            line.set_ValueOfColumn("PriceEntered", new BigDecimal(100 + random.nextInt(5000)).movePointLeft(2));
+            line.set_ValueOfColumn("Discount", new BigDecimal(random.nextInt(30)));
+            return line;
+        }
+        if ("BPartnerName".equals(rule)) {
+            event = ModelValidator.TYPE_BEFORE_NEW;
+            MBPartner bp = new MBPartner(ctx, 0, null);
+            bp.set_ValueOfColumn("AD_Client_ID", BenchmarkDatabase.CLIENT_ID);
+            bp.set_ValueOfColumn("Name", "Novo cliente " + i);
+            return bp;
+        }
+
+        document = true;
+        event = ModelValidator.TIMING_BEFORE_COMPLETE;
+        return new MOrder(ctx, orderId, null);
+    }
+}
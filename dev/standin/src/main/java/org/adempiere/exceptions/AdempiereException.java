@@ -0,0 +1,24 @@
+package org.adempiere.exceptions;
+
+/**
+ * Substituto de org.adempiere.exceptions.AdempiereException
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class AdempiereException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public AdempiereException(String message) {
+        super(message);
+    }
+
+    public AdempiereException(Throwable cause) {
+        super(cause);
+    }
+
+    public AdempiereException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,38 @@
+package org.adempiere.exceptions;
+
+import java.sql.SQLException;
+
+/**
+ * Substituto de org.adempiere.exceptions.DBException
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class DBException extends AdempiereException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String m_sql;
+
+    public DBException(SQLException e) {
+        this(e, null);
+    }
+
+    public DBException(SQLException e, String sql) {
+        super(e.getLocalizedMessage(), e);
+        m_sql = sql;
+    }
+
+    public DBException(String message) {
+        super(message);
+        m_sql = null;
+    }
+
+    public SQLException getSQLException() {
+        return getCause() instanceof SQLException ? (SQLException) getCause() : null;
+    }
+
+    public String getSQL() {
+        return m_sql;
+    }
+}
@@ -0,0 +1,124 @@
+package org.adempiere.standin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.adempiere.exceptions.DBException;
+import org.compiere.util.DB;
+
+/**
+ * Banco H2 em memória com o esquema usado pelas customizações (schema.sql)
+ * Cada chamada de create abre um banco novo e o define como o banco do DB
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class StandinDatabase {
+
+    /** Sequência dos nomes de banco */
+    private static final AtomicLong s_sequence = new AtomicLong();
+
+    /**
+     * Criar um banco vazio com o esquema e usá-lo nas próximas conexões do DB
+     *
+     * @param name Prefixo do nome do banco
+     * @return URL JDBC
+     */
+    public static String create(String name) {
+        String url = "jdbc:h2:mem:" + name + "_" + s_sequence.incrementAndGet()
+                     + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+        DB.setURL(url);
+        execute(readSchema());
+        return url;
+    }
+
+    /**
+     * Executar comandos separados por ";" em auto-commit, fora do StatementListener
+     *
+     * @param script Comandos
+     */
+    public static void execute(String script) {
+        Connection conn = DB.createConnection(true);
+        try {
+            Statement stmt = conn.createStatement();
+            for (String sql : script.split(";")) {
+                if (sql.trim().length() > 0) {
+                    stmt.execute(sql);
+                }
+            }
+            stmt.close();
+        } catch (SQLException e) {
+            throw new DBException(e);
+        } finally {
+            close(conn);
+        }
+    }
+
+    /**
+     * Inserir linhas em lote, em auto-commit, fora do StatementListener
+     *
+     * @param sql INSERT com parâmetros
+     * @param rows Parâmetros de cada linha
+     */
+    public static void insert(String sql, List<Object[]> rows) {
+        Connection conn = DB.createConnection(false);
+        try {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            int count = 0;
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    pstmt.setObject(i + 1, row[i]);
+                }
+                pstmt.addBatch();
+                if (++count % 1000 == 0) {
+                    pstmt.executeBatch();
+                }
+            }
+            pstmt.executeBatch();
+            pstmt.close();
+            conn.commit();
+        } catch (SQLException e) {
+            throw new DBException(e, sql);
+        } finally {
+            close(conn);
+        }
+    }
+
+    private static String readSchema() {
+        InputStream in = StandinDatabase.class.getResourceAsStream("schema.sql");
+        if (in == null) {
+            throw new IllegalStateException("schema.sql não encontrado");
+        }
+        try {
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) > 0) {
+                text.append(buffer, 0, read);
+            }
+            reader.close();
+            // Comentários removidos: o script é dividido em ";"
+            return text.toString().replaceAll("(?m)^--.*$", "");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void close(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            // ignorado
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.compiere.model;
+
+import org.compiere.util.CLogger;
+
+/**
+ * Substituto de org.compiere.model.CalloutEngine
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class CalloutEngine {
+
+    /** Logger */
+    protected CLogger log = CLogger.getCLogger(getClass());
+
+    /** Callout em execução (alterações feitas por outro callout) */
+    private boolean m_calloutActive = false;
+
+    public boolean isCalloutActive() {
+        return m_calloutActive;
+    }
+
+    public void setCalloutActive(boolean active) {
+        m_calloutActive = active;
+    }
+}
@@ -0,0 +1,29 @@
+package org.compiere.model;
+
+/**
+ * Substituto de org.compiere.model.GridField: coluna e valor do campo alterado
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class GridField {
+
+    private final String m_columnName;
+    private Object m_value;
+
+    public GridField(String columnName) {
+        m_columnName = columnName;
+    }
+
+    public String getColumnName() {
+        return m_columnName;
+    }
+
+    public Object getValue() {
+        return m_value;
+    }
+
+    public void setValue(Object value) {
+        m_value = value;
+    }
+}
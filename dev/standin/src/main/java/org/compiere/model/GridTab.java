@@ -0,0 +1,36 @@
+package org.compiere.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Substituto de org.compiere.model.GridTab: valores da linha atual por coluna
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class GridTab {
+
+    private final int m_WindowNo;
+    private final Map<String, Object> m_values = new TreeMap<String, Object>(String.CASE_INSENSITIVE_ORDER);
+
+    public GridTab(int WindowNo) {
+        m_WindowNo = WindowNo;
+    }
+
+    public int getWindowNo() {
+        return m_WindowNo;
+    }
+
+    public Object getValue(String columnName) {
+        return m_values.get(columnName);
+    }
+
+    /**
+     * @return "" (sem erro), como no ADempiere
+     */
+    public String setValue(String columnName, Object value) {
+        m_values.put(columnName, value);
+        return "";
+    }
+}
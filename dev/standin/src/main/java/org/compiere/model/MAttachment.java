@@ -0,0 +1,76 @@
+package org.compiere.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.adempiere.exceptions.AdempiereException;
+
+/**
+ * Substituto de org.compiere.model.MAttachment
+ * O conteúdo dos arquivos é lido em addEntry (o arquivo pode ser removido em seguida);
+ * os anexos gravados ficam disponíveis em getSaved()
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class MAttachment extends PO {
+
+    public static final String Table_Name = "AD_Attachment";
+
+    /** Anexos gravados por saveEx */
+    private static final List<MAttachment> s_saved = Collections.synchronizedList(new ArrayList<MAttachment>());
+
+    private final int m_AD_Table_ID;
+    private final int m_Record_ID;
+    private final List<String> m_names = new ArrayList<String>();
+    private final List<byte[]> m_data = new ArrayList<byte[]>();
+
+    public MAttachment(Properties ctx, int AD_Table_ID, int Record_ID, String trxName) {
+        super(ctx, 0, trxName);
+        m_AD_Table_ID = AD_Table_ID;
+        m_Record_ID = Record_ID;
+    }
+
+    public String get_TableName() {
+        return Table_Name;
+    }
+
+    public boolean addEntry(File file) {
+        try {
+            m_data.add(Files.readAllBytes(file.toPath()));
+            m_names.add(file.getName());
+            return true;
+        } catch (IOException e) {
+            throw new AdempiereException(e);
+        }
+    }
+
+    public void saveEx() {
+        s_saved.add(this);
+    }
+
+    public int getAD_Table_ID() {
+        return m_AD_Table_ID;
+    }
+
+    public int getRecord_ID() {
+        return m_Record_ID;
+    }
+
+    public List<String> getEntryNames() {
+        return m_names;
+    }
+
+    public byte[] getEntryData(int index) {
+        return m_data.get(index);
+    }
+
+    public static List<MAttachment> getSaved() {
+        return s_saved;
+    }
+}
@@ -0,0 +1,52 @@
+package org.compiere.model;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.Properties;
+
+/**
+ * Substituto de org.compiere.model.MBPartner
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class MBPartner extends PO {
+
+    public static final String Table_Name = "C_BPartner";
+
+    public MBPartner(Properties ctx, int C_BPartner_ID, String trxName) {
+        super(ctx, C_BPartner_ID, trxName);
+    }
+
+    public MBPartner(Properties ctx, ResultSet rs, String trxName) {
+        super(ctx, rs, trxName);
+    }
+
+    public String get_TableName() {
+        return Table_Name;
+    }
+
+    public int getC_BPartner_ID() {
+        return get_ValueAsInt("C_BPartner_ID");
+    }
+
+    public String getName() {
+        return (String) get_Value("Name");
+    }
+
+    public boolean isCustomer() {
+        return get_ValueAsBoolean("IsCustomer");
+    }
+
+    public int getC_BP_Group_ID() {
+        return get_ValueAsInt("C_BP_Group_ID");
+    }
+
+    public BigDecimal getSO_CreditLimit() {
+        return get_ValueAsBD("SO_CreditLimit");
+    }
+
+    public BigDecimal getSO_CreditUsed() {
+        return get_ValueAsBD("SO_CreditUsed");
+    }
+}
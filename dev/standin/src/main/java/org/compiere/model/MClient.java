@@ -0,0 +1,27 @@
+package org.compiere.model;
+
+import java.util.Properties;
+
+/**
+ * Substituto de org.compiere.model.MClient (sem tabela: apenas o ID)
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class MClient extends PO {
+
+    public static final String Table_Name = "AD_Client";
+
+    public MClient(Properties ctx, int AD_Client_ID) {
+        super(ctx, 0, null);
+        set_Value("AD_Client_ID", AD_Client_ID);
+    }
+
+    public String get_TableName() {
+        return Table_Name;
+    }
+
+    public String toString() {
+        return "MClient[" + getAD_Client_ID() + "]";
+    }
+}
@@ -0,0 +1,47 @@
+package org.compiere.model;
+
+import java.util.Properties;
+
+import org.compiere.util.CCache;
+
+/**
+ * Substituto de org.compiere.model.MLocator
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class MLocator extends PO {
+
+    public static final String Table_Name = "M_Locator";
+
+    /** Cache de get() */
+    private static final CCache<Integer, MLocator> s_cache = new CCache<Integer, MLocator>(Table_Name, 20);
+
+    /**
+     * Localizador do cache (sem transação)
+     */
+    public static MLocator get(Properties ctx, int M_Locator_ID) {
+        synchronized (s_cache) {
+            MLocator locator = s_cache.get(M_Locator_ID);
+            if (locator == null) {
+                locator = new MLocator(ctx, M_Locator_ID, null);
+                if (locator.get_ID() != 0) {
+                    s_cache.put(M_Locator_ID, locator);
+                }
+            }
+            return locator;
+        }
+    }
+
+    public MLocator(Properties ctx, int M_Locator_ID, String trxName) {
+        super(ctx, M_Locator_ID, trxName);
+    }
+
+    public String get_TableName() {
+        return Table_Name;
+    }
+
+    public int getM_Warehouse_ID() {
+        return get_ValueAsInt("M_Warehouse_ID");
+    }
+}
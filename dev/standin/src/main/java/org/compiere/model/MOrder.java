@@ -0,0 +1,120 @@
+package org.compiere.model;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.adempiere.exceptions.DBException;
+import org.compiere.util.DB;
+
+/**
+ * Substituto de org.compiere.model.MOrder
+ * Como no ADempiere, getLines() guarda as linhas no próprio pedido e getLines(true, ...) as relê
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class MOrder extends PO {
+
+    public static final String Table_Name = "C_Order";
+
+    public static final String DOCSTATUS_Drafted = "DR";
+    public static final String DOCSTATUS_InProgress = "IP";
+    public static final String DOCSTATUS_Completed = "CO";
+    public static final String DOCSTATUS_Closed = "CL";
+    public static final String DOCSTATUS_Voided = "VO";
+
+    /** Linhas lidas */
+    private MOrderLine[] m_lines = null;
+
+    public MOrder(Properties ctx, int C_Order_ID, String trxName) {
+        super(ctx, C_Order_ID, trxName);
+    }
+
+    public MOrder(Properties ctx, ResultSet rs, String trxName) {
+        super(ctx, rs, trxName);
+    }
+
+    public String get_TableName() {
+        return Table_Name;
+    }
+
+    public int getC_Order_ID() {
+        return get_ValueAsInt("C_Order_ID");
+    }
+
+    public int getC_BPartner_ID() {
+        return get_ValueAsInt("C_BPartner_ID");
+    }
+
+    public BigDecimal getGrandTotal() {
+        return get_ValueAsBD("GrandTotal");
+    }
+
+    public Timestamp getDateOrdered() {
+        return (Timestamp) get_Value("DateOrdered");
+    }
+
+    public boolean isProcessed() {
+        return get_ValueAsBoolean("Processed");
+    }
+
+    public boolean isSOTrx() {
+        return get_ValueAsBoolean("IsSOTrx");
+    }
+
+    public String getDocStatus() {
+        return (String) get_Value("DocStatus");
+    }
+
+    public int getM_Warehouse_ID() {
+        return get_ValueAsInt("M_Warehouse_ID");
+    }
+
+    public int getM_PriceList_ID() {
+        return get_ValueAsInt("M_PriceList_ID");
+    }
+
+    public MOrderLine[] getLines() {
+        return getLines(false, null);
+    }
+
+    /**
+     * Linhas do pedido
+     *
+     * @param requery Reler do banco
+     * @param orderBy Ordenação (null = Line)
+     */
+    public MOrderLine[] getLines(boolean requery, String orderBy) {
+        if (m_lines != null && !requery) {
+            for (MOrderLine line : m_lines) {
+                line.set_TrxName(get_TrxName());
+            }
+            return m_lines;
+        }
+
+        String sql = "SELECT * FROM C_OrderLine WHERE C_Order_ID = ? ORDER BY "
+                     + (orderBy != null && orderBy.length() > 0 ? orderBy : "Line");
+        List<MOrderLine> lines = new ArrayList<MOrderLine>();
+        PreparedStatement pstmt = DB.prepareStatement(sql, get_TrxName());
+        try {
+            pstmt.setInt(1, getC_Order_ID());
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                lines.add(new MOrderLine(getCtx(), rs, get_TrxName()));
+            }
+            rs.close();
+        } catch (SQLException e) {
+            throw new DBException(e, sql);
+        } finally {
+            DB.close(pstmt);
+        }
+        m_lines = lines.toArray(new MOrderLine[lines.size()]);
+        return m_lines;
+    }
+}
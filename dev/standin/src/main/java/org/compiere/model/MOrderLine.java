@@ -0,0 +1,70 @@
+package org.compiere.model;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.Properties;
+
+/**
+ * Substituto de org.compiere.model.MOrderLine
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class MOrderLine extends PO {
+
+    public static final String Table_Name = "C_OrderLine";
+
+    /** Produto lido do cache de MProduct */
+    private MProduct m_product = null;
+
+    public MOrderLine(Properties ctx, int C_OrderLine_ID, String trxName) {
+        super(ctx, C_OrderLine_ID, trxName);
+    }
+
+    public MOrderLine(Properties ctx, ResultSet rs, String trxName) {
+        super(ctx, rs, trxName);
+    }
+
+    public String get_TableName() {
+        return Table_Name;
+    }
+
+    public int getC_OrderLine_ID() {
+        return get_ValueAsInt("C_OrderLine_ID");
+    }
+
+    public int getC_Order_ID() {
+        return get_ValueAsInt("C_Order_ID");
+    }
+
+    public int getM_Product_ID() {
+        return get_ValueAsInt("M_Product_ID");
+    }
+
+    public int getM_Warehouse_ID() {
+        return get_ValueAsInt("M_Warehouse_ID");
+    }
+
+    public BigDecimal getQtyEntered() {
+        return get_ValueAsBD("QtyEntered");
+    }
+
+    public BigDecimal getQtyOrdered() {
+        return get_ValueAsBD("QtyOrdered");
+    }
+
+    public BigDecimal getPriceEntered() {
+        return get_ValueAsBD("PriceEntered");
+    }
+
+    public BigDecimal getDiscount() {
+        return get_ValueAsBD("Discount");
+    }
+
+    public MProduct getProduct() {
+        if (m_product == null && getM_Product_ID() != 0) {
+            m_product = MProduct.get(getCtx(), getM_Product_ID());
+        }
+        return m_product;
+    }
+}
@@ -0,0 +1,23 @@
+package org.compiere.model;
+
+import java.util.Properties;
+
+/**
+ * Substituto de org.compiere.model.MPInstance
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class MPInstance extends PO {
+
+    public static final String Table_Name = "AD_PInstance";
+    public static final int Table_ID = 282;
+
+    public MPInstance(Properties ctx, int AD_PInstance_ID, String trxName) {
+        super(ctx, AD_PInstance_ID, trxName);
+    }
+
+    public String get_TableName() {
+        return Table_Name;
+    }
+}
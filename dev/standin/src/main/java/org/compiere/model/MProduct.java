@@ -0,0 +1,59 @@
+package org.compiere.model;
+
+import java.util.Properties;
+
+import org.compiere.util.CCache;
+
+/**
+ * Substituto de org.compiere.model.MProduct
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class MProduct extends PO {
+
+    public static final String Table_Name = "M_Product";
+
+    /** Cache de get() */
+    private static final CCache<Integer, MProduct> s_cache = new CCache<Integer, MProduct>(Table_Name, 40, 5);
+
+    /**
+     * Produto do cache (sem transação)
+     */
+    public static MProduct get(Properties ctx, int M_Product_ID) {
+        synchronized (s_cache) {
+            MProduct product = s_cache.get(M_Product_ID);
+            if (product == null) {
+                product = new MProduct(ctx, M_Product_ID, null);
+                if (product.get_ID() != 0) {
+                    s_cache.put(M_Product_ID, product);
+                }
+            }
+            return product;
+        }
+    }
+
+    public MProduct(Properties ctx, int M_Product_ID, String trxName) {
+        super(ctx, M_Product_ID, trxName);
+    }
+
+    public String get_TableName() {
+        return Table_Name;
+    }
+
+    public int getM_Product_ID() {
+        return get_ValueAsInt("M_Product_ID");
+    }
+
+    public String getName() {
+        return (String) get_Value("Name");
+    }
+
+    public int getM_Product_Category_ID() {
+        return get_ValueAsInt("M_Product_Category_ID");
+    }
+
+    public boolean isSold() {
+        return get_ValueAsBoolean("IsSold");
+    }
+}
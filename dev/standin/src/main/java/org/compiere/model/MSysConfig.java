@@ -0,0 +1,108 @@
+package org.compiere.model;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Substituto de org.compiere.model.MSysConfig
+ * Valores em memória, definidos pelos testes com setValue; o registro (AD_SysConfig) serve
+ * apenas para os eventos do validator
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class MSysConfig extends PO {
+
+    public static final String Table_Name = "AD_SysConfig";
+
+    /** Valores por nome */
+    private static final ConcurrentHashMap<String, String> s_values = new ConcurrentHashMap<String, String>();
+
+    public MSysConfig(Properties ctx, int AD_SysConfig_ID, String trxName) {
+        super(ctx, AD_SysConfig_ID, trxName);
+    }
+
+    public String get_TableName() {
+        return Table_Name;
+    }
+
+    /**
+     * Definir um valor
+     *
+     * @param name Nome
+     * @param value Valor (null = remover)
+     */
+    public static void setValue(String name, String value) {
+        if (value == null) {
+            s_values.remove(name);
+        } else {
+            s_values.put(name, value);
+        }
+    }
+
+    /**
+     * Remover todos os valores
+     */
+    public static void clearValues() {
+        s_values.clear();
+    }
+
+    public static String getValue(String name) {
+        return s_values.get(name);
+    }
+
+    public static String getValue(String name, String defaultValue) {
+        String value = s_values.get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    public static String getValue(String name, String defaultValue, int AD_Client_ID) {
+        return getValue(name, defaultValue);
+    }
+
+    public static int getIntValue(String name, int defaultValue) {
+        String value = getValue(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static int getIntValue(String name, int defaultValue, int AD_Client_ID) {
+        return getIntValue(name, defaultValue);
+    }
+
+    public static double getDoubleValue(String name, double defaultValue) {
+        String value = getValue(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBooleanValue(String name, boolean defaultValue) {
+        String value = getValue(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if ("Y".equalsIgnoreCase(value)) {
+            return true;
+        }
+        if ("N".equalsIgnoreCase(value)) {
+            return false;
+        }
+        return Boolean.valueOf(value).booleanValue();
+    }
+
+    public static boolean getBooleanValue(String name, boolean defaultValue, int AD_Client_ID) {
+        return getBooleanValue(name, defaultValue);
+    }
+}
@@ -0,0 +1,54 @@
+package org.compiere.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Substituto de org.compiere.model.MTable
+ * AD_Table_ID padrão do ADempiere para as tabelas conhecidas; as demais recebem IDs a partir
+ * de 1000000, estáveis durante a execução
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class MTable extends PO {
+
+    public static final String Table_Name = "AD_Table";
+
+    private static final Map<String, Integer> s_tableIds = new HashMap<String, Integer>();
+    private static int s_nextId = 1000000;
+
+    static {
+        s_tableIds.put("M_LOCATOR", 207);
+        s_tableIds.put("M_PRODUCT", 208);
+        s_tableIds.put("M_STORAGE", 250);
+        s_tableIds.put("C_ORDER", 259);
+        s_tableIds.put("C_ORDERLINE", 260);
+        s_tableIds.put("C_TAX", 261);
+        s_tableIds.put("AD_PINSTANCE", 282);
+        s_tableIds.put("C_BPARTNER", 291);
+        s_tableIds.put("AD_SYSCONFIG", 50009);
+    }
+
+    public static synchronized int getTable_ID(String tableName) {
+        if (tableName == null) {
+            return 0;
+        }
+        String key = tableName.toUpperCase();
+        Integer id = s_tableIds.get(key);
+        if (id == null) {
+            id = s_nextId++;
+            s_tableIds.put(key, id);
+        }
+        return id;
+    }
+
+    public MTable(Properties ctx, int AD_Table_ID, String trxName) {
+        super(ctx, AD_Table_ID, trxName);
+    }
+
+    public String get_TableName() {
+        return Table_Name;
+    }
+}
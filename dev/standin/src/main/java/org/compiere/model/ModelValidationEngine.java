@@ -0,0 +1,89 @@
+package org.compiere.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Substituto de org.compiere.model.ModelValidationEngine
+ * Guarda os validators registrados por tabela e os executa em fireModelChange e fireDocValidate
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class ModelValidationEngine {
+
+    private final Map<String, List<ModelValidator>> m_modelChange = new HashMap<String, List<ModelValidator>>();
+    private final Map<String, List<ModelValidator>> m_docValidate = new HashMap<String, List<ModelValidator>>();
+
+    /**
+     * Inicializar um validator, que registra suas tabelas
+     */
+    public void addModelValidator(ModelValidator validator, MClient client) {
+        validator.initialize(this, client);
+    }
+
+    public void addModelChange(String tableName, ModelValidator listener) {
+        add(m_modelChange, tableName, listener);
+    }
+
+    public void addDocValidate(String tableName, ModelValidator listener) {
+        add(m_docValidate, tableName, listener);
+    }
+
+    /**
+     * @return Primeira mensagem de erro ou null
+     */
+    public String fireModelChange(PO po, int changeType) throws Exception {
+        for (ModelValidator validator : get(m_modelChange, po)) {
+            String error = validator.modelChange(po, changeType);
+            if (error != null && error.length() > 0) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Primeira mensagem de erro ou null
+     */
+    public String fireDocValidate(PO po, int docTiming) {
+        for (ModelValidator validator : get(m_docValidate, po)) {
+            String error = validator.docValidate(po, docTiming);
+            if (error != null && error.length() > 0) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    public synchronized boolean isRegistered(String tableName, boolean document) {
+        return (document ? m_docValidate : m_modelChange).containsKey(tableName.toUpperCase());
+    }
+
+    private synchronized void add(Map<String, List<ModelValidator>> map, String tableName, ModelValidator listener) {
+        String key = tableName.toUpperCase();
+        List<ModelValidator> list = map.get(key);
+        if (list == null) {
+            list = new ArrayList<ModelValidator>();
+            map.put(key, list);
+        }
+        if (!list.contains(listener)) {
+            list.add(listener);
+        }
+    }
+
+    private synchronized List<ModelValidator> get(Map<String, List<ModelValidator>> map, PO po) {
+        List<ModelValidator> list = map.get(po.get_TableName().toUpperCase());
+        List<ModelValidator> result = new ArrayList<ModelValidator>();
+        if (list != null) {
+            for (ModelValidator validator : list) {
+                if (validator.getAD_Client_ID() <= 0 || validator.getAD_Client_ID() == po.getAD_Client_ID()) {
+                    result.add(validator);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,309 @@
+package org.compiere.model;
+
+import java.math.BigDecimal;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.adempiere.exceptions.DBException;
+import org.compiere.util.CLogger;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+
+/**
+ * Substituto de org.compiere.model.PO: registro lido de uma tabela pelo nome das colunas
+ *
+ * Os valores ficam em um mapa sem distinção de maiúsculas; colunas Is* são convertidas
+ * para Boolean e as demais mantêm o tipo JDBC. is_ValueChanged compara o valor atual com o
+ * lido do banco. saveEx grava apenas as colunas existentes na tabela e não dispara o
+ * ModelValidationEngine (os testes chamam o validator diretamente).
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public abstract class PO {
+
+    /** Logger */
+    protected transient CLogger log = CLogger.getCLogger(getClass());
+
+    /** Colunas por tabela, lidas dos metadados JDBC */
+    private static final ConcurrentHashMap<String, List<String>> s_columns =
+        new ConcurrentHashMap<String, List<String>>();
+
+    private final Properties p_ctx;
+    private String m_trxName;
+    private final Map<String, Object> m_values = new TreeMap<String, Object>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<String, Object> m_oldValues = new TreeMap<String, Object>(String.CASE_INSENSITIVE_ORDER);
+    private boolean m_new = true;
+
+    /**
+     * Registro pelo ID (0 = novo)
+     */
+    protected PO(Properties ctx, int ID, String trxName) {
+        p_ctx = ctx != null ? ctx : Env.getCtx();
+        m_trxName = trxName;
+        if (ID > 0) {
+            load(ID);
+        }
+    }
+
+    /**
+     * Registro da linha atual do ResultSet
+     */
+    protected PO(Properties ctx, ResultSet rs, String trxName) {
+        p_ctx = ctx != null ? ctx : Env.getCtx();
+        m_trxName = trxName;
+        try {
+            load(rs);
+        } catch (SQLException e) {
+            throw new DBException(e);
+        }
+    }
+
+    /**
+     * @return Nome da tabela
+     */
+    public abstract String get_TableName();
+
+    /**
+     * @return Coluna chave (Tabela_ID)
+     */
+    public String get_KeyColumn() {
+        return get_TableName() + "_ID";
+    }
+
+    public int get_Table_ID() {
+        return MTable.getTable_ID(get_TableName());
+    }
+
+    public int get_ID() {
+        return get_ValueAsInt(get_KeyColumn());
+    }
+
+    public Properties getCtx() {
+        return p_ctx;
+    }
+
+    public String get_TrxName() {
+        return m_trxName;
+    }
+
+    public void set_TrxName(String trxName) {
+        m_trxName = trxName;
+    }
+
+    public boolean is_new() {
+        return m_new;
+    }
+
+    public Object get_Value(String columnName) {
+        return m_values.get(columnName);
+    }
+
+    public Object get_ValueOld(String columnName) {
+        return m_oldValues.get(columnName);
+    }
+
+    public int get_ValueAsInt(String columnName) {
+        Object value = get_Value(columnName);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof String && ((String) value).length() > 0) {
+            return Integer.parseInt((String) value);
+        }
+        return 0;
+    }
+
+    public boolean get_ValueAsBoolean(String columnName) {
+        Object value = get_Value(columnName);
+        if (value instanceof Boolean) {
+            return ((Boolean) value).booleanValue();
+        }
+        return "Y".equals(value);
+    }
+
+    /**
+     * Valor numérico (zero se nulo, como nos getters gerados do ADempiere)
+     */
+    protected BigDecimal get_ValueAsBD(String columnName) {
+        Object value = get_Value(columnName);
+        if (value == null) {
+            return Env.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+
+    /**
+     * @return Índice da coluna na tabela ou -1 se não existir
+     */
+    public int get_ColumnIndex(String columnName) {
+        List<String> columns = getColumns(get_TableName());
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean is_ValueChanged(String columnName) {
+        if (!m_values.containsKey(columnName)) {
+            return false;
+        }
+        Object value = m_values.get(columnName);
+        Object old = m_oldValues.get(columnName);
+        if (value == null || old == null) {
+            return value != old;
+        }
+        if (value instanceof BigDecimal && old instanceof BigDecimal) {
+            return ((BigDecimal) value).compareTo((BigDecimal) old) != 0;
+        }
+        return !value.equals(old);
+    }
+
+    /**
+     * Definir o valor de uma coluna
+     */
+    public void set_ValueOfColumn(String columnName, Object value) {
+        set_Value(columnName, value);
+    }
+
+    protected boolean set_Value(String columnName, Object value) {
+        m_values.put(columnName, value);
+        return true;
+    }
+
+    public int getAD_Client_ID() {
+        return get_ValueAsInt("AD_Client_ID");
+    }
+
+    public int getAD_Org_ID() {
+        return get_ValueAsInt("AD_Org_ID");
+    }
+
+    public boolean isActive() {
+        return get_ValueAsBoolean("IsActive");
+    }
+
+    /**
+     * Gravar o registro na transação (INSERT se novo, UPDATE das colunas alteradas)
+     */
+    public void saveEx() {
+        List<String> columns = new ArrayList<String>();
+        List<Object> params = new ArrayList<Object>();
+        for (Map.Entry<String, Object> entry : m_values.entrySet()) {
+            if (get_ColumnIndex(entry.getKey()) >= 0 && (m_new || is_ValueChanged(entry.getKey()))) {
+                columns.add(entry.getKey());
+                params.add(entry.getValue());
+            }
+        }
+
+        StringBuilder sql = new StringBuilder();
+        if (m_new) {
+            sql.append("INSERT INTO ").append(get_TableName()).append(" (");
+            for (int i = 0; i < columns.size(); i++) {
+                sql.append(i > 0 ? ", " : "").append(columns.get(i));
+            }
+            sql.append(") VALUES (");
+            for (int i = 0; i < columns.size(); i++) {
+                sql.append(i > 0 ? ", ?" : "?");
+            }
+            sql.append(")");
+        } else if (!columns.isEmpty()) {
+            sql.append("UPDATE ").append(get_TableName()).append(" SET ");
+            for (int i = 0; i < columns.size(); i++) {
+                sql.append(i > 0 ? ", " : "").append(columns.get(i)).append(" = ?");
+            }
+            sql.append(" WHERE ").append(get_KeyColumn()).append(" = ?");
+            params.add(get_ID());
+        } else {
+            return;
+        }
+
+        DB.executeUpdateEx(sql.toString(), params.toArray(), m_trxName);
+        m_oldValues.clear();
+        m_oldValues.putAll(m_values);
+        m_new = false;
+    }
+
+    /**
+     * Ler o registro pela chave
+     */
+    protected void load(int ID) {
+        String sql = "SELECT * FROM " + get_TableName() + " WHERE " + get_KeyColumn() + " = ?";
+        PreparedStatement pstmt = DB.prepareStatement(sql, m_trxName);
+        try {
+            pstmt.setInt(1, ID);
+            ResultSet rs = pstmt.executeQuery();
+            try {
+                if (rs.next()) {
+                    load(rs);
+                } else {
+                    log.warning("Registro não encontrado: " + get_TableName() + " ID=" + ID);
+                }
+            } finally {
+                rs.close();
+            }
+        } catch (SQLException e) {
+            throw new DBException(e, sql);
+        } finally {
+            DB.close(pstmt);
+        }
+    }
+
+    private void load(ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            String columnName = meta.getColumnLabel(i);
+            Object value = rs.getObject(i);
+            if (value instanceof String && columnName.regionMatches(true, 0, "Is", 0, 2)
+                && ("Y".equals(value) || "N".equals(value))) {
+                value = Boolean.valueOf("Y".equals(value));
+            }
+            m_values.put(columnName, value);
+            m_oldValues.put(columnName, value);
+        }
+        m_new = false;
+    }
+
+    /**
+     * Colunas da tabela, lidas uma vez dos metadados (sem passar pelo StatementListener)
+     */
+    private static List<String> getColumns(String tableName) {
+        String key = tableName.toUpperCase();
+        List<String> columns = s_columns.get(key);
+        if (columns != null) {
+            return columns;
+        }
+        columns = new ArrayList<String>();
+        try {
+            DatabaseMetaData meta = DB.getConnectionRO().getMetaData();
+            ResultSet rs = meta.getColumns(null, null, key, null);
+            while (rs.next()) {
+                columns.add(rs.getString("COLUMN_NAME"));
+            }
+            rs.close();
+        } catch (SQLException e) {
+            throw new DBException(e);
+        }
+        columns = Collections.unmodifiableList(columns);
+        if (!columns.isEmpty()) {
+            s_columns.put(key, columns);
+        }
+        return columns;
+    }
+
+    public String toString() {
+        return get_TableName() + "[" + get_ID() + "]";
+    }
+}
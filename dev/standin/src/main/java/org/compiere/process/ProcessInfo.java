@@ -0,0 +1,111 @@
+package org.compiere.process;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Substituto de org.compiere.process.ProcessInfo
+ * O log (addLog) fica em memória, disponível em getLogMessages
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class ProcessInfo {
+
+    private final String m_Title;
+    private final int m_AD_Process_ID;
+    private int m_AD_Client_ID = 0;
+    private int m_AD_User_ID = 0;
+    private int m_AD_PInstance_ID = 0;
+    private int m_Table_ID = 0;
+    private int m_Record_ID = 0;
+    private ProcessInfoParameter[] m_parameter = new ProcessInfoParameter[0];
+    private String m_Summary = "";
+    private boolean m_Error = false;
+    private final List<String> m_logs = Collections.synchronizedList(new ArrayList<String>());
+
+    public ProcessInfo(String title, int AD_Process_ID) {
+        m_Title = title;
+        m_AD_Process_ID = AD_Process_ID;
+    }
+
+    public String getTitle() {
+        return m_Title;
+    }
+
+    public int getAD_Process_ID() {
+        return m_AD_Process_ID;
+    }
+
+    public int getAD_Client_ID() {
+        return m_AD_Client_ID;
+    }
+
+    public void setAD_Client_ID(int AD_Client_ID) {
+        m_AD_Client_ID = AD_Client_ID;
+    }
+
+    public int getAD_User_ID() {
+        return m_AD_User_ID;
+    }
+
+    public void setAD_User_ID(int AD_User_ID) {
+        m_AD_User_ID = AD_User_ID;
+    }
+
+    public int getAD_PInstance_ID() {
+        return m_AD_PInstance_ID;
+    }
+
+    public void setAD_PInstance_ID(int AD_PInstance_ID) {
+        m_AD_PInstance_ID = AD_PInstance_ID;
+    }
+
+    public int getTable_ID() {
+        return m_Table_ID;
+    }
+
+    public void setTable_ID(int AD_Table_ID) {
+        m_Table_ID = AD_Table_ID;
+    }
+
+    public int getRecord_ID() {
+        return m_Record_ID;
+    }
+
+    public void setRecord_ID(int Record_ID) {
+        m_Record_ID = Record_ID;
+    }
+
+    public ProcessInfoParameter[] getParameter() {
+        return m_parameter;
+    }
+
+    public void setParameter(ProcessInfoParameter[] parameter) {
+        m_parameter = parameter != null ? parameter : new ProcessInfoParameter[0];
+    }
+
+    public String getSummary() {
+        return m_Summary;
+    }
+
+    public void setSummary(String summary, boolean error) {
+        m_Summary = summary;
+        m_Error = error;
+    }
+
+    public boolean isError() {
+        return m_Error;
+    }
+
+    public void addLog(String message) {
+        m_logs.add(message);
+    }
+
+    public List<String> getLogMessages() {
+        synchronized (m_logs) {
+            return new ArrayList<String>(m_logs);
+        }
+    }
+}
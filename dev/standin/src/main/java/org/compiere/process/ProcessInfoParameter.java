@@ -0,0 +1,72 @@
+package org.compiere.process;
+
+import java.math.BigDecimal;
+
+/**
+ * Substituto de org.compiere.process.ProcessInfoParameter
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class ProcessInfoParameter {
+
+    private final String m_ParameterName;
+    private final Object m_Parameter;
+    private final Object m_Parameter_To;
+    private final String m_Info;
+    private final String m_Info_To;
+
+    public ProcessInfoParameter(String parameterName, Object parameter, Object parameter_To,
+                                String info, String info_To) {
+        m_ParameterName = parameterName;
+        m_Parameter = parameter;
+        m_Parameter_To = parameter_To;
+        m_Info = info;
+        m_Info_To = info_To;
+    }
+
+    public String getParameterName() {
+        return m_ParameterName;
+    }
+
+    public Object getParameter() {
+        return m_Parameter;
+    }
+
+    public Object getParameter_To() {
+        return m_Parameter_To;
+    }
+
+    public String getInfo() {
+        return m_Info;
+    }
+
+    public String getInfo_To() {
+        return m_Info_To;
+    }
+
+    public int getParameterAsInt() {
+        if (m_Parameter == null) {
+            return 0;
+        }
+        if (m_Parameter instanceof Number) {
+            return ((Number) m_Parameter).intValue();
+        }
+        return new BigDecimal(m_Parameter.toString()).intValue();
+    }
+
+    public boolean getParameterAsBoolean() {
+        if (m_Parameter == null) {
+            return false;
+        }
+        if (m_Parameter instanceof Boolean) {
+            return ((Boolean) m_Parameter).booleanValue();
+        }
+        return "Y".equals(m_Parameter);
+    }
+
+    public String toString() {
+        return "ProcessInfoParameter[" + m_ParameterName + "=" + m_Parameter
+               + (m_Parameter_To != null ? " - " + m_Parameter_To : "") + "]";
+    }
+}
@@ -0,0 +1,137 @@
+package org.compiere.process;
+
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.logging.Level;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.compiere.util.CLogger;
+import org.compiere.util.Env;
+import org.compiere.util.Trx;
+
+/**
+ * Substituto de org.compiere.process.SvrProcess
+ * startProcess executa prepare e doIt na transação informada ou em uma transação própria,
+ * confirmada em caso de sucesso e desfeita em caso de erro, como no servidor
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public abstract class SvrProcess {
+
+    /** Logger */
+    protected CLogger log = CLogger.getCLogger(getClass());
+
+    private Properties m_ctx;
+    private ProcessInfo m_pi;
+    private Trx m_trx;
+
+    protected abstract void prepare();
+
+    protected abstract String doIt() throws Exception;
+
+    /**
+     * Executar o processo
+     *
+     * @param ctx Contexto
+     * @param pi Informações e parâmetros
+     * @param trx Transação ou null para uma transação própria
+     * @return true se concluído sem erro
+     */
+    public final boolean startProcess(Properties ctx, ProcessInfo pi, Trx trx) {
+        m_ctx = ctx != null ? ctx : Env.getCtx();
+        m_pi = pi;
+        boolean localTrx = trx == null;
+        m_trx = localTrx ? Trx.get(Trx.createTrxName("SvrProcess"), true) : trx;
+
+        boolean success;
+        try {
+            prepare();
+            String msg = doIt();
+            pi.setSummary(msg, false);
+            success = true;
+        } catch (Throwable e) {
+            log.log(Level.SEVERE, e.getLocalizedMessage(), e);
+            pi.setSummary(e.getLocalizedMessage(), true);
+            success = false;
+        }
+
+        if (localTrx) {
+            if (success) {
+                success = m_trx.commit();
+                if (!success) {
+                    pi.setSummary("Erro no commit", true);
+                }
+            } else {
+                m_trx.rollback();
+            }
+            m_trx.close();
+            m_trx = null;
+        }
+        return success;
+    }
+
+    protected ProcessInfoParameter[] getParameter() {
+        return m_pi.getParameter();
+    }
+
+    public ProcessInfo getProcessInfo() {
+        return m_pi;
+    }
+
+    public Properties getCtx() {
+        return m_ctx;
+    }
+
+    public String get_TrxName() {
+        return m_trx != null ? m_trx.getTrxName() : null;
+    }
+
+    public void addLog(String msg) {
+        m_pi.addLog(msg);
+    }
+
+    public int getAD_Client_ID() {
+        int AD_Client_ID = m_pi.getAD_Client_ID();
+        return AD_Client_ID > 0 ? AD_Client_ID : Env.getAD_Client_ID(m_ctx);
+    }
+
+    public int getAD_User_ID() {
+        int AD_User_ID = m_pi.getAD_User_ID();
+        return AD_User_ID > 0 ? AD_User_ID : Env.getAD_User_ID(m_ctx);
+    }
+
+    public int getAD_PInstance_ID() {
+        return m_pi.getAD_PInstance_ID();
+    }
+
+    public int getTable_ID() {
+        return m_pi.getTable_ID();
+    }
+
+    public int getRecord_ID() {
+        return m_pi.getRecord_ID();
+    }
+
+    /**
+     * Confirmar a transação do processo
+     */
+    public void commitEx() {
+        if (m_trx != null) {
+            try {
+                m_trx.commit(true);
+            } catch (SQLException e) {
+                throw new AdempiereException(e);
+            }
+        }
+    }
+
+    /**
+     * Desfazer a transação do processo
+     */
+    public void rollback() {
+        if (m_trx != null) {
+            m_trx.rollback();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.compiere.util;
+
+import java.util.HashMap;
+
+/**
+ * Substituto de org.compiere.util.CCache: HashMap nomeado, sem expiração nem reset central
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class CCache<K, V> extends HashMap<K, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String m_name;
+
+    public CCache(String name, int initialCapacity) {
+        this(name, initialCapacity, 0);
+    }
+
+    public CCache(String name, int initialCapacity, int expireMinutes) {
+        super(initialCapacity > 0 ? initialCapacity : 16);
+        m_name = name;
+    }
+
+    public String getName() {
+        return m_name;
+    }
+
+    public int reset() {
+        int size = size();
+        clear();
+        return size;
+    }
+}
@@ -0,0 +1,32 @@
+package org.compiere.util;
+
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+/**
+ * Substituto de org.compiere.util.CLogger: java.util.logging registrado no LogManager
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class CLogger extends Logger {
+
+    protected CLogger(String name, String resourceBundleName) {
+        super(name, resourceBundleName);
+    }
+
+    public static synchronized CLogger getCLogger(String className) {
+        LogManager manager = LogManager.getLogManager();
+        Logger result = manager.getLogger(className);
+        if (result instanceof CLogger) {
+            return (CLogger) result;
+        }
+        CLogger logger = new CLogger(className, null);
+        manager.addLogger(logger);
+        return logger;
+    }
+
+    public static CLogger getCLogger(Class<?> clazz) {
+        return getCLogger(clazz.getName());
+    }
+}
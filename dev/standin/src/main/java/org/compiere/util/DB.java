@@ -0,0 +1,336 @@
+package org.compiere.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.logging.Level;
+
+import org.adempiere.exceptions.DBException;
+
+/**
+ * Substituto de org.compiere.util.DB para testes e benchmarks fora do servidor
+ *
+ * As conexões são abertas no banco JDBC informado em setURL. Sem transação, cada thread usa
+ * uma conexão própria em auto-commit; com transação, a conexão do Trx. Todo comando executado
+ * pelos statements criados aqui passa pelo StatementListener, se houver, usado pelos testes
+ * para contar comandos e simular falhas.
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class DB {
+
+    /** Logger */
+    private static CLogger log = CLogger.getCLogger(DB.class);
+
+    /**
+     * Observador dos comandos executados
+     */
+    public interface StatementListener {
+        /**
+         * Chamado antes de cada execução
+         *
+         * @param sql Comando
+         * @throws SQLException para simular uma falha do banco
+         */
+        void beforeExecute(String sql) throws SQLException;
+
+        /**
+         * Chamado após cada execução bem-sucedida (o H2 já leu as linhas da consulta)
+         *
+         * @param sql Comando
+         */
+        default void afterExecute(String sql) throws SQLException {
+        }
+    }
+
+    /** URL do banco */
+    private static volatile String s_url = null;
+
+    /** Observador dos comandos */
+    private static volatile StatementListener s_listener = null;
+
+    /** Conexão em auto-commit da thread e a URL em que foi aberta */
+    private static final ThreadLocal<Object[]> s_threadConnection = new ThreadLocal<Object[]>();
+
+    /**
+     * Definir o banco usado pelas próximas conexões
+     *
+     * @param url URL JDBC
+     */
+    public static void setURL(String url) {
+        s_url = url;
+    }
+
+    /**
+     * @return URL JDBC do banco atual
+     */
+    public static String getURL() {
+        return s_url;
+    }
+
+    /**
+     * Definir o observador dos comandos executados
+     *
+     * @param listener Observador ou null
+     */
+    public static void setStatementListener(StatementListener listener) {
+        s_listener = listener;
+    }
+
+    /**
+     * Abrir uma nova conexão
+     *
+     * @param autoCommit Auto-commit
+     * @return Conexão
+     */
+    public static Connection createConnection(boolean autoCommit) {
+        if (s_url == null) {
+            throw new IllegalStateException("DB.setURL não foi chamado");
+        }
+        try {
+            Connection conn = DriverManager.getConnection(s_url, "sa", "");
+            conn.setAutoCommit(autoCommit);
+            return conn;
+        } catch (SQLException e) {
+            throw new DBException(e);
+        }
+    }
+
+    /**
+     * @return Conexão em auto-commit da thread
+     */
+    public static Connection getConnectionRO() {
+        Object[] entry = s_threadConnection.get();
+        try {
+            if (entry == null || !s_url.equals(entry[0]) || ((Connection) entry[1]).isClosed()) {
+                entry = new Object[] {s_url, createConnection(true)};
+                s_threadConnection.set(entry);
+            }
+        } catch (SQLException e) {
+            throw new DBException(e);
+        }
+        return (Connection) entry[1];
+    }
+
+    /**
+     * Conexão da transação ou, sem transação, a conexão em auto-commit da thread
+     */
+    private static Connection getConnection(String trxName) {
+        if (trxName != null) {
+            return Trx.get(trxName, true).getConnection();
+        }
+        return getConnectionRO();
+    }
+
+    public static PreparedStatement prepareStatement(String sql, String trxName) {
+        return prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, trxName);
+    }
+
+    public static PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+                                                     String trxName) {
+        try {
+            PreparedStatement pstmt = getConnection(trxName).prepareStatement(sql, resultSetType, resultSetConcurrency);
+            return wrap(pstmt, sql);
+        } catch (SQLException e) {
+            throw new DBException(e, sql);
+        }
+    }
+
+    /**
+     * Statement que avisa o observador antes e depois de cada execução
+     */
+    private static PreparedStatement wrap(final PreparedStatement pstmt, final String sql) {
+        return (PreparedStatement) Proxy.newProxyInstance(DB.class.getClassLoader(),
+            new Class<?>[] {PreparedStatement.class}, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if (method.getName().startsWith("execute")) {
+                        StatementListener listener = s_listener;
+                        if (listener != null) {
+                            listener.beforeExecute(sql);
+                        }
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(pstmt, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (method.getName().startsWith("execute")) {
+                        StatementListener listener = s_listener;
+                        if (listener != null) {
+                            listener.afterExecute(sql);
+                        }
+                    }
+                    return result;
+                }
+            });
+    }
+
+    /**
+     * Preencher os parâmetros (Boolean gravado como Y/N, como no ADempiere)
+     */
+    public static void setParameters(PreparedStatement pstmt, Object... params) throws SQLException {
+        if (params == null) {
+            return;
+        }
+        for (int i = 0; i < params.length; i++) {
+            Object param = params[i];
+            if (param instanceof Boolean) {
+                pstmt.setString(i + 1, ((Boolean) param).booleanValue() ? "Y" : "N");
+            } else if (param instanceof java.util.Date && !(param instanceof Timestamp)) {
+                pstmt.setTimestamp(i + 1, new Timestamp(((java.util.Date) param).getTime()));
+            } else {
+                pstmt.setObject(i + 1, param);
+            }
+        }
+    }
+
+    /**
+     * Primeira coluna da primeira linha como inteiro
+     *
+     * @return Valor ou -1 se não houver linha ou em caso de erro
+     */
+    public static int getSQLValue(String trxName, String sql, Object... params) {
+        try {
+            return getSQLValueEx(trxName, sql, params);
+        } catch (DBException e) {
+            log.log(Level.SEVERE, sql, e);
+            return -1;
+        }
+    }
+
+    public static int getSQLValueEx(String trxName, String sql, Object... params) {
+        Object value = getValue(trxName, sql, params);
+        return value != null ? ((Number) value).intValue() : -1;
+    }
+
+    public static BigDecimal getSQLValueBD(String trxName, String sql, Object... params) {
+        try {
+            Object value = getValue(trxName, sql, params);
+            return value != null ? new BigDecimal(value.toString()) : null;
+        } catch (DBException e) {
+            log.log(Level.SEVERE, sql, e);
+            return null;
+        }
+    }
+
+    public static String getSQLValueString(String trxName, String sql, Object... params) {
+        try {
+            Object value = getValue(trxName, sql, params);
+            return value != null ? value.toString() : null;
+        } catch (DBException e) {
+            log.log(Level.SEVERE, sql, e);
+            return null;
+        }
+    }
+
+    private static Object getValue(String trxName, String sql, Object... params) {
+        PreparedStatement pstmt = prepareStatement(sql, trxName);
+        try {
+            setParameters(pstmt, params);
+            ResultSet rs = pstmt.executeQuery();
+            try {
+                return rs.next() ? rs.getObject(1) : null;
+            } finally {
+                rs.close();
+            }
+        } catch (SQLException e) {
+            throw new DBException(e, sql);
+        } finally {
+            close(pstmt);
+        }
+    }
+
+    /**
+     * @return Linhas alteradas ou -1 em caso de erro (com ignoreError)
+     */
+    public static int executeUpdate(String sql, Object[] params, boolean ignoreError, String trxName) {
+        try {
+            return executeUpdateEx(sql, params, trxName);
+        } catch (DBException e) {
+            if (!ignoreError) {
+                log.log(Level.SEVERE, sql, e);
+            }
+            return -1;
+        }
+    }
+
+    public static int executeUpdateEx(String sql, String trxName) {
+        return executeUpdateEx(sql, null, trxName);
+    }
+
+    public static int executeUpdateEx(String sql, Object[] params, String trxName) {
+        PreparedStatement pstmt = prepareStatement(sql, trxName);
+        try {
+            setParameters(pstmt, params);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DBException(e, sql);
+        } finally {
+            close(pstmt);
+        }
+    }
+
+    /**
+     * Confirmar a transação (sem transação, a conexão está em auto-commit)
+     */
+    public static boolean commit(boolean throwException, String trxName) throws SQLException {
+        if (trxName == null) {
+            return true;
+        }
+        Trx trx = Trx.get(trxName, false);
+        if (trx == null) {
+            return false;
+        }
+        return trx.commit(throwException);
+    }
+
+    public static void close(ResultSet rs, Statement st) {
+        if (rs != null) {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                // ignorado, como no ADempiere
+            }
+        }
+        close(st);
+    }
+
+    public static void close(Statement st) {
+        if (st != null) {
+            try {
+                st.close();
+            } catch (SQLException e) {
+                // ignorado, como no ADempiere
+            }
+        }
+    }
+
+    /**
+     * O H2 é usado em modo de compatibilidade com o PostgreSQL
+     */
+    public static boolean isPostgreSQL() {
+        return true;
+    }
+
+    public static String TO_DATE(Timestamp time, boolean dayOnly) {
+        if (time == null) {
+            return "NULL";
+        }
+        if (dayOnly) {
+            return "DATE '" + new SimpleDateFormat("yyyy-MM-dd").format(time) + "'";
+        }
+        return "TIMESTAMP '" + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(time) + "'";
+    }
+}
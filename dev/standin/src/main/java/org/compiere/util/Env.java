@@ -0,0 +1,81 @@
+package org.compiere.util;
+
+import java.math.BigDecimal;
+import java.util.Properties;
+
+/**
+ * Substituto de org.compiere.util.Env
+ * Contexto global em Properties; o contexto da janela usa a chave "WindowNo|Nome" e,
+ * sem valor na janela, o contexto global "#Nome"
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class Env {
+
+    public static final BigDecimal ZERO = new BigDecimal(0.0);
+    public static final BigDecimal ONE = new BigDecimal(1.0);
+    public static final BigDecimal ONEHUNDRED = new BigDecimal(100.0);
+
+    /** Contexto global */
+    private static final Properties s_ctx = new Properties();
+
+    public static Properties getCtx() {
+        return s_ctx;
+    }
+
+    public static void setContext(Properties ctx, String context, String value) {
+        if (value == null) {
+            ctx.remove(context);
+        } else {
+            ctx.setProperty(context, value);
+        }
+    }
+
+    public static void setContext(Properties ctx, String context, int value) {
+        setContext(ctx, context, String.valueOf(value));
+    }
+
+    public static void setContext(Properties ctx, int WindowNo, String context, String value) {
+        setContext(ctx, WindowNo + "|" + context, value);
+    }
+
+    public static String getContext(Properties ctx, String context) {
+        return ctx.getProperty(context, "");
+    }
+
+    public static String getContext(Properties ctx, int WindowNo, String context) {
+        String value = ctx.getProperty(WindowNo + "|" + context);
+        if (value == null || value.length() == 0) {
+            value = getContext(ctx, "#" + context);
+        }
+        return value;
+    }
+
+    public static int getContextAsInt(Properties ctx, String context) {
+        return parseInt(getContext(ctx, context));
+    }
+
+    public static int getContextAsInt(Properties ctx, int WindowNo, String context) {
+        return parseInt(getContext(ctx, WindowNo, context));
+    }
+
+    public static int getAD_Client_ID(Properties ctx) {
+        return getContextAsInt(ctx, "#AD_Client_ID");
+    }
+
+    public static int getAD_User_ID(Properties ctx) {
+        return getContextAsInt(ctx, "#AD_User_ID");
+    }
+
+    private static int parseInt(String value) {
+        if (value == null || value.length() == 0) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
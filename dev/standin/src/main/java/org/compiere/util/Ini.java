@@ -0,0 +1,17 @@
+package org.compiere.util;
+
+/**
+ * Substituto de org.compiere.util.Ini
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class Ini {
+
+    /**
+     * @return Propriedade ADEMPIERE_HOME ou o diretório temporário
+     */
+    public static String getAdempiereHome() {
+        return System.getProperty("ADEMPIERE_HOME", System.getProperty("java.io.tmpdir"));
+    }
+}
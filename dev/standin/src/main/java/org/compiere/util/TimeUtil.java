@@ -0,0 +1,60 @@
+package org.compiere.util;
+
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+/**
+ * Substituto de org.compiere.util.TimeUtil (datas no fuso padrão da JVM)
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class TimeUtil {
+
+    /**
+     * @return Início do dia
+     */
+    public static Timestamp getDay(Timestamp time) {
+        if (time == null) {
+            time = new Timestamp(System.currentTimeMillis());
+        }
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(time.getTime());
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return new Timestamp(cal.getTimeInMillis());
+    }
+
+    public static Timestamp getDay(int year, int month, int day) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, month - 1, day);
+        return new Timestamp(cal.getTimeInMillis());
+    }
+
+    public static Timestamp addDays(Timestamp day, int offset) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(getDay(day).getTime());
+        cal.add(Calendar.DAY_OF_YEAR, offset);
+        return new Timestamp(cal.getTimeInMillis());
+    }
+
+    public static Timestamp addMonths(Timestamp day, int offset) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(getDay(day).getTime());
+        cal.add(Calendar.MONTH, offset);
+        return new Timestamp(cal.getTimeInMillis());
+    }
+
+    /**
+     * @return Primeiro dia do mês
+     */
+    public static Timestamp getMonthFirstDay(Timestamp day) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(getDay(day).getTime());
+        cal.set(Calendar.DAY_OF_MONTH, 1);
+        return new Timestamp(cal.getTimeInMillis());
+    }
+}
@@ -0,0 +1,188 @@
+package org.compiere.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Substituto de org.compiere.util.Trx: transação nomeada com conexão própria
+ * Como no ADempiere, commit e rollback mantêm a transação aberta, close desfaz o que não foi
+ * confirmado e os TrxEventListener são avisados de cada evento
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class Trx {
+
+    /** Logger */
+    private static CLogger log = CLogger.getCLogger(Trx.class);
+
+    /** Transações abertas */
+    private static final ConcurrentHashMap<String, Trx> s_cache = new ConcurrentHashMap<String, Trx>();
+
+    /** Sequência dos nomes gerados */
+    private static final AtomicLong s_sequence = new AtomicLong();
+
+    private final String m_trxName;
+    private Connection m_connection = null;
+    private final List<TrxEventListener> m_listeners = new CopyOnWriteArrayList<TrxEventListener>();
+
+    private Trx(String trxName) {
+        m_trxName = trxName;
+    }
+
+    public static String createTrxName(String prefix) {
+        return (prefix != null ? prefix : "Trx") + "_" + System.currentTimeMillis() + "_" + s_sequence.incrementAndGet();
+    }
+
+    public static String createTrxName() {
+        return createTrxName(null);
+    }
+
+    /**
+     * Obter a transação
+     *
+     * @param trxName Nome
+     * @param createNew Criar se não existir
+     * @return Transação ou null
+     */
+    public static Trx get(String trxName, boolean createNew) {
+        if (trxName == null) {
+            throw new IllegalArgumentException("No Transaction Name");
+        }
+        Trx trx = s_cache.get(trxName);
+        if (trx == null && createNew) {
+            Trx created = new Trx(trxName);
+            trx = s_cache.putIfAbsent(trxName, created);
+            if (trx == null) {
+                trx = created;
+            }
+        }
+        return trx;
+    }
+
+    /**
+     * @return Transações abertas
+     */
+    public static int getOpenCount() {
+        return s_cache.size();
+    }
+
+    public synchronized Connection getConnection() {
+        if (m_connection == null) {
+            m_connection = DB.createConnection(false);
+        }
+        return m_connection;
+    }
+
+    public String getTrxName() {
+        return m_trxName;
+    }
+
+    public synchronized boolean isActive() {
+        return m_connection != null;
+    }
+
+    public boolean commit() {
+        try {
+            return commit(false);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    public boolean commit(boolean throwException) throws SQLException {
+        synchronized (this) {
+            if (m_connection != null) {
+                try {
+                    m_connection.commit();
+                } catch (SQLException e) {
+                    log.log(Level.SEVERE, m_trxName, e);
+                    fireAfterCommit(false);
+                    if (throwException) {
+                        throw e;
+                    }
+                    return false;
+                }
+            }
+        }
+        fireAfterCommit(true);
+        return true;
+    }
+
+    public boolean rollback() {
+        try {
+            return rollback(false);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    public boolean rollback(boolean throwException) throws SQLException {
+        boolean success = true;
+        synchronized (this) {
+            if (m_connection != null) {
+                try {
+                    m_connection.rollback();
+                } catch (SQLException e) {
+                    log.log(Level.SEVERE, m_trxName, e);
+                    success = false;
+                    if (throwException) {
+                        throw e;
+                    }
+                }
+            }
+        }
+        for (TrxEventListener listener : m_listeners) {
+            listener.afterRollback(this, success);
+        }
+        return success;
+    }
+
+    /**
+     * Encerrar a transação: alterações não confirmadas são desfeitas
+     */
+    public boolean close() {
+        s_cache.remove(m_trxName, this);
+        synchronized (this) {
+            if (m_connection != null) {
+                try {
+                    if (!m_connection.isClosed()) {
+                        m_connection.rollback();
+                        m_connection.close();
+                    }
+                } catch (SQLException e) {
+                    log.log(Level.SEVERE, m_trxName, e);
+                }
+                m_connection = null;
+            }
+        }
+        for (TrxEventListener listener : m_listeners) {
+            listener.afterClose(this);
+        }
+        m_listeners.clear();
+        return true;
+    }
+
+    public void addTrxEventListener(TrxEventListener listener) {
+        m_listeners.add(listener);
+    }
+
+    public boolean removeTrxEventListener(TrxEventListener listener) {
+        return m_listeners.remove(listener);
+    }
+
+    private void fireAfterCommit(boolean success) {
+        for (TrxEventListener listener : m_listeners) {
+            listener.afterCommit(this, success);
+        }
+    }
+
+    public String toString() {
+        return "Trx[" + m_trxName + "]";
+    }
+}
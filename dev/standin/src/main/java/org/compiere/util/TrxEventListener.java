@@ -0,0 +1,16 @@
+package org.compiere.util;
+
+/**
+ * Substituto de org.compiere.util.TrxEventListener
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public interface TrxEventListener {
+
+    void afterCommit(Trx trx, boolean success);
+
+    void afterRollback(Trx trx, boolean success);
+
+    void afterClose(Trx trx);
+}
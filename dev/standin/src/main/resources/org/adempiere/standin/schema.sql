@@ -0,0 +1,152 @@
+-- Tabelas do ADempiere usadas pelas customizações (apenas as colunas lidas ou gravadas)
+-- e tabelas auxiliares de create_custom_tables.sql, em SQL aceito pelo H2 (modo PostgreSQL)
+
+CREATE TABLE M_Product (
+    M_Product_ID            INTEGER         NOT NULL PRIMARY KEY,
+    AD_Client_ID            INTEGER         DEFAULT 11 NOT NULL,
+    AD_Org_ID               INTEGER         DEFAULT 0 NOT NULL,
+    IsActive                CHAR(1)         DEFAULT 'Y' NOT NULL,
+    Name                    VARCHAR(255)    NOT NULL,
+    M_Product_Category_ID   INTEGER,
+    IsSold                  CHAR(1)         DEFAULT 'Y' NOT NULL,
+    Updated                 TIMESTAMP       DEFAULT NOW() NOT NULL
+);
+
+CREATE TABLE M_Product_Category (
+    M_Product_Category_ID   INTEGER         NOT NULL PRIMARY KEY,
+    AD_Client_ID            INTEGER         DEFAULT 11 NOT NULL,
+    Name                    VARCHAR(255)    NOT NULL
+);
+
+CREATE TABLE M_PriceList_Version (
+    M_PriceList_Version_ID  INTEGER         NOT NULL PRIMARY KEY,
+    AD_Client_ID            INTEGER         DEFAULT 11 NOT NULL,
+    M_PriceList_ID          INTEGER         NOT NULL,
+    ValidFrom               TIMESTAMP       NOT NULL
+);
+
+CREATE TABLE M_ProductPrice (
+    M_Product_ID            INTEGER         NOT NULL,
+    M_PriceList_Version_ID  INTEGER         NOT NULL,
+    AD_Client_ID            INTEGER         DEFAULT 11 NOT NULL,
+    PriceList               NUMERIC(20,6),
+    PriceStd                NUMERIC(20,6),
+    PriceLimit              NUMERIC(20,6),
+    Updated                 TIMESTAMP       DEFAULT NOW() NOT NULL,
+    UpdatedBy               INTEGER         DEFAULT 0 NOT NULL,
+    PRIMARY KEY (M_PriceList_Version_ID, M_Product_ID)
+);
+
+CREATE TABLE AD_Client (
+    AD_Client_ID            INTEGER         NOT NULL PRIMARY KEY,
+    Name                    VARCHAR(60)     NOT NULL
+);
+
+INSERT INTO AD_Client (AD_Client_ID, Name) VALUES (0, 'System');
+INSERT INTO AD_Client (AD_Client_ID, Name) VALUES (11, 'GardenWorld');
+
+CREATE TABLE C_BPartner (
+    C_BPartner_ID           INTEGER         NOT NULL PRIMARY KEY,
+    AD_Client_ID            INTEGER         DEFAULT 11 NOT NULL,
+    AD_Org_ID               INTEGER         DEFAULT 0 NOT NULL,
+    IsActive                CHAR(1)         DEFAULT 'Y' NOT NULL,
+    Name                    VARCHAR(255)    NOT NULL,
+    IsCustomer              CHAR(1)         DEFAULT 'Y' NOT NULL,
+    C_BP_Group_ID           INTEGER         DEFAULT 0 NOT NULL,
+    SO_CreditLimit          NUMERIC(20,2)   DEFAULT 0,
+    SO_CreditUsed           NUMERIC(20,2)   DEFAULT 0,
+    Updated                 TIMESTAMP       DEFAULT NOW() NOT NULL
+);
+
+CREATE INDEX Custom_BPartner_Updated ON C_BPartner (AD_Client_ID, Updated);
+
+CREATE TABLE C_Order (
+    C_Order_ID              INTEGER         NOT NULL PRIMARY KEY,
+    AD_Client_ID            INTEGER         DEFAULT 11 NOT NULL,
+    AD_Org_ID               INTEGER         DEFAULT 0 NOT NULL,
+    IsActive                CHAR(1)         DEFAULT 'Y' NOT NULL,
+    C_BPartner_ID           INTEGER         NOT NULL,
+    DateOrdered             TIMESTAMP       NOT NULL,
+    GrandTotal              NUMERIC(20,2)   DEFAULT 0 NOT NULL,
+    DocStatus               CHAR(2)         DEFAULT 'DR' NOT NULL,
+    IsSOTrx                 CHAR(1)         DEFAULT 'Y' NOT NULL,
+    Processed               CHAR(1)         DEFAULT 'N' NOT NULL,
+    M_Warehouse_ID          INTEGER         DEFAULT 0 NOT NULL,
+    M_PriceList_ID          INTEGER         DEFAULT 0 NOT NULL
+);
+
+CREATE INDEX C_Order_BPartner ON C_Order (C_BPartner_ID);
+
+CREATE TABLE C_OrderLine (
+    C_OrderLine_ID          INTEGER         NOT NULL PRIMARY KEY,
+    AD_Client_ID            INTEGER         DEFAULT 11 NOT NULL,
+    AD_Org_ID               INTEGER         DEFAULT 0 NOT NULL,
+    IsActive                CHAR(1)         DEFAULT 'Y' NOT NULL,
+    C_Order_ID              INTEGER         NOT NULL,
+    Line                    INTEGER         DEFAULT 10 NOT NULL,
+    M_Product_ID            INTEGER,
+    M_Warehouse_ID          INTEGER         DEFAULT 0 NOT NULL,
+    QtyEntered              NUMERIC(20,4)   DEFAULT 0 NOT NULL,
+    QtyOrdered              NUMERIC(20,4)   DEFAULT 0 NOT NULL,
+    QtyInvoiced             NUMERIC(20,4)   DEFAULT 0 NOT NULL,
+    PriceEntered            NUMERIC(20,6)   DEFAULT 0 NOT NULL,
+    PriceActual             NUMERIC(20,6)   DEFAULT 0 NOT NULL,
+    Discount                NUMERIC(20,2)   DEFAULT 0
+);
+
+CREATE INDEX C_OrderLine_Order ON C_OrderLine (C_Order_ID);
+
+CREATE TABLE M_Locator (
+    M_Locator_ID            INTEGER         NOT NULL PRIMARY KEY,
+    AD_Client_ID            INTEGER         DEFAULT 11 NOT NULL,
+    M_Warehouse_ID          INTEGER         NOT NULL
+);
+
+CREATE TABLE M_Storage (
+    M_Product_ID            INTEGER         NOT NULL,
+    M_Locator_ID            INTEGER         NOT NULL,
+    M_AttributeSetInstance_ID INTEGER       DEFAULT 0 NOT NULL,
+    AD_Client_ID            INTEGER         DEFAULT 11 NOT NULL,
+    QtyOnHand               NUMERIC(20,4)   DEFAULT 0 NOT NULL,
+    PRIMARY KEY (M_Product_ID, M_Locator_ID, M_AttributeSetInstance_ID)
+);
+
+CREATE TABLE C_Tax (
+    C_Tax_ID                INTEGER         NOT NULL PRIMARY KEY,
+    AD_Client_ID            INTEGER         DEFAULT 11 NOT NULL,
+    Rate                    NUMERIC(20,4)   NOT NULL
+);
+
+CREATE TABLE Custom_PriceCheckpoint (
+    AD_Client_ID            INTEGER         NOT NULL,
+    AD_Process_ID           INTEGER         NOT NULL,
+    Partition_ID            INTEGER         NOT NULL,
+    Fingerprint             VARCHAR(255)    NOT NULL,
+    M_Product_ID            INTEGER         NOT NULL,
+    M_PriceList_Version_ID  INTEGER         NOT NULL,
+    IsCompleted             CHAR(1)         DEFAULT 'N' NOT NULL,
+    Updated                 TIMESTAMP       DEFAULT NOW() NOT NULL,
+    PRIMARY KEY (AD_Client_ID, AD_Process_ID, Partition_ID)
+);
+
+CREATE TABLE Custom_SalesSummary (
+    AD_Client_ID            INTEGER         NOT NULL,
+    C_BPartner_ID           INTEGER         NOT NULL,
+    DateOrdered             TIMESTAMP       NOT NULL,
+    GrandTotal              NUMERIC(20,2)   DEFAULT 0 NOT NULL,
+    OrderCount              INTEGER         DEFAULT 0 NOT NULL,
+    Updated                 TIMESTAMP       DEFAULT NOW() NOT NULL,
+    PRIMARY KEY (AD_Client_ID, C_BPartner_ID, DateOrdered)
+);
+
+CREATE TABLE Custom_DiscountTier (
+    Custom_DiscountTier_ID  INTEGER         NOT NULL PRIMARY KEY,
+    AD_Client_ID            INTEGER         NOT NULL,
+    AD_Org_ID               INTEGER         DEFAULT 0 NOT NULL,
+    IsActive                CHAR(1)         DEFAULT 'Y' NOT NULL,
+    M_Product_Category_ID   INTEGER,
+    M_PriceList_ID          INTEGER,
+    C_BP_Group_ID           INTEGER,
+    MinQty                  NUMERIC(20,4)   NOT NULL,
+    Discount                NUMERIC(20,2)   NOT NULL
+);
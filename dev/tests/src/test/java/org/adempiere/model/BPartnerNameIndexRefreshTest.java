@@ -0,0 +1,84 @@
+package org.adempiere.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.model.MSysConfig;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Parceiros gravados fora desta JVM (outro servidor, SQL direto) entram no índice de nomes
+ * pela carga incremental periódica; nomes que apenas o banco normaliza não são descartados
+ * pelo filtro
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class BPartnerNameIndexRefreshTest {
+
+    @Before
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", 11);
+        StandinDatabase.create("names");
+        StandinDatabase.execute("CREATE ALIAS custom_normalize_name FOR 'org.adempiere.model.BPartnerNameIndex.normalize';" +
+                                "INSERT INTO C_BPartner (C_BPartner_ID, Name) VALUES (1, 'Comércio Central Ltda')");
+        MSysConfig.setValue("CUSTOM_BPARTNER_NAME_INDEX", "Y");
+        MSysConfig.setValue("CUSTOM_BPARTNER_NAME_INDEX_REFRESH", "1");
+    }
+
+    @After
+    public void tearDown() {
+        DB.setStatementListener(null);
+        MSysConfig.clearValues();
+    }
+
+    @Test
+    public void partnerSavedElsewhereIsFoundAfterRefresh() throws Exception {
+        BPartnerNameIndex.start();
+        assertTrue(BPartnerNameIndex.exists("comercio  central ltda", 0, null));
+        assertFalse(BPartnerNameIndex.exists("Distribuidora Norte", 0, null));
+
+        // Gravado sem passar pelo validator desta JVM
+        StandinDatabase.execute("INSERT INTO C_BPartner (C_BPartner_ID, Name) VALUES (2, 'Distribuidora Norte')");
+
+        long deadline = System.currentTimeMillis() + 10000;
+        boolean found = false;
+        while (!found && System.currentTimeMillis() < deadline) {
+            found = BPartnerNameIndex.exists("DISTRIBUIDORA NORTE", 0, null);
+            Thread.sleep(100);
+        }
+        assertTrue("Parceiro gravado fora da JVM não encontrado após a carga incremental", found);
+    }
+
+    @Test
+    public void nameOnlyTheDatabaseNormalizesIsCheckedInTheDatabase() throws Exception {
+        BPartnerNameIndex.start();
+        final AtomicInteger queries = new AtomicInteger();
+        DB.setStatementListener(new DB.StatementListener() {
+            @Override
+            public void beforeExecute(String sql) throws SQLException {
+                if (sql.startsWith("SELECT COUNT(*) FROM C_BPartner WHERE custom_normalize_name")) {
+                    queries.incrementAndGet();
+                }
+            }
+        });
+
+        // Fora do filtro: descartado sem consulta
+        assertFalse(BPartnerNameIndex.exists("Comércio Sul Ltda", 0, null));
+        assertEquals(0, queries.get());
+
+        // Travessão e aspas tipográficas: o unaccent pode produzir outra chave, consulta o banco
+        assertFalse(BPartnerNameIndex.exists("Comércio \u201cSul\u201d \u2013 Ltda", 0, null));
+        assertFalse(BPartnerNameIndex.exists("\u00C6gide Ltda", 0, null));
+        assertEquals(2, queries.get());
+    }
+}
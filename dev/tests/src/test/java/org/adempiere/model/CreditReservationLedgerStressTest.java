@@ -0,0 +1,261 @@
+package org.adempiere.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.model.MOrder;
+import org.compiere.model.MSysConfig;
+import org.compiere.model.ModelValidationEngine;
+import org.compiere.model.ModelValidator;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+import org.compiere.util.Trx;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Reservas de crédito concorrentes: o total reservado de um parceiro nunca passa do
+ * limite menos o crédito usado, as reservas são liberadas ao fim da transação e os pedidos
+ * completados passam a contar pelo banco
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class CreditReservationLedgerStressTest {
+
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 2000;
+
+    /** Parceiros do teste de carga: limite 1000, usado 200 */
+    private static final int[] PARTNERS = {9001, 9002, 9003, 9004};
+    private static final long AVAILABLE = 800;
+
+    /** Conclusões concorrentes de pedidos de um parceiro */
+    private static final int COMPLETING_THREADS = 8;
+    private static final int COMPLETIONS = 100;
+
+    @Before
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", 11);
+        StandinDatabase.create("credit");
+        for (int partnerId : PARTNERS) {
+            StandinDatabase.execute("INSERT INTO C_BPartner (C_BPartner_ID, Name, SO_CreditLimit, SO_CreditUsed) " +
+                                    "VALUES (" + partnerId + ", 'Cliente " + partnerId + "', 1000, 200)");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        MSysConfig.clearValues();
+    }
+
+    @Test
+    public void concurrentReservationsNeverExceedLimit() throws Exception {
+        final AtomicLong[] held = new AtomicLong[PARTNERS.length];
+        for (int i = 0; i < held.length; i++) {
+            held[i] = new AtomicLong();
+        }
+        final AtomicLong maxHeld = new AtomicLong();
+        final AtomicLong accepted = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        for (int t = 0; t < THREADS; t++) {
+            final Random random = new Random(t);
+            futures.add(executor.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    start.await();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        int p = random.nextInt(PARTNERS.length);
+                        long amount = 1 + random.nextInt(300);
+                        CreditReservationLedger.Reservation reservation =
+                            CreditReservationLedger.reserve(PARTNERS[p], new BigDecimal(amount), null);
+                        if (!reservation.isOK()) {
+                            rejected.incrementAndGet();
+                            continue;
+                        }
+                        accepted.incrementAndGet();
+
+                        // Contado enquanto reservado: a soma nunca pode passar do disponível
+                        long total = held[p].addAndGet(amount);
+                        updateMax(maxHeld, total);
+                        Thread.yield();
+                        held[p].addAndGet(-amount);
+
+                        reservation.release();
+                        // Liberação repetida (commit seguido de close) é ignorada
+                        reservation.release();
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertTrue("Reservado acima do limite: " + maxHeld.get(), maxHeld.get() <= AVAILABLE);
+        assertTrue("Nenhuma reserva recusada", rejected.get() > 0);
+        assertTrue("Nenhuma reserva aceita", accepted.get() > 0);
+
+        // Sem reservas perdidas: todo o disponível volta a ser reservável
+        for (int partnerId : PARTNERS) {
+            CreditReservationLedger.Reservation all =
+                CreditReservationLedger.reserve(partnerId, new BigDecimal(AVAILABLE), null);
+            assertTrue("Reserva não liberada do parceiro " + partnerId, all.isOK());
+            assertFalse(CreditReservationLedger.reserve(partnerId, Env.ONE, null).isOK());
+            all.release();
+        }
+    }
+
+    /**
+     * Pedidos completados e confirmados enquanto outras threads reservam: a liberação após o
+     * commit nunca deixa um pedido fora do banco e das reservas ao mesmo tempo
+     */
+    @Test
+    public void completedOrdersNeverExceedLimit() throws Exception {
+        final int partnerId = PARTNERS[2];
+        final AtomicInteger orderIds = new AtomicInteger(100000);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(COMPLETING_THREADS);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int t = 0; t < COMPLETING_THREADS; t++) {
+            final Random random = new Random(100 + t);
+            futures.add(executor.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    start.await();
+                    for (int i = 0; i < COMPLETIONS; i++) {
+                        long amount = 1 + random.nextInt(5);
+                        CreditReservationLedger.Reservation reservation =
+                            CreditReservationLedger.reserve(partnerId, new BigDecimal(amount), null);
+                        if (reservation.isOK()) {
+                            // Commit da conclusão: pedido completado, não faturado
+                            int orderId = orderIds.incrementAndGet();
+                            StandinDatabase.execute(
+                                "INSERT INTO C_Order (C_Order_ID, C_BPartner_ID, DateOrdered, GrandTotal, DocStatus) " +
+                                "VALUES (" + orderId + ", " + partnerId + ", NOW(), " + amount + ", 'CO');" +
+                                "INSERT INTO C_OrderLine (C_OrderLine_ID, C_Order_ID, QtyOrdered, PriceActual) " +
+                                "VALUES (" + orderId + ", " + orderId + ", 1, " + amount + ")");
+                            reservation.release();
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        BigDecimal completed = DB.getSQLValueBD(null, "SELECT COALESCE(SUM(GrandTotal), 0) FROM C_Order " +
+                                                      "WHERE C_BPartner_ID = ? AND DocStatus = 'CO'", partnerId);
+        assertTrue("Pedidos completados acima do limite: " + completed,
+                   completed.compareTo(new BigDecimal(AVAILABLE)) <= 0);
+        assertTrue(completed.compareTo(new BigDecimal(AVAILABLE - 5)) > 0);
+    }
+
+    @Test
+    public void creditChangedElsewhereIsReadOnNextReservation() throws Exception {
+        int partnerId = PARTNERS[0];
+
+        CreditReservationLedger.Reservation first = CreditReservationLedger.reserve(partnerId, new BigDecimal(300), null);
+        assertTrue(first.isOK());
+
+        // Crédito usado alterado por SQL direto, sem passar pelo validator
+        StandinDatabase.execute("UPDATE C_BPartner SET SO_CreditUsed = 600 WHERE C_BPartner_ID = " + partnerId);
+
+        CreditReservationLedger.Reservation second = CreditReservationLedger.reserve(partnerId, new BigDecimal(200), null);
+        assertFalse(second.isOK());
+        assertEquals(0, new BigDecimal(900).compareTo(second.getCreditUsed()));
+
+        first.release();
+        CreditReservationLedger.Reservation third = CreditReservationLedger.reserve(partnerId, new BigDecimal(400), null);
+        assertTrue(third.isOK());
+        third.release();
+
+        // Pedido completado com metade faturada conta pela outra metade
+        StandinDatabase.execute("INSERT INTO C_Order (C_Order_ID, C_BPartner_ID, DateOrdered, GrandTotal, DocStatus) " +
+                                "VALUES (50, " + partnerId + ", NOW(), 330, 'CO');" +
+                                "INSERT INTO C_OrderLine (C_OrderLine_ID, C_Order_ID, QtyOrdered, QtyInvoiced, PriceActual) " +
+                                "VALUES (50, 50, 10, 5, 30)");
+        CreditReservationLedger.Reservation fourth = CreditReservationLedger.reserve(partnerId, new BigDecimal(300), null);
+        assertFalse(fourth.isOK());
+        assertEquals(0, new BigDecimal(765).compareTo(fourth.getCreditUsed()));
+    }
+
+    @Test
+    public void validatorHoldsReservationUntilTrxEnds() throws Exception {
+        int partnerId = PARTNERS[1];
+        StandinDatabase.execute("INSERT INTO C_Order (C_Order_ID, C_BPartner_ID, DateOrdered, GrandTotal) " +
+                                "VALUES (1, " + partnerId + ", NOW(), 500);" +
+                                "INSERT INTO C_Order (C_Order_ID, C_BPartner_ID, DateOrdered, GrandTotal) " +
+                                "VALUES (2, " + partnerId + ", NOW(), 500)");
+        MSysConfig.setValue("CUSTOM_VALIDATOR_RULE_OrderHasLines", "N");
+        MSysConfig.setValue("CUSTOM_VALIDATOR_RULE_OrderStock", "N");
+        ModelValidationEngine engine = new ModelValidationEngine();
+        engine.addModelValidator(new CustomModelValidator(), null);
+
+        Trx trx1 = Trx.get(Trx.createTrxName("Credit"), true);
+        Trx trx2 = Trx.get(Trx.createTrxName("Credit"), true);
+        try {
+            MOrder order1 = new MOrder(Env.getCtx(), 1, trx1.getTrxName());
+            MOrder order2 = new MOrder(Env.getCtx(), 2, trx2.getTrxName());
+
+            assertNull(engine.fireDocValidate(order1, ModelValidator.TIMING_BEFORE_COMPLETE));
+            // 200 + 500 + 500 > 1000 enquanto a primeira transação estiver aberta
+            assertNotNull(engine.fireDocValidate(order2, ModelValidator.TIMING_BEFORE_COMPLETE));
+
+            // Rollback libera a reserva; o close seguinte não a libera de novo
+            trx1.rollback();
+            trx1.close();
+            assertNull(engine.fireDocValidate(order2, ModelValidator.TIMING_BEFORE_COMPLETE));
+
+            // Commit libera a reserva; o pedido completado passa a contar pelo banco
+            StandinDatabase.execute("UPDATE C_Order SET DocStatus = 'CO' WHERE C_Order_ID = 2;" +
+                                    "INSERT INTO C_OrderLine (C_OrderLine_ID, C_Order_ID, QtyOrdered, PriceActual) " +
+                                    "VALUES (2, 2, 1, 500)");
+            trx2.commit();
+            assertFalse(CreditReservationLedger.reserve(partnerId, new BigDecimal(AVAILABLE), null).isOK());
+            CreditReservationLedger.Reservation rest = CreditReservationLedger.reserve(partnerId, new BigDecimal(300), null);
+            assertTrue(rest.isOK());
+            rest.release();
+        } finally {
+            trx1.close();
+            trx2.close();
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while ((current = max.get()) < value && !max.compareAndSet(current, value)) {
+            // repetir
+        }
+    }
+}
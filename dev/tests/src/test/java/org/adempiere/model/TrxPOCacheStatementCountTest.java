@@ -0,0 +1,125 @@
+package org.adempiere.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.model.MOrder;
+import org.compiere.model.MOrderLine;
+import org.compiere.model.MSysConfig;
+import org.compiere.model.ModelValidationEngine;
+import org.compiere.model.ModelValidator;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+import org.compiere.util.Trx;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Consultas de parceiro e linhas de pedido feitas pelas regras do validator ao concluir
+ * vários pedidos do mesmo parceiro: sem transação (uma leitura por regra, como antes do
+ * TrxPOCache) e na mesma transação (uma leitura por registro)
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class TrxPOCacheStatementCountTest {
+
+    private static final int PARTNER_ID = 7001;
+    private static final int ORDERS = 20;
+    private static final int LINES = 3;
+
+    private ModelValidationEngine engine;
+    private final AtomicInteger partnerReads = new AtomicInteger();
+    private final AtomicInteger lineReads = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", 11);
+        StandinDatabase.create("trxcache");
+
+        // Parceiro sem limite de crédito e estoque suficiente: todas as regras são executadas
+        StringBuilder script = new StringBuilder();
+        script.append("INSERT INTO C_BPartner (C_BPartner_ID, Name) VALUES (" + PARTNER_ID + ", 'Cliente Lote');");
+        script.append("INSERT INTO M_Product (M_Product_ID, Name) VALUES (1, 'Parafuso');");
+        script.append("INSERT INTO M_Locator (M_Locator_ID, M_Warehouse_ID) VALUES (1, 1);");
+        script.append("INSERT INTO M_Storage (M_Product_ID, M_Locator_ID, QtyOnHand) VALUES (1, 1, 100000);");
+        int lineId = 1;
+        for (int o = 1; o <= ORDERS; o++) {
+            script.append("INSERT INTO C_Order (C_Order_ID, C_BPartner_ID, DateOrdered, GrandTotal, M_Warehouse_ID) " +
+                          "VALUES (" + o + ", " + PARTNER_ID + ", NOW(), 100, 1);");
+            for (int l = 1; l <= LINES; l++) {
+                script.append("INSERT INTO C_OrderLine (C_OrderLine_ID, C_Order_ID, Line, M_Product_ID, " +
+                              "M_Warehouse_ID, QtyEntered, QtyOrdered, PriceEntered) VALUES (" + lineId++ + ", " + 
+                              o + ", " + l * 10 + ", 1, 1, 1, 1, 10);");
+            }
+        }
+        StandinDatabase.execute(script.toString());
+
+        engine = new ModelValidationEngine();
+        engine.addModelValidator(new CustomModelValidator(), null);
+
+        DB.setStatementListener(new DB.StatementListener() {
+            public void beforeExecute(String sql) throws SQLException {
+                if (sql.startsWith("SELECT * FROM C_BPartner ")) {
+                    partnerReads.incrementAndGet();
+                } else if (sql.startsWith("SELECT * FROM C_OrderLine WHERE C_Order_ID")) {
+                    lineReads.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        DB.setStatementListener(null);
+        MSysConfig.clearValues();
+    }
+
+    @Test
+    public void withoutTrxEveryRuleReadsAgain() throws Exception {
+        for (int o = 1; o <= ORDERS; o++) {
+            validate(new MOrder(Env.getCtx(), o, null));
+        }
+
+        // OrderPartner lê o parceiro; OrderHasLines e OrderStock leem as linhas
+        assertEquals(ORDERS, partnerReads.get());
+        assertEquals(2 * ORDERS, lineReads.get());
+    }
+
+    @Test
+    public void sameTrxReadsEachRecordOnce() throws Exception {
+        Trx trx = Trx.get(Trx.createTrxName("Batch"), true);
+        try {
+            for (int o = 1; o <= ORDERS; o++) {
+                validate(new MOrder(Env.getCtx(), o, trx.getTrxName()));
+            }
+            assertEquals(1, partnerReads.get());
+            assertEquals(ORDERS, lineReads.get());
+
+            // Linha alterada na transação: as linhas do pedido são relidas uma vez
+            MOrderLine line = new MOrderLine(Env.getCtx(), 1, trx.getTrxName());
+            assertNull(engine.fireModelChange(line, ModelValidator.TYPE_AFTER_CHANGE));
+            validate(new MOrder(Env.getCtx(), 1, trx.getTrxName()));
+            assertEquals(ORDERS + 1, lineReads.get());
+
+            trx.commit();
+        } finally {
+            trx.close();
+        }
+
+        // Nada guardado após o fim da transação
+        partnerReads.set(0);
+        validate(new MOrder(Env.getCtx(), 1, null));
+        assertEquals(1, partnerReads.get());
+    }
+
+    private void validate(MOrder order) throws Exception {
+        assertNull(engine.fireModelChange(order, ModelValidator.TYPE_BEFORE_NEW));
+        assertNull(engine.fireDocValidate(order, ModelValidator.TIMING_BEFORE_COMPLETE));
+    }
+}
@@ -0,0 +1,69 @@
+package org.adempiere.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.model.MOrderLine;
+import org.compiere.model.MProduct;
+import org.compiere.model.MSysConfig;
+import org.compiere.model.ModelValidationEngine;
+import org.compiere.model.ModelValidator;
+import org.compiere.model.ProductSellabilityCache;
+import org.compiere.util.Env;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * CUSTOM_VALIDATOR_RULE_<Nome> desativa regras de validação, mas não as rotinas de manutenção
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class ValidatorRuleSwitchTest {
+
+    private ModelValidationEngine engine;
+
+    @Before
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", 11);
+        StandinDatabase.create("rules");
+        StandinDatabase.execute("INSERT INTO M_Product (M_Product_ID, Name) VALUES (501, 'Parafuso')");
+
+        engine = new ModelValidationEngine();
+        engine.addModelValidator(new CustomModelValidator(), null);
+    }
+
+    @After
+    public void tearDown() {
+        MSysConfig.clearValues();
+    }
+
+    @Test
+    public void validationRuleCanBeDisabled() throws Exception {
+        MOrderLine line = new MOrderLine(Env.getCtx(), 0, null);
+        line.set_ValueOfColumn("QtyEntered", new BigDecimal(-1));
+
+        assertEquals("Quantidade deve ser maior que zero", engine.fireModelChange(line, ModelValidator.TYPE_BEFORE_NEW));
+
+        MSysConfig.setValue("CUSTOM_VALIDATOR_RULE_OrderLine", "N");
+        assertNull(engine.fireModelChange(line, ModelValidator.TYPE_BEFORE_NEW));
+    }
+
+    @Test
+    public void maintenanceHookIgnoresSwitch() throws Exception {
+        MSysConfig.setValue("CUSTOM_VALIDATOR_RULE_ProductCache", "N");
+        assertTrue(ProductSellabilityCache.get(501).isActive());
+
+        StandinDatabase.execute("UPDATE M_Product SET IsActive = 'N' WHERE M_Product_ID = 501");
+        MProduct product = new MProduct(Env.getCtx(), 501, null);
+        assertNull(engine.fireModelChange(product, ModelValidator.TYPE_AFTER_CHANGE));
+
+        assertFalse(ProductSellabilityCache.get(501).isActive());
+    }
+}
@@ -0,0 +1,106 @@
+package org.compiere.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * CalloutCustom.percentOf (aritmética em long) comparado, com valores aleatórios, ao cálculo
+ * de referência amount.multiply(percent).divide(100, 2, HALF_UP), inclusive escala e sinal
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class PercentOfPropertyTest {
+
+    private static final long SEED = 14L;
+    private static final int SAMPLES = 200000;
+    private static final BigDecimal HUNDRED = new BigDecimal(100);
+
+    @Test
+    public void randomValuesMatchReference() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            assertMatches(randomDecimal(random, 1 + random.nextInt(18), random.nextInt(19)),
+                          randomDecimal(random, 1 + random.nextInt(18), random.nextInt(19)));
+        }
+    }
+
+    @Test
+    public void typicalValuesMatchReference() {
+        Random random = new Random(SEED + 1);
+        for (int i = 0; i < SAMPLES; i++) {
+            // Valores de linha (até 4 casas) e percentuais de desconto e imposto (até 4 casas)
+            assertMatches(randomDecimal(random, 1 + random.nextInt(12), random.nextInt(5)),
+                          randomDecimal(random, 1 + random.nextInt(6), random.nextInt(5)));
+        }
+    }
+
+    @Test
+    public void scaleAndPrecisionLimitsMatchReference() {
+        String[] values = {
+            "0", "-0", "0.00", "1", "-1", "0.5", "-0.5", "0.005", "-0.005", "0.0050",
+            "999999999999999999", "-999999999999999999", "0.999999999999999999", "-0.999999999999999999",
+            "0.000000000000000001", "-0.000000000000000001", "99999999999999999.9", "123456789.123456789",
+            "1000000000000000000", "0.0000000000000000001", "1E+3", "-2.5E+2", "5E-19", "50.00", "12.345"
+        };
+        for (String amount : values) {
+            for (String percent : values) {
+                assertMatches(new BigDecimal(amount), new BigDecimal(percent));
+            }
+        }
+    }
+
+    @Test
+    public void overflowBoundaryMatchesReference() {
+        Random random = new Random(SEED + 2);
+        for (int i = 0; i < SAMPLES; i++) {
+            long a = randomUnscaled(random, 1 + random.nextInt(18));
+            if (a == 0) {
+                continue;
+            }
+            // Maior |p| em que a * p cabe em long, e o seguinte, que exige o cálculo em BigDecimal
+            long limit = Long.MAX_VALUE / Math.abs(a);
+            for (long p = limit - 1; p <= limit + 1; p++) {
+                if (p <= 0 || BigInteger.valueOf(p).toString().length() > 18) {
+                    continue;
+                }
+                long signed = random.nextBoolean() ? p : -p;
+                assertMatches(BigDecimal.valueOf(a, random.nextInt(10)), BigDecimal.valueOf(signed, random.nextInt(10)));
+            }
+        }
+    }
+
+    private static void assertMatches(BigDecimal amount, BigDecimal percent) {
+        BigDecimal expected = amount.multiply(percent).divide(HUNDRED, 2, BigDecimal.ROUND_HALF_UP);
+        // equals: mesmo valor e mesma escala (2)
+        assertEquals(amount + " x " + percent + "%", expected, CalloutCustom.percentOf(amount, percent));
+    }
+
+    private static BigDecimal randomDecimal(Random random, int digits, int scale) {
+        return BigDecimal.valueOf(randomUnscaled(random, digits), scale);
+    }
+
+    /**
+     * Inteiro com até o número de dígitos informado, com sinal aleatório; metade dos valores
+     * termina em 5 ou 50 para exercitar o arredondamento da metade
+     */
+    private static long randomUnscaled(Random random, int digits) {
+        long bound = 1;
+        for (int i = 0; i < digits; i++) {
+            bound *= 10;
+        }
+        long value = (random.nextLong() & Long.MAX_VALUE) % bound;
+        if (random.nextBoolean() && value >= 10) {
+            value = value / 10 * 10 + 5;
+            if (value >= bound) {
+                value -= 10;
+            }
+        }
+        return random.nextInt(4) == 0 ? -value : value;
+    }
+}
@@ -0,0 +1,86 @@
+package org.compiere.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+
+import org.adempiere.model.CustomModelValidator;
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+import org.compiere.util.Trx;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * CalloutCustom.validateProduct com o cache de produtos: um produto desativado e confirmado
+ * é recusado em seguida, e um erro ao ler o produto é informado em vez de aceitá-lo
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class ProductDeactivationCalloutTest {
+
+    private ModelValidationEngine engine;
+    private CalloutCustom callout;
+
+    @Before
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", 11);
+        StandinDatabase.create("callout");
+        StandinDatabase.execute("INSERT INTO M_Product (M_Product_ID, Name) VALUES (701, 'Arruela');" +
+                                "INSERT INTO M_Product (M_Product_ID, Name) VALUES (702, 'Porca')");
+
+        engine = new ModelValidationEngine();
+        engine.addModelValidator(new CustomModelValidator(), null);
+        callout = new CalloutCustom();
+    }
+
+    @After
+    public void tearDown() {
+        DB.setStatementListener(null);
+    }
+
+    @Test
+    public void deactivatedProductIsRejectedAfterCommit() throws Exception {
+        GridTab tab = new GridTab(1);
+        assertEquals("", validate(tab, 701));
+        assertEquals("Arruela", tab.getValue("ProductName"));
+
+        Trx trx = Trx.get(Trx.createTrxName("Product"), true);
+        try {
+            MProduct product = new MProduct(Env.getCtx(), 701, trx.getTrxName());
+            product.set_ValueOfColumn("IsActive", Boolean.FALSE);
+            product.saveEx();
+            assertNull(engine.fireModelChange(product, ModelValidator.TYPE_AFTER_CHANGE));
+            trx.commit();
+        } finally {
+            trx.close();
+        }
+
+        assertEquals("Produto Arruela não está ativo", validate(new GridTab(1), 701));
+    }
+
+    @Test
+    public void loadErrorIsReported() throws Exception {
+        DB.setStatementListener(new DB.StatementListener() {
+            public void beforeExecute(String sql) throws SQLException {
+                if (sql.contains("FROM M_Product WHERE M_Product_ID = ?")) {
+                    throw new SQLException("Conexão perdida (simulada)", "08006");
+                }
+            }
+        });
+
+        GridTab tab = new GridTab(1);
+        String error = validate(tab, 702);
+        assertTrue(error, error.startsWith("Erro ao validar produto"));
+        assertNull(tab.getValue("ProductName"));
+    }
+
+    private String validate(GridTab tab, int productId) {
+        return callout.validateProduct(Env.getCtx(), 1, tab, new GridField("M_Product_ID"), Integer.valueOf(productId));
+    }
+}
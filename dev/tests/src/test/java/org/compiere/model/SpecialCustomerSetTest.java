@@ -0,0 +1,104 @@
+package org.compiere.model;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Conjunto de clientes especiais: IDs reais do ADempiere (a partir de 1.000.000), alterações
+ * de parceiros e descartes durante uma reconstrução em andamento
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class SpecialCustomerSetTest {
+
+    @Before
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", 11);
+        StandinDatabase.create("special");
+        StandinDatabase.execute("INSERT INTO C_BPartner (C_BPartner_ID, Name, SO_CreditLimit) VALUES (1000001, 'A', 50000);" +
+                                "INSERT INTO C_BPartner (C_BPartner_ID, Name, SO_CreditLimit) VALUES (1000002, 'B', 5000);" +
+                                "INSERT INTO C_BPartner (C_BPartner_ID, Name, SO_CreditLimit) VALUES (1000003, 'C', 20000)");
+        SpecialCustomerSet.reset();
+    }
+
+    @After
+    public void tearDown() {
+        DB.setStatementListener(null);
+        MSysConfig.clearValues();
+        SpecialCustomerSet.reset();
+    }
+
+    @Test
+    public void partnerUpdatesKeepTheSetOrdered() {
+        assertTrue(SpecialCustomerSet.contains(1000001));
+        assertFalse(SpecialCustomerSet.contains(1000002));
+        assertTrue(SpecialCustomerSet.contains(1000003));
+
+        StandinDatabase.execute("UPDATE C_BPartner SET SO_CreditLimit = 90000 WHERE C_BPartner_ID = 1000002;" +
+                                "UPDATE C_BPartner SET IsCustomer = 'N' WHERE C_BPartner_ID = 1000001");
+        SpecialCustomerSet.update(new MBPartner(Env.getCtx(), 1000002, null), false);
+        SpecialCustomerSet.update(new MBPartner(Env.getCtx(), 1000001, null), false);
+        SpecialCustomerSet.update(new MBPartner(Env.getCtx(), 1000003, null), true);
+
+        assertFalse(SpecialCustomerSet.contains(1000001));
+        assertTrue(SpecialCustomerSet.contains(1000002));
+        assertFalse(SpecialCustomerSet.contains(1000003));
+        assertFalse(SpecialCustomerSet.contains(0));
+    }
+
+    @Test
+    public void thresholdResetDuringRebuildIsNotOverwritten() {
+        interleave(new Runnable() {
+            public void run() {
+                MSysConfig.setValue(SpecialCustomerSet.SYSCONFIG_CreditLimit, "30000");
+                SpecialCustomerSet.reset();
+            }
+        });
+
+        // Reconstrução com o limite anterior: responde à consulta, mas não é publicada
+        assertTrue(SpecialCustomerSet.contains(1000003));
+        assertFalse(SpecialCustomerSet.contains(1000003));
+        assertTrue(SpecialCustomerSet.contains(1000001));
+    }
+
+    @Test
+    public void partnerChangeDuringRebuildIsNotOverwritten() {
+        interleave(new Runnable() {
+            public void run() {
+                StandinDatabase.execute("UPDATE C_BPartner SET SO_CreditLimit = 0 WHERE C_BPartner_ID = 1000001");
+                SpecialCustomerSet.update(new MBPartner(Env.getCtx(), 1000001, null), false);
+            }
+        });
+
+        assertTrue(SpecialCustomerSet.contains(1000001));
+        assertFalse(SpecialCustomerSet.contains(1000001));
+    }
+
+    /**
+     * Executar a alteração depois que a primeira reconstrução leu C_BPartner e antes da publicação
+     */
+    private void interleave(final Runnable change) {
+        final AtomicBoolean done = new AtomicBoolean(false);
+        DB.setStatementListener(new DB.StatementListener() {
+            public void beforeExecute(String sql) throws SQLException {
+            }
+
+            public void afterExecute(String sql) throws SQLException {
+                if (sql.startsWith("SELECT C_BPartner_ID FROM C_BPartner") && done.compareAndSet(false, true)) {
+                    change.run();
+                }
+            }
+        });
+    }
+}
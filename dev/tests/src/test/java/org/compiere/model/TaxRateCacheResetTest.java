@@ -0,0 +1,63 @@
+package org.compiere.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Alteração de C_Tax confirmada e descartada do cache durante uma carga em andamento:
+ * a carga, lida antes do commit, não pode ser publicada
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class TaxRateCacheResetTest {
+
+    @Before
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", 11);
+        StandinDatabase.create("tax");
+        StandinDatabase.execute("INSERT INTO C_Tax (C_Tax_ID, Rate) VALUES (1, 10)");
+        TaxRateCache.reset();
+    }
+
+    @After
+    public void tearDown() {
+        DB.setStatementListener(null);
+        TaxRateCache.reset();
+    }
+
+    @Test
+    public void resetDuringLoadIsNotOverwritten() {
+        final AtomicBoolean changed = new AtomicBoolean(false);
+        DB.setStatementListener(new DB.StatementListener() {
+            public void beforeExecute(String sql) throws SQLException {
+            }
+
+            public void afterExecute(String sql) throws SQLException {
+                // Linhas já lidas com a taxa antiga: alteração confirmada e invalidação pós-commit
+                if (sql.startsWith("SELECT C_Tax_ID, Rate FROM C_Tax") && changed.compareAndSet(false, true)) {
+                    StandinDatabase.execute("UPDATE C_Tax SET Rate = 25 WHERE C_Tax_ID = 1");
+                    TaxRateCache.reset();
+                }
+            }
+        });
+
+        // A consulta em andamento responde com a taxa lida antes do commit
+        assertEquals(0, new BigDecimal(10).compareTo(TaxRateCache.get(1)));
+        assertEquals(true, changed.get());
+
+        // A carga anterior ao descarte não ficou no cache
+        assertEquals(0, new BigDecimal(25).compareTo(TaxRateCache.get(1)));
+        assertEquals(0, new BigDecimal(25).compareTo(TaxRateCache.get(1)));
+    }
+}
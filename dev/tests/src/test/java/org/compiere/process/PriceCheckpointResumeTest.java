@@ -0,0 +1,267 @@
+package org.compiere.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Atualização de preços interrompida e continuada com IsResume: o resultado deve ser igual
+ * ao de uma execução sem interrupção, sem aplicar o ajuste duas vezes
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class PriceCheckpointResumeTest {
+
+    private static final int AD_Process_ID = 1000001;
+    private static final int PRODUCTS = 120;
+    private static final int VERSIONS = 3;
+
+    @Before
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", 11);
+        Env.setContext(Env.getCtx(), "#AD_User_ID", 100);
+    }
+
+    @After
+    public void tearDown() {
+        DB.setStatementListener(null);
+    }
+
+    /**
+     * Lotes sequenciais: falha no terceiro lote e continuação a partir do checkpoint
+     */
+    @Test
+    public void resumeBatchesMatchesUninterruptedRun() {
+        Map<String, String> expected = runUninterrupted(batchParameters(false));
+
+        createDatabase();
+        failOnUpdate("UPDATE M_ProductPrice", 3);
+        assertTrue(runProcess(batchParameters(false)).isError());
+        DB.setStatementListener(null);
+
+        ProcessInfo resumed = runProcess(batchParameters(true));
+        assertFalse(resumed.getSummary(), resumed.isError());
+        assertEquals(expected, readPrices());
+        assertEquals(0, count("SELECT COUNT(*) FROM Custom_PriceCheckpoint"));
+    }
+
+    /**
+     * Partições paralelas: uma partição falha e apenas ela é executada na continuação
+     */
+    @Test
+    public void resumeParallelMatchesUninterruptedRun() {
+        Map<String, String> expected = runUninterrupted(parallelParameters(false));
+
+        createDatabase();
+        failOnUpdate("UPDATE M_ProductPrice", 2);
+        assertTrue(runProcess(parallelParameters(false)).isError());
+        DB.setStatementListener(null);
+        assertEquals(VERSIONS - 1, count("SELECT COUNT(*) FROM Custom_PriceCheckpoint WHERE IsCompleted = 'Y'"));
+
+        ProcessInfo resumed = runProcess(parallelParameters(true));
+        assertFalse(resumed.getSummary(), resumed.isError());
+        assertEquals(expected, readPrices());
+    }
+
+    /**
+     * Partições paralelas em lotes: os lotes confirmados antes da falha de uma partição
+     * permanecem gravados e entram nos contadores
+     */
+    @Test
+    public void parallelBatchFailureCountsCommittedBatches() {
+        createDatabase();
+        Map<String, String> before = readPrices();
+        failOnUpdate("UPDATE M_ProductPrice", 5);
+        ProcessInfo pi = runProcess(parallelBatchParameters());
+        DB.setStatementListener(null);
+        assertTrue(pi.isError());
+
+        Map<String, String> after = readPrices();
+        int changed = 0;
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            if (!entry.getValue().equals(after.get(entry.getKey()))) {
+                changed++;
+            }
+        }
+        assertTrue(changed > 0 && changed < PRODUCTS * VERSIONS);
+        Matcher matcher = Pattern.compile("confirmados: (\\d+)").matcher(pi.getSummary());
+        assertTrue(pi.getSummary(), matcher.find());
+        assertEquals(changed, Integer.parseInt(matcher.group(1)));
+    }
+
+    /**
+     * Execução concluída remove os checkpoints: IsResume não pode reaplicar o ajuste
+     */
+    @Test
+    public void resumeAfterCompletedRunIsRefused() {
+        createDatabase();
+        assertFalse(runProcess(batchParameters(false)).isError());
+        Map<String, String> adjusted = readPrices();
+
+        ProcessInfo resumed = runProcess(batchParameters(true));
+        assertTrue(resumed.getSummary(), resumed.getSummary().startsWith("Nenhum checkpoint"));
+        assertEquals(adjusted, readPrices());
+    }
+
+    /**
+     * A execução padrão, em transação única, não depende de Custom_PriceCheckpoint
+     */
+    @Test
+    public void defaultRunDoesNotUseCheckpointTable() {
+        createDatabase();
+        StandinDatabase.execute("DROP TABLE Custom_PriceCheckpoint");
+        Map<String, String> before = readPrices();
+
+        ProcessInfo pi = runProcess(new ProcessInfoParameter[] {
+            new ProcessInfoParameter("PriceAdjustment", new BigDecimal("10"), null, null, null),
+            new ProcessInfoParameter("AdjustmentType", "P", null, null, null)});
+        assertFalse(pi.getSummary(), pi.isError());
+        assertFalse(before.equals(readPrices()));
+
+        ProcessInfo resume = runProcess(new ProcessInfoParameter[] {
+            new ProcessInfoParameter("PriceAdjustment", new BigDecimal("10"), null, null, null),
+            new ProcessInfoParameter("AdjustmentType", "P", null, null, null),
+            new ProcessInfoParameter("IsResume", "Y", null, null, null)});
+        assertTrue(resume.getSummary(), resume.getSummary().startsWith("IsResume requer"));
+    }
+
+    private Map<String, String> runUninterrupted(ProcessInfoParameter[] parameters) {
+        createDatabase();
+        ProcessInfo pi = runProcess(parameters);
+        assertFalse(pi.getSummary(), pi.isError());
+        return readPrices();
+    }
+
+    private ProcessInfoParameter[] batchParameters(boolean resume) {
+        List<ProcessInfoParameter> list = new ArrayList<ProcessInfoParameter>();
+        list.add(new ProcessInfoParameter("PriceAdjustment", new BigDecimal("7.5"), null, null, null));
+        list.add(new ProcessInfoParameter("AdjustmentType", "P", null, null, null));
+        list.add(new ProcessInfoParameter("BatchSize", new BigDecimal(50), null, null, null));
+        list.add(new ProcessInfoParameter("LogMode", "A", null, null, null));
+        if (resume) {
+            list.add(new ProcessInfoParameter("IsResume", "Y", null, null, null));
+        }
+        return list.toArray(new ProcessInfoParameter[list.size()]);
+    }
+
+    private ProcessInfoParameter[] parallelParameters(boolean resume) {
+        List<ProcessInfoParameter> list = new ArrayList<ProcessInfoParameter>();
+        list.add(new ProcessInfoParameter("PriceAdjustment", new BigDecimal("1.25"), null, null, null));
+        list.add(new ProcessInfoParameter("AdjustmentType", "A", null, null, null));
+        list.add(new ProcessInfoParameter("Parallelism", new BigDecimal(VERSIONS), null, null, null));
+        list.add(new ProcessInfoParameter("LogMode", "S", null, null, null));
+        if (resume) {
+            list.add(new ProcessInfoParameter("IsResume", "Y", null, null, null));
+        }
+        return list.toArray(new ProcessInfoParameter[list.size()]);
+    }
+
+    private ProcessInfoParameter[] parallelBatchParameters() {
+        return new ProcessInfoParameter[] {
+            new ProcessInfoParameter("PriceAdjustment", new BigDecimal("5"), null, null, null),
+            new ProcessInfoParameter("AdjustmentType", "P", null, null, null),
+            new ProcessInfoParameter("Parallelism", new BigDecimal(VERSIONS), null, null, null),
+            new ProcessInfoParameter("BatchSize", new BigDecimal(50), null, null, null),
+            new ProcessInfoParameter("LogMode", "A", null, null, null)};
+    }
+
+    private ProcessInfo runProcess(ProcessInfoParameter[] parameters) {
+        ProcessInfo pi = new ProcessInfo("Atualizar preços", AD_Process_ID);
+        pi.setAD_Client_ID(11);
+        pi.setAD_User_ID(100);
+        pi.setParameter(parameters);
+        new CustomProcess().startProcess(Env.getCtx(), pi, null);
+        return pi;
+    }
+
+    /**
+     * Simular a queda do banco na N-ésima execução de um comando
+     */
+    private void failOnUpdate(final String prefix, final int failAt) {
+        final AtomicInteger executions = new AtomicInteger();
+        DB.setStatementListener(new DB.StatementListener() {
+            public void beforeExecute(String sql) throws SQLException {
+                if (sql.startsWith(prefix) && executions.incrementAndGet() == failAt) {
+                    throw new SQLException("Conexão perdida (simulada)", "08006");
+                }
+            }
+        });
+    }
+
+    private void createDatabase() {
+        StandinDatabase.create("prices");
+
+        List<Object[]> versions = new ArrayList<Object[]>();
+        for (int v = 1; v <= VERSIONS; v++) {
+            versions.add(new Object[] {100 + v, 100, Timestamp.valueOf("2024-0" + v + "-01 00:00:00")});
+        }
+        StandinDatabase.insert("INSERT INTO M_PriceList_Version (M_PriceList_Version_ID, M_PriceList_ID, ValidFrom) "
+                               + "VALUES (?, ?, ?)", versions);
+
+        List<Object[]> products = new ArrayList<Object[]>();
+        List<Object[]> prices = new ArrayList<Object[]>();
+        for (int p = 1; p <= PRODUCTS; p++) {
+            products.add(new Object[] {1000 + p, "Produto " + (PRODUCTS - p), 10 + p % 4});
+            for (int v = 1; v <= VERSIONS; v++) {
+                BigDecimal price = new BigDecimal(p * 3 + v).add(new BigDecimal("0.37"));
+                prices.add(new Object[] {1000 + p, 100 + v, price, price.subtract(BigDecimal.ONE),
+                                         price.subtract(new BigDecimal("2.50"))});
+            }
+        }
+        StandinDatabase.insert("INSERT INTO M_Product (M_Product_ID, Name, M_Product_Category_ID) VALUES (?, ?, ?)",
+                               products);
+        StandinDatabase.insert("INSERT INTO M_ProductPrice (M_Product_ID, M_PriceList_Version_ID, "
+                               + "PriceList, PriceStd, PriceLimit) VALUES (?, ?, ?, ?, ?)", prices);
+    }
+
+    private Map<String, String> readPrices() {
+        Map<String, String> prices = new TreeMap<String, String>();
+        Connection conn = DB.createConnection(true);
+        try {
+            Statement stmt = conn.createStatement();
+            ResultSet rs = stmt.executeQuery("SELECT M_Product_ID, M_PriceList_Version_ID, PriceList, PriceStd, "
+                                             + "PriceLimit FROM M_ProductPrice");
+            while (rs.next()) {
+                prices.put(rs.getInt(1) + "|" + rs.getInt(2),
+                           plain(rs.getBigDecimal(3)) + "/" + plain(rs.getBigDecimal(4)) + "/" + plain(rs.getBigDecimal(5)));
+            }
+            rs.close();
+            stmt.close();
+            conn.close();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        assertEquals(PRODUCTS * VERSIONS, prices.size());
+        return prices;
+    }
+
+    private int count(String sql) {
+        return DB.getSQLValueEx(null, sql);
+    }
+
+    private static String plain(BigDecimal value) {
+        return value.stripTrailingZeros().toPlainString();
+    }
+}
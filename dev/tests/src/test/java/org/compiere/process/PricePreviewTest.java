@@ -0,0 +1,71 @@
+package org.compiere.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.util.Env;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Prévia do ajuste de preços (IsPreview): variação mínima e máxima dos preços encontrados
+ * e mensagem própria quando os filtros não encontram preços
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class PricePreviewTest {
+
+    @Before
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", 11);
+        Env.setContext(Env.getCtx(), "#AD_User_ID", 100);
+        StandinDatabase.create("preview");
+        StandinDatabase.execute(
+            "INSERT INTO M_PriceList_Version (M_PriceList_Version_ID, M_PriceList_ID, ValidFrom) " +
+            "VALUES (101, 100, TIMESTAMP '2024-01-01 00:00:00');" +
+            "INSERT INTO M_Product_Category (M_Product_Category_ID, Name) VALUES (10, 'Fixação');" +
+            "INSERT INTO M_Product (M_Product_ID, Name, M_Product_Category_ID) VALUES (1001, 'Parafuso', 10);" +
+            "INSERT INTO M_Product (M_Product_ID, Name, M_Product_Category_ID) VALUES (1002, 'Porca', 10);" +
+            "INSERT INTO M_ProductPrice (M_Product_ID, M_PriceList_Version_ID, PriceList, PriceStd, PriceLimit) " +
+            "VALUES (1001, 101, 12.00, 10.00, 8.00);" +
+            "INSERT INTO M_ProductPrice (M_Product_ID, M_PriceList_Version_ID, PriceList, PriceStd, PriceLimit) " +
+            "VALUES (1002, 101, 25.00, 20.00, 15.00)");
+    }
+
+    @Test
+    public void previewReportsVariation() {
+        ProcessInfo pi = runPreview(10);
+        List<String> log = pi.getLogMessages();
+        assertTrue(log.toString(), log.contains("- Preços analisados: 2"));
+        assertTrue(log.toString(), log.contains("- Variação do preço padrão: mínima 1.000000, máxima 2.000000, média 1.50"));
+    }
+
+    @Test
+    public void previewWithoutPricesHasNoNullVariation() {
+        ProcessInfo pi = runPreview(99);
+        List<String> log = pi.getLogMessages();
+        assertEquals("Prévia concluída. Nenhum preço encontrado com os filtros informados", pi.getSummary());
+        assertTrue(log.toString(), log.contains("- Nenhum preço encontrado com os filtros informados"));
+        assertFalse(log.toString(), log.toString().contains("null"));
+    }
+
+    private ProcessInfo runPreview(int categoryId) {
+        ProcessInfo pi = new ProcessInfo("Prévia de preços", 1000005);
+        pi.setAD_Client_ID(11);
+        pi.setAD_User_ID(100);
+        pi.setParameter(new ProcessInfoParameter[] {
+            new ProcessInfoParameter("M_Product_Category_ID", new BigDecimal(categoryId), null, null, null),
+            new ProcessInfoParameter("PriceAdjustment", new BigDecimal("10"), null, null, null),
+            new ProcessInfoParameter("AdjustmentType", "P", null, null, null),
+            new ProcessInfoParameter("IsPreview", "Y", null, null, null)});
+        new CustomProcess().startProcess(Env.getCtx(), pi, null);
+        assertFalse(pi.getSummary(), pi.isError());
+        return pi;
+    }
+}
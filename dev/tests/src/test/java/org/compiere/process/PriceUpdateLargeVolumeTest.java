@@ -0,0 +1,144 @@
+package org.compiere.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Atualização linha a linha de 1.000.000 de preços com leitura por chave: cada página é
+ * limitada no SQL e o uso de memória não cresce com o volume
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class PriceUpdateLargeVolumeTest {
+
+    private static final int PRODUCTS = 250000;
+    private static final int VERSIONS = 4;
+    private static final int PAGE_SIZE = 2000;
+    private static final int BATCH_SIZE = 20000;
+
+    /** Crescimento máximo do heap retido durante a execução */
+    private static final long MAX_HEAP_GROWTH = 64L * 1024 * 1024;
+
+    /** Páginas entre medições do heap (cada medição força um GC completo) */
+    private static final int MEASURE_EVERY = 50;
+
+    @Before
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", 11);
+        Env.setContext(Env.getCtx(), "#AD_User_ID", 100);
+        createDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        DB.setStatementListener(null);
+        // Libera o banco de 1M linhas (mantido em memória até o fim da JVM)
+        StandinDatabase.execute("DROP ALL OBJECTS");
+    }
+
+    @Test(timeout = 300000)
+    public void keysetPagesKeepMemoryBounded() {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        final long baseline = retainedHeap(memory);
+        final AtomicLong peak = new AtomicLong(baseline);
+        final AtomicInteger pages = new AtomicInteger();
+        final AtomicInteger unlimited = new AtomicInteger();
+
+        DB.setStatementListener(new DB.StatementListener() {
+            public void beforeExecute(String sql) throws SQLException {
+            }
+
+            @Override
+            public void afterExecute(String sql) throws SQLException {
+                if (!sql.startsWith("SELECT p.M_Product_ID")) {
+                    return;
+                }
+                if (!sql.contains("LIMIT ?")) {
+                    unlimited.incrementAndGet();
+                }
+                // Medido com a página aberta: uma leitura sem limite já estaria materializada aqui
+                if (pages.incrementAndGet() % MEASURE_EVERY == 0) {
+                    long used = retainedHeap(memory);
+                    if (used > peak.get()) {
+                        peak.set(used);
+                    }
+                }
+            }
+        });
+
+        ProcessInfo pi = new ProcessInfo("Atualizar preços", 1000002);
+        pi.setAD_Client_ID(11);
+        pi.setAD_User_ID(100);
+        pi.setParameter(new ProcessInfoParameter[] {
+            new ProcessInfoParameter("PriceAdjustment", new BigDecimal("10"), null, null, null),
+            new ProcessInfoParameter("AdjustmentType", "P", null, null, null),
+            new ProcessInfoParameter("BatchSize", new BigDecimal(BATCH_SIZE), null, null, null),
+            new ProcessInfoParameter("FetchSize", new BigDecimal(PAGE_SIZE), null, null, null),
+            new ProcessInfoParameter("LogMode", "A", null, null, null),
+            new ProcessInfoParameter("LogSampleRate", new BigDecimal(100000), null, null, null)});
+        new CustomProcess().startProcess(Env.getCtx(), pi, null);
+        DB.setStatementListener(null);
+
+        assertFalse(pi.getSummary(), pi.isError());
+        assertEquals(PRODUCTS * VERSIONS,
+                     DB.getSQLValueEx(null, "SELECT COUNT(*) FROM M_ProductPrice WHERE UpdatedBy = 100"));
+        assertEquals(0, unlimited.get());
+        // Páginas cheias, mais uma vazia ao fim de cada versão e a última
+        assertEquals(PRODUCTS * VERSIONS / PAGE_SIZE + VERSIONS + 1, pages.get());
+        long growth = peak.get() - baseline;
+        assertTrue("Heap retido cresceu " + (growth / (1024 * 1024)) + " MB", growth < MAX_HEAP_GROWTH);
+    }
+
+    private static long retainedHeap(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private void createDatabase() {
+        StandinDatabase.create("prices1m");
+
+        List<Object[]> versions = new ArrayList<Object[]>();
+        for (int v = 1; v <= VERSIONS; v++) {
+            versions.add(new Object[] {100 + v, 100, Timestamp.valueOf("2024-0" + v + "-01 00:00:00")});
+        }
+        StandinDatabase.insert("INSERT INTO M_PriceList_Version (M_PriceList_Version_ID, M_PriceList_ID, ValidFrom) "
+                               + "VALUES (?, ?, ?)", versions);
+
+        List<Object[]> rows = new ArrayList<Object[]>(PRODUCTS);
+        for (int p = 1; p <= PRODUCTS; p++) {
+            rows.add(new Object[] {1000 + p, "Produto " + p, 10 + p % 4});
+        }
+        StandinDatabase.insert("INSERT INTO M_Product (M_Product_ID, Name, M_Product_Category_ID) VALUES (?, ?, ?)",
+                               rows);
+
+        for (int v = 1; v <= VERSIONS; v++) {
+            rows.clear();
+            for (int p = 1; p <= PRODUCTS; p++) {
+                BigDecimal price = new BigDecimal(p % 500 + v).add(new BigDecimal("10.37"));
+                rows.add(new Object[] {1000 + p, 100 + v, price, price.subtract(BigDecimal.ONE),
+                                       price.subtract(new BigDecimal("2.50"))});
+            }
+            StandinDatabase.insert("INSERT INTO M_ProductPrice (M_Product_ID, M_PriceList_Version_ID, "
+                                   + "PriceList, PriceStd, PriceLimit) VALUES (?, ?, ?, ?, ?)", rows);
+        }
+    }
+}
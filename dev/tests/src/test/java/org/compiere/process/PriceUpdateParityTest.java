@@ -0,0 +1,158 @@
+package org.compiere.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Atualização em conjunto (LogMode = S, um UPDATE com ROUND no banco) e linha a linha
+ * (calculateNewPrice em Java) devem gravar os mesmos preços, com o mesmo arredondamento
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class PriceUpdateParityTest {
+
+    private static final int PRODUCTS = 200;
+    private static final int VERSIONS = 2;
+    private static final long SEED = 20240501L;
+
+    /** Preços na metade do arredondamento, negativos e com 6 casas */
+    private static final String[] EDGE_PRICES = {
+        "0.005", "1.005", "2.675", "0.125", "-1.005", "-0.125", "99.994999", "99.995",
+        "0.000001", "123456.785", "-2.675", "0"
+    };
+
+    @Before
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", 11);
+        Env.setContext(Env.getCtx(), "#AD_User_ID", 100);
+    }
+
+    @Test
+    public void percentageMatches() {
+        assertParity("P", "12.5");
+        assertParity("P", "-33.333");
+        assertParity("P", "7.125");
+        assertParity("P", "0.005");
+    }
+
+    @Test
+    public void amountMatches() {
+        assertParity("A", "0.005");
+        assertParity("A", "-1.115");
+        assertParity("A", "10");
+    }
+
+    private void assertParity(String adjustmentType, String adjustment) {
+        Map<String, String> original = createDatabase();
+        Map<String, String> rowByRow = run(adjustmentType, adjustment, "D");
+
+        createDatabase();
+        Map<String, String> setBased = run(adjustmentType, adjustment, "S");
+
+        assertFalse(original.equals(rowByRow));
+        assertEquals(adjustmentType + " " + adjustment, rowByRow, setBased);
+    }
+
+    private Map<String, String> run(String adjustmentType, String adjustment, String logMode) {
+        ProcessInfo pi = new ProcessInfo("Atualizar preços", 1000003);
+        pi.setAD_Client_ID(11);
+        pi.setAD_User_ID(100);
+        pi.setParameter(new ProcessInfoParameter[] {
+            new ProcessInfoParameter("PriceAdjustment", new BigDecimal(adjustment), null, null, null),
+            new ProcessInfoParameter("AdjustmentType", adjustmentType, null, null, null),
+            new ProcessInfoParameter("LogMode", logMode, null, null, null)});
+        new CustomProcess().startProcess(Env.getCtx(), pi, null);
+        assertFalse(pi.getSummary(), pi.isError());
+        return readPrices();
+    }
+
+    /**
+     * @return Preços iniciais
+     */
+    private Map<String, String> createDatabase() {
+        StandinDatabase.create("parity");
+
+        List<Object[]> versions = new ArrayList<Object[]>();
+        for (int v = 1; v <= VERSIONS; v++) {
+            versions.add(new Object[] {100 + v, 100, Timestamp.valueOf("2024-0" + v + "-01 00:00:00")});
+        }
+        StandinDatabase.insert("INSERT INTO M_PriceList_Version (M_PriceList_Version_ID, M_PriceList_ID, ValidFrom) "
+                               + "VALUES (?, ?, ?)", versions);
+
+        // Mesmos valores em todas as execuções
+        Random random = new Random(SEED);
+        List<Object[]> products = new ArrayList<Object[]>();
+        List<Object[]> prices = new ArrayList<Object[]>();
+        for (int p = 1; p <= PRODUCTS; p++) {
+            // Produtos inativos não são ajustados em nenhum dos modos
+            products.add(new Object[] {1000 + p, "Produto " + p, p % 25 == 0 ? "N" : "Y"});
+            for (int v = 1; v <= VERSIONS; v++) {
+                BigDecimal priceList = p <= EDGE_PRICES.length ? new BigDecimal(EDGE_PRICES[p - 1])
+                                                               : randomPrice(random);
+                BigDecimal priceStd = randomPrice(random);
+                // Preço limite nulo permanece nulo
+                BigDecimal priceLimit = p % 7 == 0 ? null : randomPrice(random);
+                prices.add(new Object[] {1000 + p, 100 + v, priceList, priceStd, priceLimit});
+            }
+        }
+        StandinDatabase.insert("INSERT INTO M_Product (M_Product_ID, Name, IsActive) VALUES (?, ?, ?)", products);
+        StandinDatabase.insert("INSERT INTO M_ProductPrice (M_Product_ID, M_PriceList_Version_ID, "
+                               + "PriceList, PriceStd, PriceLimit) VALUES (?, ?, ?, ?, ?)", prices);
+        return readPrices();
+    }
+
+    /**
+     * Valor com 0 a 6 casas, metade dos terminados em 5 na casa seguinte à segunda
+     */
+    private static BigDecimal randomPrice(Random random) {
+        int scale = random.nextInt(7);
+        BigDecimal price = BigDecimal.valueOf(random.nextInt(10000000), scale);
+        if (scale == 3 && random.nextBoolean()) {
+            price = price.setScale(2, BigDecimal.ROUND_DOWN).add(new BigDecimal("0.005"));
+        }
+        return random.nextInt(10) == 0 ? price.negate() : price;
+    }
+
+    private Map<String, String> readPrices() {
+        Map<String, String> prices = new TreeMap<String, String>();
+        Connection conn = DB.createConnection(true);
+        try {
+            Statement stmt = conn.createStatement();
+            ResultSet rs = stmt.executeQuery("SELECT M_Product_ID, M_PriceList_Version_ID, PriceList, PriceStd, "
+                                             + "PriceLimit FROM M_ProductPrice");
+            while (rs.next()) {
+                prices.put(rs.getInt(1) + "|" + rs.getInt(2),
+                           plain(rs.getBigDecimal(3)) + "/" + plain(rs.getBigDecimal(4)) + "/" + plain(rs.getBigDecimal(5)));
+            }
+            rs.close();
+            stmt.close();
+            conn.close();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return prices;
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "null" : value.stripTrailingZeros().toPlainString();
+    }
+}
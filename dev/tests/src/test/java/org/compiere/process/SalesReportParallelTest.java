@@ -0,0 +1,79 @@
+package org.compiere.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.util.Env;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Relatório de vendas agregado por mês em paralelo: mesmas linhas e totais do sequencial
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class SalesReportParallelTest {
+
+    @Before
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", 11);
+        StandinDatabase.create("sales");
+
+        List<Object[]> partners = new ArrayList<Object[]>();
+        for (int bp = 1; bp <= 20; bp++) {
+            partners.add(new Object[] {100 + bp, "Cliente " + bp});
+        }
+        StandinDatabase.insert("INSERT INTO C_BPartner (C_BPartner_ID, Name) VALUES (?, ?)", partners);
+
+        // Valores com dízimas no ticket médio, distribuídos em quatro meses
+        List<Object[]> orders = new ArrayList<Object[]>();
+        for (int i = 1; i <= 400; i++) {
+            int bp = 100 + 1 + i % 20;
+            Timestamp date = Timestamp.valueOf("2024-0" + (1 + i % 4) + "-" + (10 + i % 18) + " 10:00:00");
+            BigDecimal total = new BigDecimal(i * 7 + bp).add(new BigDecimal("0.33"));
+            orders.add(new Object[] {i, bp, date, total, i % 9 == 0 ? "DR" : "CO"});
+        }
+        StandinDatabase.insert("INSERT INTO C_Order (C_Order_ID, C_BPartner_ID, DateOrdered, GrandTotal, DocStatus) "
+                               + "VALUES (?, ?, ?, ?, ?)", orders);
+    }
+
+    @Test
+    public void parallelMatchesSequential() {
+        List<String> sequential = runReport("2024-01-01", "2024-04-30", 1);
+        List<String> parallel = runReport("2024-01-01", "2024-04-30", 4);
+
+        assertTrue(parallel.remove(parallel.size() - 1).startsWith("- Partições mensais: 4"));
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void dateFromAfterDateToGivesEmptyReport() {
+        List<String> sequential = runReport("2024-04-30", "2024-01-01", 1);
+        List<String> parallel = runReport("2024-04-30", "2024-01-01", 4);
+
+        assertTrue(parallel.remove(parallel.size() - 1).startsWith("- Partições mensais: 0"));
+        assertEquals(sequential, parallel);
+        assertTrue(parallel.contains("TOTAL GERAL: 0 | 0 pedidos"));
+    }
+
+    private List<String> runReport(String dateFrom, String dateTo, int parallelism) {
+        ProcessInfo pi = new ProcessInfo("Relatório de vendas", 1000002);
+        pi.setAD_Client_ID(11);
+        pi.setParameter(new ProcessInfoParameter[] {
+            new ProcessInfoParameter("Action", "R", null, null, null),
+            new ProcessInfoParameter("DateFrom", Timestamp.valueOf(dateFrom + " 00:00:00"), null, null, null),
+            new ProcessInfoParameter("DateTo", null, Timestamp.valueOf(dateTo + " 23:59:59"), null, null),
+            new ProcessInfoParameter("Parallelism", new BigDecimal(parallelism), null, null, null)});
+        new CustomProcess().startProcess(Env.getCtx(), pi, null);
+        assertFalse(pi.getSummary(), pi.isError());
+        return new ArrayList<String>(pi.getLogMessages());
+    }
+}
@@ -0,0 +1,61 @@
+package org.compiere.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.math.BigDecimal;
+
+import org.adempiere.standin.StandinDatabase;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Reconstrução do resumo de vendas (Action = S): refaz apenas o resumo do cliente do
+ * processo e mantém o dos demais clientes
+ *
+ * @author Sistema
+ * @version 1.0
+ */
+public class SalesSummaryRebuildTest {
+
+    @Before
+    public void setUp() {
+        Env.setContext(Env.getCtx(), "#AD_Client_ID", 11);
+        StandinDatabase.create("summary");
+        StandinDatabase.execute(
+            "INSERT INTO C_BPartner (C_BPartner_ID, AD_Client_ID, Name) VALUES (101, 11, 'Cliente 11');" +
+            "INSERT INTO C_BPartner (C_BPartner_ID, AD_Client_ID, Name) VALUES (201, 12, 'Cliente 12');" +
+            "INSERT INTO C_Order (C_Order_ID, AD_Client_ID, C_BPartner_ID, DateOrdered, GrandTotal, DocStatus) " +
+            "VALUES (1, 11, 101, TIMESTAMP '2024-03-10 09:00:00', 100.00, 'CO');" +
+            "INSERT INTO C_Order (C_Order_ID, AD_Client_ID, C_BPartner_ID, DateOrdered, GrandTotal, DocStatus) " +
+            "VALUES (2, 11, 101, TIMESTAMP '2024-03-10 15:00:00', 50.00, 'CL');" +
+            "INSERT INTO C_Order (C_Order_ID, AD_Client_ID, C_BPartner_ID, DateOrdered, GrandTotal, DocStatus) " +
+            "VALUES (3, 12, 201, TIMESTAMP '2024-03-10 10:00:00', 70.00, 'CO');" +
+            // Resumo desatualizado do cliente 11; o do cliente 12 difere dos pedidos e só é
+            // mantido se a reconstrução não o tocar
+            "INSERT INTO Custom_SalesSummary (AD_Client_ID, C_BPartner_ID, DateOrdered, GrandTotal, OrderCount) " +
+            "VALUES (11, 101, TIMESTAMP '2024-03-10 00:00:00', 999.00, 9);" +
+            "INSERT INTO Custom_SalesSummary (AD_Client_ID, C_BPartner_ID, DateOrdered, GrandTotal, OrderCount) " +
+            "VALUES (12, 201, TIMESTAMP '2024-03-10 00:00:00', 210.00, 3)");
+    }
+
+    @Test
+    public void rebuildKeepsOtherClients() {
+        ProcessInfo pi = new ProcessInfo("Reconstruir resumo de vendas", 1000004);
+        pi.setAD_Client_ID(11);
+        pi.setParameter(new ProcessInfoParameter[] {
+            new ProcessInfoParameter("Action", "S", null, null, null)});
+        new CustomProcess().startProcess(Env.getCtx(), pi, null);
+        assertFalse(pi.getSummary(), pi.isError());
+
+        assertEquals(0, new BigDecimal("150.00").compareTo(DB.getSQLValueBD(null,
+                "SELECT GrandTotal FROM Custom_SalesSummary WHERE AD_Client_ID = 11 AND C_BPartner_ID = 101")));
+        assertEquals(2, DB.getSQLValueEx(null,
+                "SELECT OrderCount FROM Custom_SalesSummary WHERE AD_Client_ID = 11 AND C_BPartner_ID = 101"));
+        assertEquals(3, DB.getSQLValueEx(null,
+                "SELECT OrderCount FROM Custom_SalesSummary WHERE AD_Client_ID = 12 AND C_BPartner_ID = 201"));
+        assertEquals(2, DB.getSQLValueEx(null, "SELECT COUNT(*) FROM Custom_SalesSummary"));
+    }
+}